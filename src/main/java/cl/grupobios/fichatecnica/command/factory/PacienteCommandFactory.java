@@ -1,9 +1,21 @@
 package cl.grupobios.fichatecnica.command.factory;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
 import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.BusquedaPacienteDTO;
+import cl.grupobios.fichatecnica.dtos.FichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoEstadoPacientesDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoFichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.SugerenciaPacienteDTO;
 import cl.grupobios.fichatecnica.models.Paciente;
 
 public interface PacienteCommandFactory {
@@ -11,22 +23,116 @@ public interface PacienteCommandFactory {
     // registramos un paciente (POST)
     Command<Paciente> createPacienteCommand(Paciente paciente);
 
-    // actualizamos un paciente exstente (PUT)
-    Command<Paciente> updatePacienteCommand(Long id, Paciente paciente);
+    /**
+     * Registra pacientes en forma masiva desde un CSV o un arreglo JSON, leyendo y registrando por lotes (POST)
+     * @param entrada contenido del archivo, se lee a medida que se procesa
+     * @param formato csv o json
+     * @return Command que entrega el reporte con el resultado de cada fila
+     */
+    Command<StreamingResponseBody> importarPacientesCommand(InputStream entrada, String formato);
+
+    /**
+     * Actualizamos un paciente exstente (PUT)
+     * @param id id del paciente
+     * @param paciente datos nuevos, los campos nulos no se modifican
+     * @param versionEsperada versión leída por el cliente (If-Match), null para no verificarla
+     * @return Command que entrega el paciente actualizado
+     */
+    Command<Paciente> updatePacienteCommand(Long id, Paciente paciente, Long versionEsperada);
 
-    // listamos todos los pacientes registrados (GET)
-    Command<List<Paciente>> obtenerTodosLosPacientes();
+    /**
+     * Modifica solo los campos indicados de un paciente con JSON Merge Patch (PATCH)
+     * @param id id del paciente
+     * @param patch campos a modificar, con la versión leída opcional para actualizar con un solo UPDATE condicionado
+     * @param versionEsperada versión leída por el cliente (If-Match), reemplaza a la del documento; null si no viene
+     * @return Command que entrega la versión del paciente después del cambio
+     */
+    Command<Long> patchPacienteCommand(Long id, JsonNode patch, Long versionEsperada);
+
+    /**
+     * Lista los pacientes registrados paginando por cursor (GET)
+     * @param cursor cursor de la página anterior, null para la primera página
+     * @param limite cantidad de pacientes por página, null para usar el valor por defecto
+     * @return Command que entrega la página y el cursor de la siguiente
+     */
+    Command<PaginaDTO<Paciente>> obtenerPaginaPacientes(String cursor, Integer limite);
+
+    /**
+     * Lista el resumen de los pacientes registrados (proyección de solo lectura) paginando por cursor (GET)
+     * @param cursor cursor de la página anterior, null para la primera página
+     * @param limite cantidad de pacientes por página, null para usar el valor por defecto
+     * @return Command que entrega la página y el cursor de la siguiente
+     */
+    Command<PaginaDTO<PacienteDTO>> obtenerPaginaResumenPacientes(String cursor, Integer limite);
+
+    /**
+     * Busca pacientes combinando filtros, paginando por cursor (GET)
+     * @param filtro filtros de la búsqueda
+     * @param cursor cursor de la página anterior, null para la primera página
+     * @param limite cantidad de pacientes por página, null para usar el valor por defecto
+     * @return Command que entrega la página y el cursor de la siguiente
+     */
+    Command<PaginaDTO<Paciente>> buscarPacientes(BusquedaPacienteDTO filtro, String cursor, Integer limite);
+
+    /**
+     * Sugiere pacientes activos por nombre para el autocompletado, tolerando tildes, mayúsculas y errores de tipeo (GET)
+     * @param texto lo que escribió el usuario, la última palabra puede estar incompleta
+     * @param limite cantidad máxima de sugerencias, null para usar 10
+     * @return Command que entrega las sugerencias ordenadas de la más cercana a la más lejana
+     */
+    Command<List<SugerenciaPacienteDTO>> sugerirPacientes(String texto, Integer limite);
 
     // listamos un paciente en especifico por el id (GET/id)
     Command<Optional<Paciente>> buscarPorId(Long id);
 
+    // versión actual de un paciente activo, para revalidar su ETag sin cargarlo (GET/id con If-None-Match)
+    Command<Optional<Long>> versionPacienteCommand(Long id);
+
     // borramos a un paciente (soft delete, se borra del json o soap pero no de la bd)
     Command<Void> eliminarPacienteCommand(Long id);
 
+    /**
+     * Elimina (soft delete) o reactiva varios pacientes con un UPDATE por cada grupo de hasta 1000 ids (POST)
+     * @param ids ids de los pacientes, los repetidos se cuentan una vez
+     * @param activo true para reactivar, false para eliminar
+     * @return Command que entrega cuántos pacientes cambiaron de estado y cuáles no existen
+     */
+    Command<ResultadoEstadoPacientesDTO> cambiarEstadoPacientesCommand(List<Long> ids, boolean activo);
+
     /**
      * Genera la ficha técnica del paciente en PDF
-     * @param id ID del paciente
-     * @return Command que genera el PDF
+     * @param paciente paciente ya cargado con sus relaciones
+     * @param epoca época del cache de la ficha, leída antes de cargar al paciente
+     * @return Command que entrega el cuerpo de la respuesta con el PDF (desde el cache o recién generado)
+     */
+    Command<StreamingResponseBody> generarFichaTecnicaPDFCommand(Paciente paciente, long epoca);
+
+    /**
+     * Genera la ficha técnica del paciente en PDF dentro de un job en segundo plano: el llenado empieza
+     * recién cuando el job ejecuta el cuerpo, en el hilo del job
+     * @param paciente paciente ya cargado con sus relaciones
+     * @param epoca época del cache de la ficha, leída antes de cargar al paciente
+     * @return Command que entrega el cuerpo a entregar al job
+     */
+    Command<StreamingResponseBody> generarFichaTecnicaPDFJobCommand(Paciente paciente, long epoca);
+
+    /**
+     * Genera las fichas técnicas de varios pacientes en un solo PDF o en un ZIP
+     * @param solicitud ids de los pacientes o filtro, y formato de salida
+     * @return Command que entrega el cuerpo de la respuesta a escribir y los ids que no se encontraron
+     */
+    Command<ResultadoFichaTecnicaLoteDTO> generarFichasTecnicasLoteCommand(FichaTecnicaLoteDTO solicitud);
+
+    /**
+     * Exporta el listado de pacientes activos leyendo fila por fila desde la base de datos
+     * @param formato csv o xlsx
+     * @return Command que entrega el cuerpo de la respuesta a escribir
+     */
+    Command<StreamingResponseBody> exportarListadoPacientesCommand(String formato);
+
+    /**
+     * Exporta todos los pacientes (activos e inactivos) en NDJSON, un JSON por línea, leyendo desde un cursor de la base de datos
+     * @return Command que entrega el cuerpo de la respuesta a escribir
      */
-    Command<byte[]> generarFichaTecnicaPDFCommand(Long id);
+    Command<StreamingResponseBody> exportarPacientesNdjsonCommand();
 }
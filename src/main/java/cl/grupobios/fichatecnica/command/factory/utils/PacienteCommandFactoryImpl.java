@@ -1,24 +1,55 @@
 package cl.grupobios.fichatecnica.command.factory.utils;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
-import javax.sql.DataSource;
-
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import cl.grupobios.fichatecnica.command.Command;
 import cl.grupobios.fichatecnica.command.factory.PacienteCommandFactory;
 import cl.grupobios.fichatecnica.command.impl.paciente.CreatePacienteCommandImpl;
 import cl.grupobios.fichatecnica.command.impl.paciente.DeletePacienteCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.ExportListadoPacientesCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.ExportPacientesNdjsonCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.GenerateFichaTecnicaLoteCommandImpl;
 import cl.grupobios.fichatecnica.command.impl.paciente.GenerateFichaTecnicaPdfCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.ImportPacientesCommandImpl;
 import cl.grupobios.fichatecnica.command.impl.paciente.ListIdPacienteCommandImpl;
 import cl.grupobios.fichatecnica.command.impl.paciente.ListPacienteCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.ListPacienteResumenCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.PatchPacienteCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.SearchPacienteCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.SuggestPacienteCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.UpdateEstadoPacientesCommandImpl;
 import cl.grupobios.fichatecnica.command.impl.paciente.UpdatePacienteCommandImpl;
+import cl.grupobios.fichatecnica.command.impl.paciente.VersionPacienteCommandImpl;
+import cl.grupobios.fichatecnica.dtos.BusquedaPacienteDTO;
+import cl.grupobios.fichatecnica.dtos.FichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoEstadoPacientesDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoFichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.SugerenciaPacienteDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
 import cl.grupobios.fichatecnica.models.Paciente;
 import cl.grupobios.fichatecnica.repositories.IGeneroRepository;
 import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
 import cl.grupobios.fichatecnica.repositories.ITipoSangreRepository;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.ExportadorListadoPacientes;
+import cl.grupobios.fichatecnica.utils.IGeneradorNroPaciente;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+import cl.grupobios.fichatecnica.utils.LectorImportacionPacientes;
 import cl.grupobios.fichatecnica.utils.ReporteUtils;
 
 @Component
@@ -27,34 +58,121 @@ public class PacienteCommandFactoryImpl implements PacienteCommandFactory {
     private final IGeneroRepository generoRepository;
     private final ITipoSangreRepository tipoSangreRepository;
     private final ReporteUtils reporteUtils;
+    private final CacheFichaTecnicaPdf cacheFichaTecnica;
+    private final int maxPacientesLote;
+    private final ExportadorListadoPacientes exportadorListado;
+    private final TransactionTemplate transaccionLectura;
+    private final TransactionTemplate transaccion;
+    private final int limitePorDefecto;
+    private final int limiteMaximo;
+    private final ObjectWriter writerNdjson;
+    private final int fetchSizeExportacion;
+    private final int registrosPorLoteExportacion;
+    private final IndiceNombresPacientes indiceNombres;
+    private final IGeneradorNroPaciente generadorNroPaciente;
+    private final ObjectMapper objectMapper;
+    private final LectorImportacionPacientes lectorImportacion;
+    private final int tamanoLoteImportacion;
+    private final int maxIdsCambioEstado;
 
     public PacienteCommandFactoryImpl(
             IPacienteRepository pacienteRepository, 
             IGeneroRepository generoRepository, 
             ITipoSangreRepository tipoSangreRepository,
-            ReporteUtils reporteUtils) { 
+            ReporteUtils reporteUtils,
+            CacheFichaTecnicaPdf cacheFichaTecnica,
+            @Value("${app.reportes.lote.max-pacientes:500}") int maxPacientesLote,
+            ExportadorListadoPacientes exportadorListado,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.pacientes.paginacion.limite-defecto:50}") int limitePorDefecto,
+            @Value("${app.pacientes.paginacion.limite-maximo:200}") int limiteMaximo,
+            ObjectMapper objectMapper,
+            @Value("${app.pacientes.exportar.fetch-size:500}") int fetchSizeExportacion,
+            @Value("${app.pacientes.exportar.registros-por-lote:1000}") int registrosPorLoteExportacion,
+            IndiceNombresPacientes indiceNombres,
+            IGeneradorNroPaciente generadorNroPaciente,
+            LectorImportacionPacientes lectorImportacion,
+            @Value("${app.pacientes.importar.tamano-lote:500}") int tamanoLoteImportacion,
+            @Value("${app.pacientes.estado.max-ids:10000}") int maxIdsCambioEstado) {
         this.pacienteRepository = pacienteRepository;
         this.generoRepository = generoRepository;
         this.tipoSangreRepository = tipoSangreRepository;
         this.reporteUtils = reporteUtils;
+        this.cacheFichaTecnica = cacheFichaTecnica;
+        this.maxPacientesLote = maxPacientesLote;
+        this.exportadorListado = exportadorListado;
+        this.limitePorDefecto = limitePorDefecto;
+        this.limiteMaximo = limiteMaximo;
+        this.fetchSizeExportacion = fetchSizeExportacion;
+        this.registrosPorLoteExportacion = registrosPorLoteExportacion;
+        this.indiceNombres = indiceNombres;
+        this.generadorNroPaciente = generadorNroPaciente;
+        this.objectMapper = objectMapper;
+        this.lectorImportacion = lectorImportacion;
+        this.maxIdsCambioEstado = maxIdsCambioEstado;
+
+        // las consultas de duplicados del lote usan IN, que en Oracle acepta hasta 1000 valores
+        this.tamanoLoteImportacion = Math.max(1, Math.min(tamanoLoteImportacion, 1000));
+
+        // en NDJSON cada registro debe quedar en una sola línea
+        this.writerNdjson = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+        // transacción de solo lectura para recorrer el cursor del listado
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+
+        // transacción para los registros que deben quedar completos o no quedar
+        this.transaccion = new TransactionTemplate(transactionManager);
     }
 
     // registramos un paciente
     @Override
     public Command<Paciente> createPacienteCommand(Paciente paciente) {
-        return new CreatePacienteCommandImpl(paciente, pacienteRepository, generoRepository, tipoSangreRepository);
+        return new CreatePacienteCommandImpl(paciente, pacienteRepository, generoRepository, tipoSangreRepository, indiceNombres, transaccion, generadorNroPaciente);
+    }
+
+    // registramos pacientes en forma masiva
+    @Override
+    public Command<StreamingResponseBody> importarPacientesCommand(InputStream entrada, String formato) {
+        return new ImportPacientesCommandImpl(entrada, formato, lectorImportacion, pacienteRepository, generoRepository,
+                tipoSangreRepository, indiceNombres, generadorNroPaciente, transaccion, objectMapper, tamanoLoteImportacion);
     }
 
     // actualizamos un paciente existente
     @Override
-    public Command<Paciente> updatePacienteCommand(Long id, Paciente paciente) {
-        return new UpdatePacienteCommandImpl(id, paciente, pacienteRepository, generoRepository, tipoSangreRepository);
+    public Command<Paciente> updatePacienteCommand(Long id, Paciente paciente, Long versionEsperada) {
+        return new UpdatePacienteCommandImpl(id, paciente, versionEsperada, pacienteRepository, generoRepository, tipoSangreRepository, cacheFichaTecnica, indiceNombres);
+    }
+
+    // modificamos solo los campos enviados de un paciente (JSON Merge Patch)
+    @Override
+    public Command<Long> patchPacienteCommand(Long id, JsonNode patch, Long versionEsperada) {
+        return new PatchPacienteCommandImpl(id, patch, versionEsperada, pacienteRepository, generoRepository, tipoSangreRepository,
+                cacheFichaTecnica, indiceNombres, transaccion);
+    }
+
+    // listamos los pacientes registrados de a una página (el límite se acota al máximo configurado)
+    @Override
+    public Command<PaginaDTO<Paciente>> obtenerPaginaPacientes(String cursor, Integer limite) {
+        return new ListPacienteCommandImpl(cursor, tamanoPagina(limite), pacienteRepository);
+    }
+
+    // listamos el resumen de los pacientes (proyección, sin entidades) de a una página
+    @Override
+    public Command<PaginaDTO<PacienteDTO>> obtenerPaginaResumenPacientes(String cursor, Integer limite) {
+        return new ListPacienteResumenCommandImpl(cursor, tamanoPagina(limite), pacienteRepository);
+    }
+
+    // buscamos pacientes por varios filtros de a una página
+    @Override
+    public Command<PaginaDTO<Paciente>> buscarPacientes(BusquedaPacienteDTO filtro, String cursor, Integer limite) {
+        return new SearchPacienteCommandImpl(filtro, cursor, tamanoPagina(limite), pacienteRepository);
     }
 
-    // listamos todos los pacientes registrados
+    // sugerimos pacientes por nombre desde el índice en memoria (autocompletado)
     @Override
-    public Command<List<Paciente>> obtenerTodosLosPacientes() {
-        return new ListPacienteCommandImpl(pacienteRepository);
+    public Command<List<SugerenciaPacienteDTO>> sugerirPacientes(String texto, Integer limite) {
+        return new SuggestPacienteCommandImpl(texto, limite == null ? 10 : limite, indiceNombres);
     }
 
     // listamos por el id de un paciente
@@ -63,15 +181,61 @@ public class PacienteCommandFactoryImpl implements PacienteCommandFactory {
         return new ListIdPacienteCommandImpl(id, pacienteRepository);
     }
 
+    // versión de un paciente activo para revalidar su ETag
+    @Override
+    public Command<Optional<Long>> versionPacienteCommand(Long id) {
+        return new VersionPacienteCommandImpl(id, pacienteRepository);
+    }
+
     // eliminamos a un paciente (soft delete)
     @Override
     public Command<Void> eliminarPacienteCommand(Long id) {
-        return new DeletePacienteCommandImpl(id, pacienteRepository);
+        return new DeletePacienteCommandImpl(id, pacienteRepository, cacheFichaTecnica, indiceNombres);
+    }
+
+    // eliminamos o reactivamos varios pacientes con un UPDATE por grupo de ids
+    @Override
+    public Command<ResultadoEstadoPacientesDTO> cambiarEstadoPacientesCommand(List<Long> ids, boolean activo) {
+        return new UpdateEstadoPacientesCommandImpl(ids, activo, maxIdsCambioEstado, pacienteRepository, cacheFichaTecnica, indiceNombres, transaccion);
     }
 
+    // generamos la ficha técnica en PDF de un paciente (o la servimos desde el cache)
     @Override
-    public Command<byte[]> generarFichaTecnicaPDFCommand(Long id) {
-        return new GenerateFichaTecnicaPdfCommandImpl(id, reporteUtils);
+    public Command<StreamingResponseBody> generarFichaTecnicaPDFCommand(Paciente paciente, long epoca) {
+        return new GenerateFichaTecnicaPdfCommandImpl(paciente, epoca, false, reporteUtils, cacheFichaTecnica);
+    }
+
+    // la ficha técnica de un job se llena en el hilo del job, no en el pool de reportes
+    @Override
+    public Command<StreamingResponseBody> generarFichaTecnicaPDFJobCommand(Paciente paciente, long epoca) {
+        return new GenerateFichaTecnicaPdfCommandImpl(paciente, epoca, true, reporteUtils, cacheFichaTecnica);
+    }
+
+    // generamos las fichas técnicas de varios pacientes (PDF unido o ZIP)
+    @Override
+    public Command<ResultadoFichaTecnicaLoteDTO> generarFichasTecnicasLoteCommand(FichaTecnicaLoteDTO solicitud) {
+        return new GenerateFichaTecnicaLoteCommandImpl(solicitud, maxPacientesLote, pacienteRepository, reporteUtils);
+    }
+
+    // exportamos el listado de pacientes en CSV o XLSX
+    @Override
+    public Command<StreamingResponseBody> exportarListadoPacientesCommand(String formato) {
+        return new ExportListadoPacientesCommandImpl(formato, pacienteRepository, transaccionLectura, exportadorListado);
+    }
+
+    // exportamos todos los pacientes en NDJSON para la sincronización de otros sistemas
+    @Override
+    public Command<StreamingResponseBody> exportarPacientesNdjsonCommand() {
+        return new ExportPacientesNdjsonCommandImpl(pacienteRepository, transaccionLectura, writerNdjson,
+                fetchSizeExportacion, registrosPorLoteExportacion);
+    }
+
+    // el límite se acota al máximo configurado
+    private int tamanoPagina(Integer limite) {
+        if (limite != null && limite < 1) {
+            throw new ValidationException("El límite de la página debe ser mayor a 0");
+        }
+
+        return limite == null ? limitePorDefecto : Math.min(limite, limiteMaximo);
     }
-    
 }
@@ -1,44 +1,72 @@
 package cl.grupobios.fichatecnica.command.impl.paciente;
 
+import java.util.List;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
 import cl.grupobios.fichatecnica.command.Command;
-import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
+import cl.grupobios.fichatecnica.exceptions.BusinessException;
 import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
-import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
 import cl.grupobios.fichatecnica.models.Paciente;
-import cl.grupobios.fichatecnica.models.TipoSangre;
 import cl.grupobios.fichatecnica.repositories.IGeneroRepository;
 import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
 import cl.grupobios.fichatecnica.repositories.ITipoSangreRepository;
-import cl.grupobios.fichatecnica.utils.GeneratorCodigo;
-import jakarta.validation.ValidationException;
+import cl.grupobios.fichatecnica.utils.IGeneradorNroPaciente;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
 
 public class CreatePacienteCommandImpl implements Command<Paciente> {
+    // largos de las columnas de la tabla pacientes
+    private static final int LARGO_NOMBRE = 35;
+    private static final int LARGO_RUT = 12;
+    private static final int LARGO_CORREO = 100;
+
     private final Paciente paciente;
     private IPacienteRepository pacienteRepository;
     private IGeneroRepository generoRepository;
     private ITipoSangreRepository tipoSangreRepository;
+    private final IndiceNombresPacientes indiceNombres;
+    private final TransactionTemplate transaccion;
+    private final IGeneradorNroPaciente generadorNroPaciente;
 
-    public CreatePacienteCommandImpl(Paciente paciente, IPacienteRepository pacienteRepository, IGeneroRepository generoRepository, ITipoSangreRepository tipoSangreRepository){
+    public CreatePacienteCommandImpl(Paciente paciente, IPacienteRepository pacienteRepository, IGeneroRepository generoRepository, ITipoSangreRepository tipoSangreRepository, IndiceNombresPacientes indiceNombres, TransactionTemplate transaccion, IGeneradorNroPaciente generadorNroPaciente){
         this.paciente = paciente;
         this.pacienteRepository = pacienteRepository;
         this.generoRepository = generoRepository;
         this.tipoSangreRepository = tipoSangreRepository;
+        this.indiceNombres = indiceNombres;
+        this.transaccion = transaccion;
+        this.generadorNroPaciente = generadorNroPaciente;
     }
 
-
+    /*
+     * El registro corre en una sola transacción: el genero sale del cache de segundo nivel y el tipo de sangre también
+     * cuando este nodo lo creó hace poco (lo normal, se crea justo antes del paciente); si no, se lee por su llave primaria.
+     * Los duplicados de RUT, correo y número de paciente los rechazan las restricciones únicas de la tabla
+     * y recién ahí se consulta cuál dato estaba repetido para informarlo
+    */
     @Override
     public Paciente execute() {
+        validatePaciente();
+
+        Paciente pacienteGuardado;
         try {
-            validatePaciente();
-            handlerExistePaciente();
-            processGenero();
-            processTipoSangre();
-            generarNumeroPaciente();
-
-            return savePaciente();
-        } catch (Exception e) {
-            throw new ValidationException("Error al cargar los datos: " + e.getMessage());
+            pacienteGuardado = transaccion.execute(estado -> {
+                processReferencias();
+                generarNumeroPaciente();
+
+                return pacienteRepository.saveAndFlush(paciente);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw traducirViolacion(e);
         }
+
+        // el autocompletado lo encuentra desde ya
+        indiceNombres.actualizar(pacienteGuardado.getId(), pacienteGuardado.getNombrePaciente(), pacienteGuardado.isActivo());
+
+        return pacienteGuardado;
     }
 
     // validamos los datos del paciente
@@ -47,72 +75,88 @@ public class CreatePacienteCommandImpl implements Command<Paciente> {
             throw new ValidationException("El nombre del paciente es requerido");
         }
 
+        if(paciente.getNombrePaciente().length() > LARGO_NOMBRE) {
+            throw new ValidationException("El nombre del paciente no puede superar los " + LARGO_NOMBRE + " caracteres");
+        }
+
         if(paciente.getRutPaciente() == null || paciente.getRutPaciente().trim().isEmpty()){
             throw new ValidationException("El RUT del paciente es requerido");
         }
 
+        if(paciente.getRutPaciente().length() > LARGO_RUT) {
+            throw new ValidationException("El RUT del paciente no puede superar los " + LARGO_RUT + " caracteres");
+        }
+
+        // se guarda en una sola forma (12345678-K) para que la restricción única compare RUT con y sin puntos
+        if(!ValidadorPaciente.rutValido(paciente.getRutPaciente())) {
+            throw new ValidationException("RUT inválido: " + paciente.getRutPaciente());
+        }
+        paciente.setRutPaciente(ValidadorPaciente.normalizarRut(paciente.getRutPaciente()));
+
         if(paciente.getCorreoPaciente() == null || paciente.getCorreoPaciente().trim().isEmpty()){
             throw new ValidationException("El correo del paciente es requerido");
         }
-    }
 
-    // creamos un handler para verificar que el paciente existe
-    private void handlerExistePaciente() {
-        if(paciente.getId()  != null && paciente.getId() != 0) {
-            Paciente pacienteExistente = pacienteRepository.findById(paciente.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Paciente no encontrado"));
+        if(paciente.getCorreoPaciente().length() > LARGO_CORREO) {
+            throw new ValidationException("El correo del paciente no puede superar los " + LARGO_CORREO + " caracteres");
+        }
+
+        // mismo formato que exigen la importación masiva y el PATCH
+        if(!ValidadorPaciente.correoValido(paciente.getCorreoPaciente())) {
+            throw new ValidationException("Correo inválido: " + paciente.getCorreoPaciente());
+        }
 
-            paciente.setActivo(pacienteExistente.isActivo());
+        if(paciente.getFechaNacimiento() == null) {
+            throw new ValidationException("La fecha de nacimiento del paciente es requerida");
         }
-    }
-    
-    /*
-     * Procesamos el genero del paciente, la buscamos por id
-     * para verificar que existe antes de agregarlo al registro de pacientes
-     * asi mismo lo realizamos con el tipo de sangre
-    */
-   private void processGenero(){
-        if(paciente.getGenero() != null && paciente.getGenero().getId() != null) {
-            Genero generos = generoRepository.findById(paciente.getGenero().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Genero no encontrado"));
 
-            paciente.setGenero(generos);
+        if(paciente.getGenero() == null || paciente.getGenero().getId() == null) {
+            throw new ValidationException("El genero del paciente es requerido");
         }
-   }
-
-   private void processTipoSangre(){
-        if(paciente.getTipoSangre() != null && paciente.getTipoSangre().getId() != null) {
-            TipoSangre tipoSangre = tipoSangreRepository.findById(paciente.getTipoSangre().getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Tipo de sangre no encontrado"));
-            
-            paciente.setTipoSangre(tipoSangre);
+
+        if(paciente.getTipoSangre() == null || paciente.getTipoSangre().getId() == null) {
+            throw new ValidationException("El tipo de sangre del paciente es requerido");
         }
-   }
 
-   // Método para generar número de paciente único
-   private void generarNumeroPaciente() {
-        String numeroPaciente;
-        boolean existe;
+        // registrar siempre crea un paciente nuevo y activo, para modificar uno existente está update
+        paciente.setId(null);
+        paciente.setActivo(true);
+    }
 
-        do {
-            // generamos el numero de paciente aleatorio
-            numeroPaciente = GeneratorCodigo.generarCodigoAleatorio();
+    /*
+     * Verificamos que el genero y el tipo de sangre existen antes de agregarlos al registro del paciente.
+     * findById los busca primero en el cache de segundo nivel y solo consulta por llave primaria los que no estén
+    */
+    private void processReferencias() {
+        paciente.setGenero(generoRepository.findById(paciente.getGenero().getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Genero no encontrado")));
 
-            // verificamos si el numero existe en la base de datos
-            existe = pacienteRepository.existsByNroPaciente(numeroPaciente);
+        paciente.setTipoSangre(tipoSangreRepository.findById(paciente.getTipoSangre().getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Tipo de sangre no encontrado")));
+    }
 
-        } while(existe); // repetimos hasta generar un número único
+    // el número de paciente es único por construcción, no se consulta antes
+    private void generarNumeroPaciente() {
+        paciente.setNroPaciente(generadorNroPaciente.generar());
+    }
 
-        paciente.setNroPaciente(numeroPaciente);
-   }
+    /*
+     * La transacción ya se revirtió cuando llegamos aquí, así las consultas para saber
+     * qué dato estaba repetido corren en una sesión limpia.
+     * Los datos requeridos y los largos ya se validaron, otra restricción que falle es un error del servidor
+    */
+    private RuntimeException traducirViolacion(DataIntegrityViolationException e) {
+        String duplicado = pacienteRepository.describirDuplicado(paciente);
 
+        if (duplicado != null) {
+            return new BusinessException(duplicado);
+        }
 
-   // guardamos los datos al registrar un paciente
-   private Paciente savePaciente(){
-        try {
-            return pacienteRepository.save(paciente);
-        } catch (Exception e) {
-            throw new ConcurrencyException("El paciente fue modificado por otra transacción");
+        // el tipo de sangre es uno a uno con el paciente
+        if (!pacienteRepository.findTiposSangreAsignados(List.of(paciente.getTipoSangre().getId())).isEmpty()) {
+            return new BusinessException("El tipo de sangre ya está asignado a otro paciente");
         }
-   }
+
+        return e;
+    }
 }
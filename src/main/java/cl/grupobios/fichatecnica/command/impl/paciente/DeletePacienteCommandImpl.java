@@ -1,17 +1,24 @@
 package cl.grupobios.fichatecnica.command.impl.paciente;
 
+import java.util.List;
+
 import cl.grupobios.fichatecnica.command.Command;
 import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
-import cl.grupobios.fichatecnica.models.Paciente;
 import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
 
 public class DeletePacienteCommandImpl implements Command<Void>{
     private final Long id;
     private final IPacienteRepository pacienteRepository;
+    private final CacheFichaTecnicaPdf cacheFichaTecnica;
+    private final IndiceNombresPacientes indiceNombres;
 
-    public DeletePacienteCommandImpl(Long id, IPacienteRepository pacienteRepository) {
+    public DeletePacienteCommandImpl(Long id, IPacienteRepository pacienteRepository, CacheFichaTecnicaPdf cacheFichaTecnica, IndiceNombresPacientes indiceNombres) {
         this.id = id;
         this.pacienteRepository = pacienteRepository;
+        this.cacheFichaTecnica = cacheFichaTecnica;
+        this.indiceNombres = indiceNombres;
     }
 
 
@@ -21,12 +28,17 @@ public class DeletePacienteCommandImpl implements Command<Void>{
             throw new IllegalArgumentException("ID de paciente inválido");
         }
 
-        Paciente pacienteExistente = pacienteRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Paciente no se encontro con el ID: " + id));
+        // Soft delete: cambiamos el estado activo a false con un UPDATE directo, sin cargar al paciente.
+        // Si no cambió ninguna fila recién se consulta si existe (puede que ya estuviera inactivo)
+        int actualizados = pacienteRepository.actualizarActivo(List.of(id), false);
+        if (actualizados == 0 && !pacienteRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Paciente no se encontro con el ID: " + id);
+        }
 
-        // Soft delete: cambiamos el estado actvo a false
-        pacienteExistente.setActivo(false);
-        pacienteRepository.save(pacienteExistente);
+        // la ficha técnica cacheada ya no es válida
+        cacheFichaTecnica.invalidar(id);
+        // ni aparece en el autocompletado
+        indiceNombres.quitar(id);
 
         return null;
     }
@@ -0,0 +1,45 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.util.stream.Stream;
+
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.utils.ExportadorListadoPacientes;
+
+public class ExportListadoPacientesCommandImpl implements Command<StreamingResponseBody> {
+
+    private final String formato;
+    private final IPacienteRepository pacienteRepository;
+    private final TransactionTemplate transaccionLectura;
+    private final ExportadorListadoPacientes exportador;
+
+    public ExportListadoPacientesCommandImpl(String formato, IPacienteRepository pacienteRepository,
+            TransactionTemplate transaccionLectura, ExportadorListadoPacientes exportador) {
+        this.formato = formato;
+        this.pacienteRepository = pacienteRepository;
+        this.transaccionLectura = transaccionLectura;
+        this.exportador = exportador;
+    }
+
+    /*
+     * El cursor se abre recién cuando se escribe la respuesta, dentro de una transacción de solo lectura
+     * que dura lo que demore la descarga
+    */
+    @Override
+    public StreamingResponseBody execute() {
+        if (!"csv".equalsIgnoreCase(formato) && !"xlsx".equalsIgnoreCase(formato)) {
+            throw new ValidationException("Formato no soportado: " + formato + " (use csv o xlsx)");
+        }
+
+        return salida -> transaccionLectura.executeWithoutResult(estado -> {
+            try (Stream<PacienteDTO> pacientes = pacienteRepository.streamListadoPacientes()) {
+                exportador.escribir(formato, pacientes, salida);
+            }
+        });
+    }
+}
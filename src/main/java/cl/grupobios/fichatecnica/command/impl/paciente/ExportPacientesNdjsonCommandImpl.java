@@ -0,0 +1,61 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+
+public class ExportPacientesNdjsonCommandImpl implements Command<StreamingResponseBody> {
+
+    private final IPacienteRepository pacienteRepository;
+    private final TransactionTemplate transaccionLectura;
+    private final ObjectWriter writer;
+    private final int fetchSize;
+    private final int registrosPorLote;
+
+    public ExportPacientesNdjsonCommandImpl(IPacienteRepository pacienteRepository, TransactionTemplate transaccionLectura,
+            ObjectWriter writer, int fetchSize, int registrosPorLote) {
+        this.pacienteRepository = pacienteRepository;
+        this.transaccionLectura = transaccionLectura;
+        this.writer = writer;
+        this.fetchSize = fetchSize;
+        this.registrosPorLote = registrosPorLote;
+    }
+
+    /*
+     * Un paciente JSON por línea, escrito a medida que se lee del cursor. El primer registro se envía
+     * de inmediato y después se hace flush por lote (el mismo en que se limpia el contexto de persistencia),
+     * así no se genera un chunk HTTP por cada fila
+    */
+    @Override
+    public StreamingResponseBody execute() {
+        return salida -> transaccionLectura.executeWithoutResult(estado -> {
+            try (Stream<Paciente> pacientes = pacienteRepository.streamPacientesConRelaciones(fetchSize, registrosPorLote)) {
+                long escritos = 0;
+                Iterator<Paciente> iterador = pacientes.iterator();
+
+                while (iterador.hasNext()) {
+                    salida.write(writer.writeValueAsBytes(iterador.next()));
+                    salida.write('\n');
+
+                    if (++escritos == 1 || escritos % registrosPorLote == 0) {
+                        salida.flush();
+                    }
+                }
+
+                salida.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al exportar los pacientes en NDJSON: " + e.getMessage(), e);
+            }
+        });
+    }
+}
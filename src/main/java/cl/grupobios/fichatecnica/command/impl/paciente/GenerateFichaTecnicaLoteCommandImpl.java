@@ -0,0 +1,116 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.FichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoFichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.utils.ReporteUtils;
+
+public class GenerateFichaTecnicaLoteCommandImpl implements Command<ResultadoFichaTecnicaLoteDTO> {
+
+    private final FichaTecnicaLoteDTO solicitud;
+    private final int maxPacientes;
+    private final IPacienteRepository pacienteRepository;
+    private final ReporteUtils reporteUtils;
+
+    // ids pedidos que no existen o están inactivos
+    private final List<Long> noEncontrados = new ArrayList<>();
+
+    public GenerateFichaTecnicaLoteCommandImpl(FichaTecnicaLoteDTO solicitud, int maxPacientes, IPacienteRepository pacienteRepository, ReporteUtils reporteUtils) {
+        this.solicitud = solicitud;
+        this.maxPacientes = maxPacientes;
+        this.pacienteRepository = pacienteRepository;
+        this.reporteUtils = reporteUtils;
+    }
+
+    /*
+     * Buscamos a los pacientes antes de responder (así un lote inválido devuelve 400/404 y un pool saturado 503)
+     * y retornamos el cuerpo que escribe el PDF o ZIP directamente en la respuesta, junto con los ids no encontrados
+    */
+    @Override
+    public ResultadoFichaTecnicaLoteDTO execute() {
+        List<Paciente> pacientes = buscarPacientes();
+
+        if (pacientes.isEmpty()) {
+            throw new ResourceNotFoundException("No se encontraron pacientes para el lote solicitado");
+        }
+
+        // si el pool de reportes no tiene espacio respondemos 503 antes de empezar a escribir
+        reporteUtils.verificarCapacidad();
+
+        StreamingResponseBody cuerpo = solicitud.isZip()
+                ? salida -> reporteUtils.exportarFichasTecnicasZip(pacientes, salida)
+                : salida -> reporteUtils.exportarFichasTecnicasPdf(pacientes, salida);
+
+        return new ResultadoFichaTecnicaLoteDTO(cuerpo, List.copyOf(noEncontrados));
+    }
+
+    private List<Paciente> buscarPacientes() {
+        if (solicitud == null) {
+            throw new ValidationException("La solicitud del lote es requerida");
+        }
+
+        if (!solicitud.isFormatoValido()) {
+            throw new ValidationException("Formato de lote inválido, use pdf o zip: " + solicitud.getFormato());
+        }
+
+        List<Long> ids = solicitud.getIds();
+
+        if (ids != null && !ids.isEmpty()) {
+            if (ids.size() > maxPacientes) {
+                throw new ValidationException("El lote no puede superar los " + maxPacientes + " pacientes");
+            }
+
+            if (ids.stream().anyMatch(Objects::isNull)) {
+                throw new ValidationException("Los ids del lote no pueden ser nulos");
+            }
+
+            return enOrdenSolicitado(ids, pacienteRepository.findAllWithRelationsByIdIn(ids));
+        }
+
+        if (solicitud.getGeneroId() == null && solicitud.getTipoSangreId() == null) {
+            throw new ValidationException("Debe indicar una lista de ids o un filtro por genero y/o tipo de sangre");
+        }
+
+        // pedimos uno más del máximo para saber si el filtro se pasa del límite
+        List<Paciente> pacientes = pacienteRepository.findAllWithRelationsByFiltro(
+                solicitud.getGeneroId(), solicitud.getTipoSangreId(), Limit.of(maxPacientes + 1));
+
+        if (pacientes.size() > maxPacientes) {
+            throw new ValidationException("El filtro supera el máximo de " + maxPacientes + " pacientes por lote");
+        }
+
+        return pacientes;
+    }
+
+    // la consulta los entrega por id: se dejan en el orden pedido (sin repetir) y se anotan los que faltan
+    private List<Paciente> enOrdenSolicitado(List<Long> ids, List<Paciente> encontrados) {
+        Map<Long, Paciente> porId = encontrados.stream().collect(Collectors.toMap(Paciente::getId, Function.identity()));
+
+        List<Paciente> pacientes = new ArrayList<>(porId.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Paciente paciente = porId.get(id);
+            if (paciente != null) {
+                pacientes.add(paciente);
+            } else {
+                noEncontrados.add(id);
+            }
+        }
+
+        return pacientes;
+    }
+}
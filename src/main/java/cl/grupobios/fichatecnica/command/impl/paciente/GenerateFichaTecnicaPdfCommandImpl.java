@@ -1,26 +1,80 @@
 package cl.grupobios.fichatecnica.command.impl.paciente;
 
+import java.util.concurrent.Future;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
 import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
 import cl.grupobios.fichatecnica.utils.ReporteUtils;
+import net.sf.jasperreports.engine.JasperPrint;
 
-public class GenerateFichaTecnicaPdfCommandImpl implements Command<byte[]>{
+public class GenerateFichaTecnicaPdfCommandImpl implements Command<StreamingResponseBody>{
 
-    private final Long idPaciente;
+    private final Paciente paciente;
+    private final long epoca;
+    private final boolean enSegundoPlano;
     private final ReporteUtils reporteUtils;
+    private final CacheFichaTecnicaPdf cacheFichaTecnica;
 
-    public GenerateFichaTecnicaPdfCommandImpl(Long idPaciente, ReporteUtils reporteUtils) {
-        this.idPaciente = idPaciente;
+    /*
+     * La época del cache se debe leer antes de cargar al paciente: si se modificó entre medio,
+     * la ficha generada con los datos anteriores no se publica en el cache.
+     * En segundo plano el cuerpo lo ejecuta un job, que ya corre en su propio pool acotado: la ficha se llena
+     * en el mismo hilo del job al escribirla, sin encolar nada en el pool de reportes antes de tener el job
+    */
+    public GenerateFichaTecnicaPdfCommandImpl(Paciente paciente, long epoca, boolean enSegundoPlano, ReporteUtils reporteUtils,
+            CacheFichaTecnicaPdf cacheFichaTecnica) {
+        this.paciente = paciente;
+        this.epoca = epoca;
+        this.enSegundoPlano = enSegundoPlano;
         this.reporteUtils = reporteUtils;
+        this.cacheFichaTecnica = cacheFichaTecnica;
     }
 
     @Override
-    public byte[] execute() {
-        if (idPaciente == null || idPaciente <= 0) {
-            throw new IllegalArgumentException("ID de paciente inválido: " + idPaciente);
+    public StreamingResponseBody execute() {
+        if (paciente == null || paciente.getId() == null || paciente.getId() <= 0) {
+            throw new IllegalArgumentException("Paciente inválido para generar la ficha técnica");
         }
 
-        // Usamos directamente tu ReporteUtils existente
-        return reporteUtils.generarFichaTecnicaPaciente(idPaciente);
+        Long idPaciente = paciente.getId();
+
+        if (enSegundoPlano) {
+            return salida -> {
+                if (cacheFichaTecnica.transferir(idPaciente, salida)) {
+                    return;
+                }
+
+                try (CacheFichaTecnicaPdf.Escritura escritura = cacheFichaTecnica.abrirEscritura(idPaciente, epoca, salida)) {
+                    reporteUtils.exportarFichaTecnicaPdf(paciente, escritura);
+                    escritura.completar();
+                }
+            };
+        }
+
+        // si no está en cache encolamos el llenado antes de responder, así un pool saturado devuelve 503
+        // y no una descarga cortada
+        Future<JasperPrint> llenado = cacheFichaTecnica.contiene(idPaciente)
+                ? null
+                : reporteUtils.llenarFichaTecnicaEnPool(paciente);
+
+        return salida -> {
+            if (llenado == null && cacheFichaTecnica.transferir(idPaciente, salida)) {
+                return;
+            }
+
+            // si la ficha alcanzó a invalidarse entre medio la llenamos ahora
+            Future<JasperPrint> pendiente = llenado != null ? llenado : reporteUtils.llenarFichaTecnicaEnPool(paciente);
+
+            // el PDF se escribe a la respuesta y al archivo del cache a medida que se exporta,
+            // sin tener el documento completo en memoria
+            try (CacheFichaTecnicaPdf.Escritura escritura = cacheFichaTecnica.abrirEscritura(idPaciente, epoca, salida)) {
+                reporteUtils.exportarFichaTecnicaPdf(pendiente, escritura);
+                escritura.completar();
+            }
+        };
     }
     
 }
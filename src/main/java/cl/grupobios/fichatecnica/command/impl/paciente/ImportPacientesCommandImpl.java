@@ -0,0 +1,326 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.FilaImportacionPacienteDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoImportacionDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.repositories.IGeneroRepository;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.repositories.ITipoSangreRepository;
+import cl.grupobios.fichatecnica.utils.IGeneradorNroPaciente;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+import cl.grupobios.fichatecnica.utils.LectorImportacionPacientes;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
+
+public class ImportPacientesCommandImpl implements Command<StreamingResponseBody> {
+
+    private final InputStream entrada;
+    private final String formato;
+    private final LectorImportacionPacientes lector;
+    private final IPacienteRepository pacienteRepository;
+    private final IGeneroRepository generoRepository;
+    private final ITipoSangreRepository tipoSangreRepository;
+    private final IndiceNombresPacientes indiceNombres;
+    private final IGeneradorNroPaciente generadorNroPaciente;
+    private final TransactionTemplate transaccion;
+    private final ObjectMapper objectMapper;
+    private final int tamanoLote;
+
+    public ImportPacientesCommandImpl(InputStream entrada, String formato, LectorImportacionPacientes lector,
+            IPacienteRepository pacienteRepository, IGeneroRepository generoRepository, ITipoSangreRepository tipoSangreRepository,
+            IndiceNombresPacientes indiceNombres, IGeneradorNroPaciente generadorNroPaciente, TransactionTemplate transaccion,
+            ObjectMapper objectMapper, int tamanoLote) {
+        this.entrada = entrada;
+        this.formato = formato;
+        this.lector = lector;
+        this.pacienteRepository = pacienteRepository;
+        this.generoRepository = generoRepository;
+        this.tipoSangreRepository = tipoSangreRepository;
+        this.indiceNombres = indiceNombres;
+        this.generadorNroPaciente = generadorNroPaciente;
+        this.transaccion = transaccion;
+        this.objectMapper = objectMapper;
+        this.tamanoLote = tamanoLote;
+    }
+
+    /*
+     * Las filas se procesan por lotes a medida que se leen: en memoria queda un lote de filas y nada más,
+     * y el reporte de cada lote se escribe apenas se confirma su transacción.
+     * Por lote: validación de formato en paralelo, una consulta por campo único y por referencia (no una por fila)
+     * e inserts en lotes JDBC. Cada lote se confirma por separado, así un duplicado entre lotes lo encuentran
+     * las consultas del lote siguiente.
+     *
+     * El reporte es un JSON: {"filas": [{"fila": 1, "estado": "CREADO", ...}, ...], "total": ..., "creados": ..., "rechazados": ...}
+     * Si el archivo se corta o viene mal formado a mitad de camino, o falla la base de datos, lo ya registrado se mantiene
+     * y el reporte termina con "error"
+    */
+    @Override
+    public StreamingResponseBody execute() {
+        // el formato y el encabezado se revisan antes de responder, así un archivo inválido es un 400
+        Iterator<FilaImportacionPacienteDTO> filas;
+        try {
+            filas = lector.leer(entrada, formato);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer la importación de pacientes: " + e.getMessage(), e);
+        }
+
+        return salida -> {
+            long inicio = System.nanoTime();
+            long total = 0;
+            long creados = 0;
+            String error = null;
+
+            JsonGenerator json = objectMapper.getFactory().createGenerator(salida);
+            json.writeStartObject();
+            json.writeArrayFieldStart("filas");
+
+            try {
+                List<FilaImportacionPacienteDTO> lote = new ArrayList<>(tamanoLote);
+                while (filas.hasNext()) {
+                    lote.add(filas.next());
+
+                    if (lote.size() == tamanoLote || !filas.hasNext()) {
+                        for (ResultadoImportacionDTO resultado : procesarLote(lote)) {
+                            objectMapper.writeValue(json, resultado);
+                            if (ResultadoImportacionDTO.CREADO.equals(resultado.getEstado())) {
+                                creados++;
+                            }
+                        }
+                        total += lote.size();
+                        lote.clear();
+                        json.flush();
+                    }
+                }
+            } catch (ValidationException | UncheckedIOException e) {
+                error = e.getMessage();
+            } catch (RuntimeException e) {
+                // la respuesta ya empezó: un error de la base de datos se informa al cerrar el reporte en vez de cortar el JSON
+                error = "Error al registrar los pacientes: " + e.getMessage();
+            }
+
+            json.writeEndArray();
+            json.writeNumberField("total", total);
+            json.writeNumberField("creados", creados);
+            json.writeNumberField("rechazados", total - creados);
+            if (error != null) {
+                json.writeStringField("error", error);
+            }
+            json.writeEndObject();
+            json.flush();
+
+            System.out.println("Importación de pacientes: " + creados + " de " + total + " registrados en "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms" + (error != null ? " (" + error + ")" : ""));
+        };
+    }
+
+    private List<ResultadoImportacionDTO> procesarLote(List<FilaImportacionPacienteDTO> lote) {
+        // el formato no depende de la base de datos ni de las otras filas, se valida en paralelo (pool común de ForkJoin)
+        LocalDate hoy = LocalDate.now();
+        lote.parallelStream().forEach(fila -> validarFormato(fila, hoy));
+
+        marcarRepetidosEnLote(lote);
+
+        List<FilaImportacionPacienteDTO> pendientes = lote.stream().filter(FilaImportacionPacienteDTO::isValida).toList();
+        Map<Long, Paciente> registrados = new HashMap<>();
+
+        if (!pendientes.isEmpty()) {
+            try {
+                registrados.putAll(transaccion.execute(estado -> registrarLote(pendientes)));
+            } catch (DataIntegrityViolationException e) {
+                // otra petición registró uno de estos datos entre la revisión y el insert: se reintenta fila por fila
+                // para saber cuál fue, cada una en su transacción
+                registrados.putAll(registrarDeAUno(pendientes));
+            }
+        }
+
+        List<ResultadoImportacionDTO> resultados = new ArrayList<>(lote.size());
+        for (FilaImportacionPacienteDTO fila : lote) {
+            Paciente paciente = registrados.get(fila.getFila());
+            if (paciente != null) {
+                // el autocompletado los encuentra desde ya
+                indiceNombres.actualizar(paciente.getId(), paciente.getNombrePaciente(), true);
+                resultados.add(ResultadoImportacionDTO.creado(fila.getFila(), paciente.getId(), paciente.getNroPaciente()));
+            } else {
+                resultados.add(ResultadoImportacionDTO.rechazado(fila.getFila(), fila.getErrores()));
+            }
+        }
+        return resultados;
+    }
+
+    // validaciones que solo miran la fila; los largos son los de las columnas de la tabla pacientes
+    private void validarFormato(FilaImportacionPacienteDTO fila, LocalDate hoy) {
+        if (fila.getNombrePaciente() == null) {
+            fila.agregarError("El nombre del paciente es requerido");
+        } else if (fila.getNombrePaciente().length() > 35) {
+            fila.agregarError("El nombre del paciente no puede superar los 35 caracteres");
+        }
+
+        if (fila.getRutPaciente() == null) {
+            fila.agregarError("El RUT del paciente es requerido");
+        } else if (!ValidadorPaciente.rutValido(fila.getRutPaciente())) {
+            fila.agregarError("RUT inválido: " + fila.getRutPaciente());
+        } else {
+            fila.setRutPaciente(ValidadorPaciente.normalizarRut(fila.getRutPaciente()));
+        }
+
+        if (fila.getCorreoPaciente() == null) {
+            fila.agregarError("El correo del paciente es requerido");
+        } else if (fila.getCorreoPaciente().length() > 100 || !ValidadorPaciente.correoValido(fila.getCorreoPaciente())) {
+            fila.agregarError("Correo inválido: " + fila.getCorreoPaciente());
+        }
+
+        // si el valor venía pero no se pudo convertir, el lector ya dejó el error
+        if (fila.getFechaNacimiento() == null && !tieneError(fila, "Fecha de nacimiento")) {
+            fila.agregarError("La fecha de nacimiento es requerida");
+        } else if (fila.getFechaNacimiento() != null && fila.getFechaNacimiento().isAfter(hoy)) {
+            fila.agregarError("La fecha de nacimiento no puede ser futura");
+        }
+
+        if (fila.getGeneroId() == null && !tieneError(fila, "Id de genero")) {
+            fila.agregarError("El genero del paciente es requerido");
+        }
+
+        if (fila.getTipoSangreId() == null && !tieneError(fila, "Id de tipo de sangre")) {
+            fila.agregarError("El tipo de sangre del paciente es requerido");
+        }
+    }
+
+    private static boolean tieneError(FilaImportacionPacienteDTO fila, String prefijo) {
+        return fila.getErrores().stream().anyMatch(error -> error.startsWith(prefijo));
+    }
+
+    // dentro del lote se queda la primera fila con cada RUT, correo y tipo de sangre (el tipo de sangre es uno a uno)
+    private void marcarRepetidosEnLote(List<FilaImportacionPacienteDTO> lote) {
+        Map<String, Long> ruts = new HashMap<>();
+        Map<String, Long> correos = new HashMap<>();
+        Map<Long, Long> tiposSangre = new HashMap<>();
+
+        for (FilaImportacionPacienteDTO fila : lote) {
+            if (!fila.isValida()) {
+                continue;
+            }
+
+            Long filaRut = ruts.putIfAbsent(fila.getRutPaciente(), fila.getFila());
+            Long filaCorreo = correos.putIfAbsent(fila.getCorreoPaciente(), fila.getFila());
+            Long filaTipoSangre = tiposSangre.putIfAbsent(fila.getTipoSangreId(), fila.getFila());
+
+            if (filaRut != null) {
+                fila.agregarError("RUT repetido en la importación (fila " + filaRut + ")");
+            }
+            if (filaCorreo != null) {
+                fila.agregarError("Correo repetido en la importación (fila " + filaCorreo + ")");
+            }
+            if (filaTipoSangre != null) {
+                fila.agregarError("Tipo de sangre ya asignado en la importación (fila " + filaTipoSangre + ")");
+            }
+        }
+    }
+
+    /*
+     * Revisa los duplicados y las referencias del lote completo (cinco consultas en total) y registra las filas
+     * que pasan. El genero y el tipo de sangre se asignan como referencias sin cargarlos
+    */
+    private Map<Long, Paciente> registrarLote(List<FilaImportacionPacienteDTO> pendientes) {
+        Set<String> rutsRegistrados = pacienteRepository.findRutsRegistrados(
+                pendientes.stream().map(FilaImportacionPacienteDTO::getRutPaciente).collect(Collectors.toSet()));
+        Set<String> correosRegistrados = pacienteRepository.findCorreosRegistrados(
+                pendientes.stream().map(FilaImportacionPacienteDTO::getCorreoPaciente).collect(Collectors.toSet()));
+        Set<Long> idsTipoSangre = pendientes.stream().map(FilaImportacionPacienteDTO::getTipoSangreId).collect(Collectors.toSet());
+        Set<Long> tiposSangreAsignados = pacienteRepository.findTiposSangreAsignados(idsTipoSangre);
+        Set<Long> tiposSangreExistentes = tipoSangreRepository.findIdsExistentes(idsTipoSangre);
+        Set<Long> generosExistentes = generoRepository.findIdsExistentes(
+                pendientes.stream().map(FilaImportacionPacienteDTO::getGeneroId).collect(Collectors.toSet()));
+
+        Map<Long, Paciente> registrados = new HashMap<>();
+        List<Paciente> pacientes = new ArrayList<>(pendientes.size());
+        // los generos son pocos y se repiten en casi todas las filas, se pide una referencia por genero
+        Map<Long, Genero> generos = new HashMap<>();
+
+        for (FilaImportacionPacienteDTO fila : pendientes) {
+            if (rutsRegistrados.contains(fila.getRutPaciente())) {
+                fila.agregarError("Ya existe un paciente con el RUT: " + fila.getRutPaciente());
+            }
+            if (correosRegistrados.contains(fila.getCorreoPaciente())) {
+                fila.agregarError("Ya existe un paciente con el correo: " + fila.getCorreoPaciente());
+            }
+            if (!generosExistentes.contains(fila.getGeneroId())) {
+                fila.agregarError("Genero no encontrado: " + fila.getGeneroId());
+            }
+            if (!tiposSangreExistentes.contains(fila.getTipoSangreId())) {
+                fila.agregarError("Tipo de sangre no encontrado: " + fila.getTipoSangreId());
+            } else if (tiposSangreAsignados.contains(fila.getTipoSangreId())) {
+                fila.agregarError("El tipo de sangre " + fila.getTipoSangreId() + " ya está asignado a otro paciente");
+            }
+
+            if (fila.isValida()) {
+                Paciente paciente = nuevoPaciente(fila, generos);
+                pacientes.add(paciente);
+                registrados.put(fila.getFila(), paciente);
+            }
+        }
+
+        // con hibernate.jdbc.batch_size los inserts viajan de a lotes y los ids ya vienen reservados de la secuencia
+        pacienteRepository.saveAll(pacientes);
+        pacienteRepository.flush();
+        return registrados;
+    }
+
+    private Map<Long, Paciente> registrarDeAUno(List<FilaImportacionPacienteDTO> pendientes) {
+        Map<Long, Paciente> registrados = new HashMap<>();
+
+        for (FilaImportacionPacienteDTO fila : pendientes) {
+            // las filas que no pasaron la revisión del lote ya tienen su error y no se reintentan
+            if (!fila.isValida()) {
+                continue;
+            }
+
+            try {
+                registrados.put(fila.getFila(), transaccion.execute(estado -> pacienteRepository.saveAndFlush(nuevoPaciente(fila, new HashMap<>()))));
+            } catch (DataIntegrityViolationException e) {
+                Paciente datosUnicos = new Paciente();
+                datosUnicos.setRutPaciente(fila.getRutPaciente());
+                datosUnicos.setCorreoPaciente(fila.getCorreoPaciente());
+
+                String duplicado = pacienteRepository.describirDuplicado(datosUnicos);
+                fila.agregarError(duplicado != null ? duplicado : "El paciente no se pudo registrar por datos duplicados");
+            }
+        }
+        return registrados;
+    }
+
+    // se llama dentro de la transacción que hace el insert, las referencias quedan ligadas a esa sesión
+    private Paciente nuevoPaciente(FilaImportacionPacienteDTO fila, Map<Long, Genero> generos) {
+        Paciente paciente = new Paciente();
+        paciente.setNombrePaciente(fila.getNombrePaciente());
+        paciente.setRutPaciente(fila.getRutPaciente());
+        paciente.setCorreoPaciente(fila.getCorreoPaciente());
+        paciente.setFechaNacimiento(fila.getFechaNacimiento());
+        paciente.setGenero(generos.computeIfAbsent(fila.getGeneroId(), generoRepository::getReferenceById));
+        paciente.setTipoSangre(tipoSangreRepository.getReferenceById(fila.getTipoSangreId()));
+        paciente.setNroPaciente(generadorNroPaciente.generar());
+        paciente.setActivo(true);
+        return paciente;
+    }
+}
@@ -2,20 +2,42 @@ package cl.grupobios.fichatecnica.command.impl.paciente;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
+
 import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
 import cl.grupobios.fichatecnica.models.Paciente;
 import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.utils.CursorPaginacion;
 
-public class ListPacienteCommandImpl implements Command<List<Paciente>> {
+public class ListPacienteCommandImpl implements Command<PaginaDTO<Paciente>> {
+    private final String cursor;
+    private final int limite;
     private final IPacienteRepository pacienteRepository;
 
-    public ListPacienteCommandImpl(IPacienteRepository pacienteRepository) {
+    public ListPacienteCommandImpl(String cursor, int limite, IPacienteRepository pacienteRepository) {
+        this.cursor = cursor;
+        this.limite = limite;
         this.pacienteRepository = pacienteRepository;
     }
 
+    /*
+     * Paginación por llave: se buscan los pacientes con id mayor al del cursor, así cada página
+     * es un recorrido corto del índice de la llave primaria sin importar en qué página vamos
+    */
     @Override
-    public List<Paciente> execute() {
-        return pacienteRepository.findAllWithRelations();
+    public PaginaDTO<Paciente> execute() {
+        long despuesDe = CursorPaginacion.decodificar(cursor);
+
+        // pedimos uno más del límite para saber si hay una página siguiente
+        List<Paciente> pacientes = pacienteRepository.findPaginaWithRelations(despuesDe, Limit.of(limite + 1));
+
+        if (pacientes.size() <= limite) {
+            return new PaginaDTO<>(pacientes, null);
+        }
+
+        List<Paciente> pagina = pacientes.subList(0, limite);
+        return new PaginaDTO<>(pagina, CursorPaginacion.codificar(pagina.get(limite - 1).getId()));
     }
     
 }
@@ -0,0 +1,42 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.utils.CursorPaginacion;
+
+public class ListPacienteResumenCommandImpl implements Command<PaginaDTO<PacienteDTO>> {
+    private final String cursor;
+    private final int limite;
+    private final IPacienteRepository pacienteRepository;
+
+    public ListPacienteResumenCommandImpl(String cursor, int limite, IPacienteRepository pacienteRepository) {
+        this.cursor = cursor;
+        this.limite = limite;
+        this.pacienteRepository = pacienteRepository;
+    }
+
+    /*
+     * Igual que el listado paginado, pero leyendo la proyección PacienteDTO en vez de entidades:
+     * se serializa directo sin proxies ni el módulo de Hibernate de Jackson
+    */
+    @Override
+    public PaginaDTO<PacienteDTO> execute() {
+        long despuesDe = CursorPaginacion.decodificar(cursor);
+
+        // pedimos uno más del límite para saber si hay una página siguiente
+        List<PacienteDTO> pacientes = pacienteRepository.findPaginaResumen(despuesDe, Limit.of(limite + 1));
+
+        if (pacientes.size() <= limite) {
+            return new PaginaDTO<>(pacientes, null);
+        }
+
+        List<PacienteDTO> pagina = pacientes.subList(0, limite);
+        return new PaginaDTO<>(pagina, CursorPaginacion.codificar(pagina.get(limite - 1).getIdPaciente()));
+    }
+}
@@ -0,0 +1,284 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.exceptions.BusinessException;
+import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
+import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import cl.grupobios.fichatecnica.repositories.IGeneroRepository;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.repositories.ITipoSangreRepository;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
+
+/*
+ * Modificación parcial de un paciente con JSON Merge Patch (RFC 7396): solo se cambian los campos presentes.
+ * El genero y el tipo de sangre se asignan como referencias por id, sin consultarlos; si no existen lo rechaza
+ * la llave foránea. Con la versión que leyó el cliente todo el cambio es un solo UPDATE condicionado a esa versión;
+ * sin versión se lee el paciente y Hibernate envía solo las columnas que cambiaron (@DynamicUpdate)
+*/
+public class PatchPacienteCommandImpl implements Command<Long> {
+    private static final int LARGO_NOMBRE = 35;
+    private static final int LARGO_CORREO = 100;
+
+    private final Long id;
+    private final JsonNode patch;
+    private final Long versionEsperada;
+    private final IPacienteRepository pacienteRepository;
+    private final IGeneroRepository generoRepository;
+    private final ITipoSangreRepository tipoSangreRepository;
+    private final CacheFichaTecnicaPdf cacheFichaTecnica;
+    private final IndiceNombresPacientes indiceNombres;
+    private final TransactionTemplate transaccion;
+
+    public PatchPacienteCommandImpl(Long id, JsonNode patch, Long versionEsperada, IPacienteRepository pacienteRepository, IGeneroRepository generoRepository,
+            ITipoSangreRepository tipoSangreRepository, CacheFichaTecnicaPdf cacheFichaTecnica, IndiceNombresPacientes indiceNombres,
+            TransactionTemplate transaccion) {
+        this.id = id;
+        this.patch = patch;
+        this.versionEsperada = versionEsperada;
+        this.pacienteRepository = pacienteRepository;
+        this.generoRepository = generoRepository;
+        this.tipoSangreRepository = tipoSangreRepository;
+        this.cacheFichaTecnica = cacheFichaTecnica;
+        this.indiceNombres = indiceNombres;
+        this.transaccion = transaccion;
+    }
+
+    /**
+     * @return versión del paciente después del cambio
+     */
+    @Override
+    public Long execute() {
+        if (id == null || id <= 0) {
+            throw new ValidationException("ID de paciente inválido");
+        }
+
+        // la versión del If-Match manda sobre la del documento
+        Long version = leerVersion();
+        if (versionEsperada != null) {
+            version = versionEsperada;
+        }
+        Map<String, Object> cambios = leerCambios();
+
+        Long nuevaVersion;
+        try {
+            nuevaVersion = version != null ? actualizarConVersion(version, cambios) : actualizarLeyendo(cambios);
+        } catch (DataIntegrityViolationException e) {
+            throw traducirViolacion(cambios, e);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ConcurrencyException("El paciente fue modificado por otra transacción");
+        }
+
+        // la ficha técnica cacheada ya no es válida
+        cacheFichaTecnica.invalidar(id);
+
+        return nuevaVersion;
+    }
+
+    // un solo UPDATE, si no cambió ninguna fila recién se consulta si el paciente existe
+    private Long actualizarConVersion(long version, Map<String, Object> cambios) {
+        int actualizados = transaccion.execute(estado ->
+                pacienteRepository.actualizarCampos(id, version, conReferencias(cambios)));
+
+        if (actualizados == 0) {
+            if (!pacienteRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Paciente no encontrado");
+            }
+            throw new ConcurrencyException("El paciente fue modificado por otra transacción, versión esperada: " + version);
+        }
+
+        // el índice ya tiene a los activos, los inactivos no se agregan
+        if (cambios.containsKey("nombrePaciente")) {
+            indiceNombres.renombrar(id, (String) cambios.get("nombrePaciente"));
+        }
+
+        return version + 1;
+    }
+
+    // sin versión: se lee el paciente y al hacer flush se envían solo las columnas modificadas
+    private Long actualizarLeyendo(Map<String, Object> cambios) {
+        Paciente paciente = transaccion.execute(estado -> {
+            Paciente existente = pacienteRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Paciente no encontrado"));
+
+            conReferencias(cambios).forEach((campo, valor) -> aplicar(existente, campo, valor));
+            pacienteRepository.flush();
+
+            return existente;
+        });
+
+        if (cambios.containsKey("nombrePaciente")) {
+            indiceNombres.actualizar(id, paciente.getNombrePaciente(), paciente.isActivo());
+        }
+
+        return paciente.getVersion();
+    }
+
+    // la versión del cliente viene en el mismo documento, no es un campo a modificar
+    private Long leerVersion() {
+        JsonNode version = patch == null ? null : patch.get("version");
+        if (version == null || version.isNull()) {
+            return null;
+        }
+        if (!version.canConvertToLong() || version.asLong() < 0) {
+            throw new ValidationException("Versión inválida: " + version.asText());
+        }
+        return version.asLong();
+    }
+
+    private Map<String, Object> leerCambios() {
+        if (patch == null || !patch.isObject()) {
+            throw new ValidationException("El cuerpo debe ser un objeto JSON con los campos a modificar");
+        }
+
+        Map<String, Object> cambios = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> campos = patch.fields();
+
+        while (campos.hasNext()) {
+            Map.Entry<String, JsonNode> campo = campos.next();
+            String nombre = campo.getKey();
+            JsonNode valor = campo.getValue();
+
+            if ("version".equals(nombre)) {
+                continue;
+            }
+
+            // en merge patch un null quita el valor, y todos los campos del paciente son requeridos
+            if (valor.isNull()) {
+                throw new ValidationException("El campo " + nombre + " es requerido y no se puede quitar");
+            }
+
+            switch (nombre) {
+                case "nombrePaciente" -> {
+                    String nombrePaciente = texto(nombre, valor);
+                    if (nombrePaciente.length() > LARGO_NOMBRE) {
+                        throw new ValidationException("El nombre del paciente no puede superar los " + LARGO_NOMBRE + " caracteres");
+                    }
+                    cambios.put(nombre, nombrePaciente);
+                }
+                // misma forma que al registrar, así la restricción única compara RUT con y sin puntos
+                case "rutPaciente" -> {
+                    String rut = texto(nombre, valor);
+                    if (!ValidadorPaciente.rutValido(rut)) {
+                        throw new ValidationException("RUT inválido: " + rut);
+                    }
+                    cambios.put(nombre, ValidadorPaciente.normalizarRut(rut));
+                }
+                // mismas reglas que la importación masiva, así un correo inválido es un 400 y no un error de la base de datos
+                case "correoPaciente" -> {
+                    String correo = texto(nombre, valor);
+                    if (correo.length() > LARGO_CORREO) {
+                        throw new ValidationException("El correo del paciente no puede superar los " + LARGO_CORREO + " caracteres");
+                    }
+                    if (!ValidadorPaciente.correoValido(correo)) {
+                        throw new ValidationException("Correo inválido: " + correo);
+                    }
+                    cambios.put(nombre, correo);
+                }
+                case "fechaNacimiento" -> {
+                    try {
+                        cambios.put(nombre, LocalDate.parse(texto(nombre, valor)));
+                    } catch (DateTimeParseException e) {
+                        throw new ValidationException("Fecha de nacimiento inválida, use el formato AAAA-MM-DD: " + valor.asText());
+                    }
+                }
+                case "genero", "tipoSangre" -> cambios.put(nombre, idReferencia(nombre, valor));
+                default -> throw new ValidationException("El campo " + nombre + " no se puede modificar");
+            }
+        }
+
+        if (cambios.isEmpty()) {
+            throw new ValidationException("Debe indicar al menos un campo a modificar");
+        }
+
+        return cambios;
+    }
+
+    private static String texto(String campo, JsonNode valor) {
+        if (!valor.isTextual() || valor.asText().isBlank()) {
+            throw new ValidationException("El campo " + campo + " debe ser un texto no vacío");
+        }
+        return valor.asText().trim();
+    }
+
+    // igual que al registrar: "genero": {"id": 1}
+    private static Long idReferencia(String campo, JsonNode valor) {
+        JsonNode idReferencia = valor.get("id");
+        if (idReferencia == null || !idReferencia.canConvertToLong() || idReferencia.asLong() <= 0) {
+            throw new ValidationException("El campo " + campo + " debe indicar un id válido");
+        }
+        return idReferencia.asLong();
+    }
+
+    // cambia los ids del genero y tipo de sangre por referencias sin cargar (debe llamarse dentro de la transacción)
+    private Map<String, Object> conReferencias(Map<String, Object> cambios) {
+        Map<String, Object> valores = new LinkedHashMap<>(cambios);
+        valores.computeIfPresent("genero", (campo, valor) -> generoRepository.getReferenceById((Long) valor));
+        valores.computeIfPresent("tipoSangre", (campo, valor) -> tipoSangreRepository.getReferenceById((Long) valor));
+        return valores;
+    }
+
+    private static void aplicar(Paciente paciente, String campo, Object valor) {
+        switch (campo) {
+            case "nombrePaciente" -> paciente.setNombrePaciente((String) valor);
+            case "rutPaciente" -> paciente.setRutPaciente((String) valor);
+            case "correoPaciente" -> paciente.setCorreoPaciente((String) valor);
+            case "fechaNacimiento" -> paciente.setFechaNacimiento((LocalDate) valor);
+            case "genero" -> paciente.setGenero((Genero) valor);
+            case "tipoSangre" -> paciente.setTipoSangre((TipoSangre) valor);
+            default -> throw new ValidationException("El campo " + campo + " no se puede modificar");
+        }
+    }
+
+    /*
+     * La transacción ya se revirtió: se consulta cuál restricción falló solo para informarlo.
+     * Los duplicados se buscan en los demás pacientes, el patch puede reenviar el RUT o el correo que ya tiene.
+     * Un genero o tipo de sangre inexistente lo rechaza la llave foránea, y el tipo de sangre es único por paciente.
+     * Si no se encuentra la causa se relanza la violación original, no es un conflicto de versión
+    */
+    private RuntimeException traducirViolacion(Map<String, Object> cambios, DataIntegrityViolationException violacion) {
+        String rut = (String) cambios.get("rutPaciente");
+        if (rut != null && pacienteRepository.existsByRutPacienteAndIdNot(rut, id)) {
+            return new BusinessException("Ya existe un paciente con el RUT: " + rut);
+        }
+
+        String correo = (String) cambios.get("correoPaciente");
+        if (correo != null && pacienteRepository.existsByCorreoPacienteAndIdNot(correo, id)) {
+            return new BusinessException("Ya existe un paciente con el correo: " + correo);
+        }
+
+        Long generoId = (Long) cambios.get("genero");
+        if (generoId != null && !generoRepository.existsById(generoId)) {
+            return new ResourceNotFoundException("Genero no encontrado");
+        }
+
+        Long tipoSangreId = (Long) cambios.get("tipoSangre");
+        if (tipoSangreId != null) {
+            if (!tipoSangreRepository.existsById(tipoSangreId)) {
+                return new ResourceNotFoundException("Tipo de sangre no encontrado");
+            }
+            if (pacienteRepository.existsByTipoSangreIdAndIdNot(tipoSangreId, id)) {
+                return new BusinessException("El tipo de sangre ya está asignado a otro paciente");
+            }
+        }
+
+        return violacion;
+    }
+}
@@ -0,0 +1,63 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.BusquedaPacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.repositories.PacienteSpecifications;
+import cl.grupobios.fichatecnica.utils.CursorPaginacion;
+
+public class SearchPacienteCommandImpl implements Command<PaginaDTO<Paciente>> {
+    private final BusquedaPacienteDTO filtro;
+    private final String cursor;
+    private final int limite;
+    private final IPacienteRepository pacienteRepository;
+
+    public SearchPacienteCommandImpl(BusquedaPacienteDTO filtro, String cursor, int limite, IPacienteRepository pacienteRepository) {
+        this.filtro = filtro;
+        this.cursor = cursor;
+        this.limite = limite;
+        this.pacienteRepository = pacienteRepository;
+    }
+
+    /*
+     * Misma paginación por llave que el listado: sin OFFSET ni consulta de conteo,
+     * se pide un paciente más del límite para saber si hay una página siguiente
+    */
+    @Override
+    public PaginaDTO<Paciente> execute() {
+        validarEdades();
+        long despuesDe = CursorPaginacion.decodificar(cursor);
+
+        List<Paciente> pacientes = pacienteRepository.findBy(
+                PacienteSpecifications.busqueda(filtro, LocalDate.now(), despuesDe),
+                consulta -> consulta.sortBy(Sort.by("id")).limit(limite + 1).all());
+
+        if (pacientes.size() <= limite) {
+            return new PaginaDTO<>(pacientes, null);
+        }
+
+        List<Paciente> pagina = pacientes.subList(0, limite);
+        return new PaginaDTO<>(pagina, CursorPaginacion.codificar(pagina.get(limite - 1).getId()));
+    }
+
+    private void validarEdades() {
+        Integer minima = filtro.getEdadMinima();
+        Integer maxima = filtro.getEdadMaxima();
+
+        if ((minima != null && minima < 0) || (maxima != null && maxima < 0)) {
+            throw new ValidationException("La edad no puede ser negativa");
+        }
+
+        if (minima != null && maxima != null && minima > maxima) {
+            throw new ValidationException("La edad mínima no puede ser mayor a la edad máxima");
+        }
+    }
+}
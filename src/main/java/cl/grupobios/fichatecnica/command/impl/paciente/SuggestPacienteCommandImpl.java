@@ -0,0 +1,34 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.util.List;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.SugerenciaPacienteDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+
+public class SuggestPacienteCommandImpl implements Command<List<SugerenciaPacienteDTO>> {
+    private final String texto;
+    private final int limite;
+    private final IndiceNombresPacientes indiceNombres;
+
+    public SuggestPacienteCommandImpl(String texto, int limite, IndiceNombresPacientes indiceNombres) {
+        this.texto = texto;
+        this.limite = limite;
+        this.indiceNombres = indiceNombres;
+    }
+
+    // las sugerencias salen del índice en memoria, sin consultar la base de datos
+    @Override
+    public List<SugerenciaPacienteDTO> execute() {
+        if (texto == null || texto.isBlank()) {
+            throw new ValidationException("El texto a buscar es requerido");
+        }
+
+        if (limite < 1) {
+            throw new ValidationException("El límite de sugerencias debe ser mayor a 0");
+        }
+
+        return indiceNombres.buscar(texto, Math.min(limite, IndiceNombresPacientes.MAXIMO_SUGERENCIAS));
+    }
+}
@@ -0,0 +1,135 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoEstadoPacientesDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+
+/*
+ * Elimina (soft delete) o reactiva varios pacientes a la vez. Cada grupo de hasta 1000 ids (máximo de un IN en Oracle)
+ * se cambia con un solo UPDATE sin cargar las entidades, y todos los grupos van en la misma transacción.
+ * Recién después del commit se invalidan las fichas cacheadas y se actualiza el autocompletado
+*/
+public class UpdateEstadoPacientesCommandImpl implements Command<ResultadoEstadoPacientesDTO> {
+    private static final int IDS_POR_UPDATE = 1000;
+
+    private final List<Long> ids;
+    private final boolean activo;
+    private final int maximoIds;
+    private final IPacienteRepository pacienteRepository;
+    private final CacheFichaTecnicaPdf cacheFichaTecnica;
+    private final IndiceNombresPacientes indiceNombres;
+    private final TransactionTemplate transaccion;
+
+    public UpdateEstadoPacientesCommandImpl(List<Long> ids, boolean activo, int maximoIds, IPacienteRepository pacienteRepository,
+            CacheFichaTecnicaPdf cacheFichaTecnica, IndiceNombresPacientes indiceNombres, TransactionTemplate transaccion) {
+        this.ids = ids;
+        this.activo = activo;
+        this.maximoIds = maximoIds;
+        this.pacienteRepository = pacienteRepository;
+        this.cacheFichaTecnica = cacheFichaTecnica;
+        this.indiceNombres = indiceNombres;
+        this.transaccion = transaccion;
+    }
+
+    @Override
+    public ResultadoEstadoPacientesDTO execute() {
+        List<List<Long>> grupos = agrupar(validarIds());
+
+        Set<Long> existentes = new LinkedHashSet<>();
+        List<PacienteDTO> reactivados = new ArrayList<>();
+
+        int actualizados = transaccion.execute(estado -> {
+            int total = 0;
+
+            for (List<Long> grupo : grupos) {
+                int filas = pacienteRepository.actualizarActivo(grupo, activo);
+                total += filas;
+
+                if (activo) {
+                    // al reactivar necesitamos los nombres para el autocompletado, con eso también sabemos cuáles existen
+                    List<PacienteDTO> resumen = pacienteRepository.findResumenByIdIn(grupo);
+                    resumen.forEach(paciente -> existentes.add(paciente.getIdPaciente()));
+                    reactivados.addAll(resumen);
+                } else if (filas == grupo.size()) {
+                    // todos cambiaron de estado, no hace falta consultar cuáles existen
+                    existentes.addAll(grupo);
+                } else {
+                    existentes.addAll(pacienteRepository.findIdsExistentes(grupo));
+                }
+            }
+
+            return total;
+        });
+
+        // las fichas cacheadas muestran el estado anterior
+        existentes.forEach(cacheFichaTecnica::invalidar);
+
+        if (activo) {
+            reactivados.forEach(paciente -> indiceNombres.agregar(paciente.getIdPaciente(), paciente.getNombrePaciente()));
+        } else {
+            existentes.forEach(indiceNombres::quitar);
+        }
+
+        List<Long> noEncontrados = new ArrayList<>();
+        for (List<Long> grupo : grupos) {
+            for (Long id : grupo) {
+                if (!existentes.contains(id)) {
+                    noEncontrados.add(id);
+                }
+            }
+        }
+
+        int solicitados = existentes.size() + noEncontrados.size();
+        return new ResultadoEstadoPacientesDTO(activo, solicitados, actualizados, existentes.size() - actualizados, noEncontrados);
+    }
+
+    // los ids repetidos se cuentan una sola vez
+    private Set<Long> validarIds() {
+        if (ids == null || ids.isEmpty()) {
+            throw new ValidationException("Debe indicar los ids de los pacientes");
+        }
+
+        Set<Long> distintos = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null || id <= 0) {
+                throw new ValidationException("ID de paciente inválido: " + id);
+            }
+            distintos.add(id);
+        }
+
+        if (distintos.size() > maximoIds) {
+            throw new ValidationException("Se pueden cambiar hasta " + maximoIds + " pacientes por solicitud");
+        }
+
+        return distintos;
+    }
+
+    private static List<List<Long>> agrupar(Set<Long> distintos) {
+        List<List<Long>> grupos = new ArrayList<>();
+        List<Long> grupo = new ArrayList<>(Math.min(distintos.size(), IDS_POR_UPDATE));
+
+        for (Long id : distintos) {
+            grupo.add(id);
+            if (grupo.size() == IDS_POR_UPDATE) {
+                grupos.add(grupo);
+                grupo = new ArrayList<>(IDS_POR_UPDATE);
+            }
+        }
+        if (!grupo.isEmpty()) {
+            grupos.add(grupo);
+        }
+
+        return grupos;
+    }
+}
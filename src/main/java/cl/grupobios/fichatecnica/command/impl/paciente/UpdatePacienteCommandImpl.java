@@ -1,7 +1,10 @@
 package cl.grupobios.fichatecnica.command.impl.paciente;
 
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
 import cl.grupobios.fichatecnica.command.Command;
 import cl.grupobios.fichatecnica.exceptions.BusinessException;
+import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
 import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
 import cl.grupobios.fichatecnica.exceptions.ValidationException;
 import cl.grupobios.fichatecnica.models.Genero;
@@ -10,20 +13,29 @@ import cl.grupobios.fichatecnica.models.TipoSangre;
 import cl.grupobios.fichatecnica.repositories.IGeneroRepository;
 import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
 import cl.grupobios.fichatecnica.repositories.ITipoSangreRepository;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
 
 public class UpdatePacienteCommandImpl implements Command<Paciente> {
     private final Long id;
     private final Paciente paciente;
+    private final Long versionEsperada;
     private final IPacienteRepository pacienteRepository;
     private final IGeneroRepository generoRepository;
     private final ITipoSangreRepository tipoSangreRepository;
+    private final CacheFichaTecnicaPdf cacheFichaTecnica;
+    private final IndiceNombresPacientes indiceNombres;
 
-    public UpdatePacienteCommandImpl(Long id, Paciente paciente, IPacienteRepository pacienteRepository, IGeneroRepository generoRepository, ITipoSangreRepository tipoSangreRepository) {
+    public UpdatePacienteCommandImpl(Long id, Paciente paciente, Long versionEsperada, IPacienteRepository pacienteRepository, IGeneroRepository generoRepository, ITipoSangreRepository tipoSangreRepository, CacheFichaTecnicaPdf cacheFichaTecnica, IndiceNombresPacientes indiceNombres) {
         this.id = id;
         this.paciente = paciente;
+        this.versionEsperada = versionEsperada;
         this.pacienteRepository = pacienteRepository;
         this.generoRepository = generoRepository;
         this.tipoSangreRepository = tipoSangreRepository;
+        this.cacheFichaTecnica = cacheFichaTecnica;
+        this.indiceNombres = indiceNombres;
     }
 
     @Override
@@ -35,6 +47,8 @@ public class UpdatePacienteCommandImpl implements Command<Paciente> {
             processTipoSangre(pacienteExiste);
 
             return savePacientes(pacienteExiste);
+        } catch (ConcurrencyException e) {
+            throw e;
         } catch (Exception e) {
             throw new ValidationException("Error en poder actualizar los datos: " + e.getMessage());
         }
@@ -46,8 +60,16 @@ public class UpdatePacienteCommandImpl implements Command<Paciente> {
             throw new ValidationException("ID de paciente inválido");
         }
 
-        return pacienteRepository.findById(id)
+        Paciente pacienteExistente = pacienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Paciente no encontrado"));
+
+        // con If-Match solo se actualiza la versión que leyó el cliente; al guardar, Hibernate vuelve a
+        // comparar la versión en el UPDATE, así tampoco se pierde un cambio hecho entre la lectura y el guardado
+        if (versionEsperada != null && pacienteExistente.getVersion() != versionEsperada) {
+            throw new ConcurrencyException("El paciente fue modificado por otra transacción, versión esperada: " + versionEsperada);
+        }
+
+        return pacienteExistente;
     }
 
     private void updatePacienteFields(Paciente pacienteExistente) {
@@ -55,8 +77,12 @@ public class UpdatePacienteCommandImpl implements Command<Paciente> {
             pacienteExistente.setNombrePaciente(paciente.getNombrePaciente());
         }
 
+        // misma forma que al registrar, así la restricción única compara RUT con y sin puntos
         if(paciente.getRutPaciente() != null) {
-            pacienteExistente.setRutPaciente(paciente.getRutPaciente());
+            if(!ValidadorPaciente.rutValido(paciente.getRutPaciente())) {
+                throw new ValidationException("RUT inválido: " + paciente.getRutPaciente());
+            }
+            pacienteExistente.setRutPaciente(ValidadorPaciente.normalizarRut(paciente.getRutPaciente()));
         }
 
         if(paciente.getCorreoPaciente() != null) {
@@ -96,7 +122,15 @@ public class UpdatePacienteCommandImpl implements Command<Paciente> {
 
     private Paciente savePacientes(Paciente paciente) {
         try {
-            return pacienteRepository.save(paciente);
+            Paciente pacienteGuardado = pacienteRepository.save(paciente);
+
+            // la ficha técnica cacheada ya no es válida
+            cacheFichaTecnica.invalidar(id);
+            indiceNombres.actualizar(id, pacienteGuardado.getNombrePaciente(), pacienteGuardado.isActivo());
+
+            return pacienteGuardado;
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ConcurrencyException("El paciente fue modificado por otra transacción");
         } catch (Exception e) {
             throw new BusinessException("Violación de integridad de datos: " + e.getMessage());
         }
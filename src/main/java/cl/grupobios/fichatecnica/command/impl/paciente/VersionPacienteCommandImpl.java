@@ -0,0 +1,30 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.util.Optional;
+
+import cl.grupobios.fichatecnica.command.Command;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+
+/*
+ * Versión actual de un paciente activo, con una consulta de una sola columna.
+ * Alcanza para revalidar un ETag (If-None-Match) sin cargar al paciente ni sus relaciones
+*/
+public class VersionPacienteCommandImpl implements Command<Optional<Long>> {
+
+    private final Long id;
+    private final IPacienteRepository pacienteRepository;
+
+    public VersionPacienteCommandImpl(Long id, IPacienteRepository pacienteRepository) {
+        this.id = id;
+        this.pacienteRepository = pacienteRepository;
+    }
+
+    @Override
+    public Optional<Long> execute() {
+        if (id == null || id <= 0) {
+            throw new UnsupportedOperationException("ID de paciente invalido");
+        }
+
+        return pacienteRepository.findVersionById(id);
+    }
+}
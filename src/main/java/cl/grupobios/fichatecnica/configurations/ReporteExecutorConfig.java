@@ -0,0 +1,109 @@
+package cl.grupobios.fichatecnica.configurations;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Configuration
+@EnableScheduling
+public class ReporteExecutorConfig {
+
+    /*
+     * Pool acotado para llenar reportes de JasperReports, así los llenados no compiten sin límite
+     * con los hilos de Tomcat ni con los endpoints CRUD.
+     * La cola también es acotada: cuando se llena la tarea se rechaza (AbortPolicy) y el cliente recibe un 503.
+    */
+    @Bean(name = "reporteExecutor")
+    public ThreadPoolTaskExecutor reporteExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${app.reportes.executor.hilos:0}") int hilos,
+            @Value("${app.reportes.executor.cola:100}") int cola) {
+        int tamano = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+
+        Timer espera = Timer.builder("reportes.executor.espera")
+                .description("Tiempo que una tarea de reporte espera en la cola antes de ejecutarse")
+                .register(meterRegistry);
+        Timer render = Timer.builder("reportes.executor.render")
+                .description("Tiempo de ejecución de una tarea de reporte")
+                .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(tamano);
+        executor.setMaxPoolSize(tamano);
+        executor.setQueueCapacity(cola);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("reporte-");
+
+        // medimos la espera en cola y el tiempo de render de cada tarea
+        executor.setTaskDecorator(tarea -> {
+            long encolada = System.nanoTime();
+            return () -> {
+                long inicio = System.nanoTime();
+                espera.record(inicio - encolada, TimeUnit.NANOSECONDS);
+                try {
+                    tarea.run();
+                } finally {
+                    render.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                }
+            };
+        });
+        executor.initialize();
+
+        Gauge.builder("reportes.executor.cola", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("Tareas de reporte esperando en la cola")
+                .register(meterRegistry);
+        Gauge.builder("reportes.executor.activos", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Hilos del pool de reportes ejecutando una tarea")
+                .register(meterRegistry);
+
+        return executor;
+    }
+
+    /*
+     * Workers de los jobs de reportes en segundo plano. Es un pool aparte del de llenado,
+     * así un job por lote puede repartir sus fichas en reporteExecutor sin bloquearse a sí mismo.
+    */
+    @Bean(name = "reporteJobExecutor")
+    public ThreadPoolTaskExecutor reporteJobExecutor(
+            @Value("${app.reportes.jobs.hilos:2}") int hilos,
+            @Value("${app.reportes.jobs.cola:50}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("reporte-job-");
+        executor.initialize();
+        return executor;
+    }
+
+    /*
+     * Executor de las respuestas asíncronas de Spring MVC (StreamingResponseBody del PDF, las fichas por lote,
+     * CSV/XLSX, NDJSON y la importación). Al declarar reporteExecutor y reporteJobExecutor, Boot ya no crea
+     * su applicationTaskExecutor y MVC quedaría con un SimpleAsyncTaskExecutor que abre un hilo por respuesta,
+     * así que lo declaramos acotado con el mismo nombre para que WebMvcAutoConfiguration lo use.
+     * Con la cola llena la respuesta se rechaza y el cliente recibe un 503.
+    */
+    @Bean(name = "applicationTaskExecutor")
+    public ThreadPoolTaskExecutor applicationTaskExecutor(
+            @Value("${app.web.async.hilos:16}") int hilos,
+            @Value("${app.web.async.cola:100}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("web-async-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,32 +1,53 @@
 package cl.grupobios.fichatecnica.controllers;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import cl.grupobios.fichatecnica.command.Command;
 import cl.grupobios.fichatecnica.command.factory.PacienteCommandFactory;
+import cl.grupobios.fichatecnica.dtos.BusquedaPacienteDTO;
+import cl.grupobios.fichatecnica.dtos.FichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.IdsPacientesDTO;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoEstadoPacientesDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoFichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.SugerenciaPacienteDTO;
+import cl.grupobios.fichatecnica.exceptions.BusinessException;
 import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
+import cl.grupobios.fichatecnica.exceptions.ReporteSaturadoException;
 import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
 import cl.grupobios.fichatecnica.exceptions.ValidationException;
 import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.services.IReporteJobService;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.ETagPaciente;
+import cl.grupobios.fichatecnica.utils.ReporteUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -40,37 +61,148 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "Pacientes", description = "Controlador de pacientes")
 public class PacienteController {
 
+    public static final String HEADER_SIGUIENTE_CURSOR = "X-Next-Cursor";
+    public static final String HEADER_NO_ENCONTRADOS = "X-Missing-Patient-Ids";
+
     private final ObjectMapper objectMapper;
     private final PacienteCommandFactory commandFactory;
+    private final IReporteJobService reporteJobService;
+    private final CacheFichaTecnicaPdf cacheFichaTecnica;
 
     @Autowired
-    public PacienteController(ObjectMapper objectMapper, PacienteCommandFactory commandFactory) {
+    public PacienteController(ObjectMapper objectMapper, PacienteCommandFactory commandFactory, IReporteJobService reporteJobService,
+            CacheFichaTecnicaPdf cacheFichaTecnica) {
         this.objectMapper = objectMapper;
         this.commandFactory = commandFactory;
+        this.reporteJobService = reporteJobService;
+        this.cacheFichaTecnica = cacheFichaTecnica;
     }
 
     /*
-     * Retorna un listado en json de todos los pacientes regisrados en el sistema
-     * (GET)
+     * Retorna un listado en json de los pacientes regisrados en el sistema, de a una página
+     * (paginación por cursor sobre el id) (GET)
      */
     @GetMapping("listar")
-    @Operation(summary = "Listado completo de todos los pacientes registrados", description = "Devuelve un listado de todos los pacientes registrados", tags = {
+    @Operation(summary = "Listado de los pacientes registrados paginado por cursor", description = "Devuelve una página de los pacientes registrados ordenados por id. Si quedan más pacientes, el header X-Next-Cursor trae el cursor para pedir la siguiente página", tags = {
             "Pacientes" }, responses = {
-                    @ApiResponse(responseCode = "200", description = "Listado de pacientes obtenidos sin problemas", content = @Content(mediaType = "application/json", schema = @Schema(type = "array", implementation = Paciente.class))),
+                    @ApiResponse(responseCode = "200", description = "Página de pacientes obtenida sin problemas", content = @Content(mediaType = "application/json", schema = @Schema(type = "array", implementation = Paciente.class))),
+                    @ApiResponse(responseCode = "400", description = "Cursor o límite inválido"),
                     @ApiResponse(responseCode = "204", description = "Sin respuesta del listado")
             })
-    public ResponseEntity<List<Paciente>> obtenerTodo() {
+    public ResponseEntity<List<Paciente>> obtenerTodo(
+            @Parameter(description = "Cursor entregado en X-Next-Cursor por la página anterior, se omite para la primera página")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad de pacientes por página (se acota al máximo configurado)", example = "50")
+            @RequestParam(required = false) Integer limite) {
+        try {
+
+            // creamos un command y llamamos al factory para traernos una página del listado
+            Command<PaginaDTO<Paciente>> command = commandFactory.obtenerPaginaPacientes(cursor, limite);
+
+            PaginaDTO<Paciente> pagina = command.execute();
+
+            // el cuerpo sigue siendo un arreglo de pacientes, el cursor de la siguiente página va en un header
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+            if (pagina.getSiguienteCursor() != null) {
+                respuesta.header(HEADER_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+            }
+
+            // retornamos la página de pacientes
+            return respuesta.body(pagina.getContenido());
+        } catch (ValidationException e) {
+            System.out.println("BAD REQUEST: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            System.out.println("Exception: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+    }
+
+    /*
+     * Autocompletado de pacientes por nombre desde el índice en memoria (GET)
+     */
+    @GetMapping("sugerencias")
+    @Operation(summary = "Autocompletado de pacientes por nombre", description = "Sugiere pacientes activos cuyo nombre contiene las palabras escritas, sin importar tildes ni mayúsculas y tolerando errores de tipeo. La última palabra se completa como prefijo", tags = {
+            "Pacientes" }, responses = {
+                    @ApiResponse(responseCode = "200", description = "Sugerencias obtenidas sin problemas", content = @Content(mediaType = "application/json", schema = @Schema(type = "array", implementation = SugerenciaPacienteDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Texto o límite inválido")
+            })
+    public ResponseEntity<List<SugerenciaPacienteDTO>> sugerir(
+            @Parameter(description = "Nombre o parte del nombre del paciente", example = "maria gonz", required = true)
+            @RequestParam String texto,
+            @Parameter(description = "Cantidad máxima de sugerencias (hasta 50)", example = "10")
+            @RequestParam(required = false) Integer limite) {
         try {
+            return ResponseEntity.ok(commandFactory.sugerirPacientes(texto, limite).execute());
+        } catch (ValidationException e) {
+            System.out.println("BAD REQUEST: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
 
-            // creamos un command y llamamos al factory para traernos el metodo de listado
-            // completo (findAll)
-            Command<List<Paciente>> command = commandFactory.obtenerTodosLosPacientes();
+    /*
+     * Busca pacientes combinando filtros (rut, inicio del nombre, correo, genero, tipo de sangre, rango de edad y activo),
+     * de a una página con el mismo cursor que el listado (GET)
+     */
+    @GetMapping("buscar")
+    @Operation(summary = "Búsqueda de pacientes por filtros paginada por cursor", description = "Devuelve una página de los pacientes que cumplen todos los filtros indicados, ordenados por id. Si quedan más pacientes, el header X-Next-Cursor trae el cursor para pedir la siguiente página", tags = {
+            "Pacientes" }, responses = {
+                    @ApiResponse(responseCode = "200", description = "Búsqueda realizada sin problemas", content = @Content(mediaType = "application/json", schema = @Schema(type = "array", implementation = Paciente.class))),
+                    @ApiResponse(responseCode = "400", description = "Filtros, cursor o límite inválidos"),
+                    @ApiResponse(responseCode = "204", description = "Sin respuesta de la búsqueda")
+            })
+    public ResponseEntity<List<Paciente>> buscar(
+            @ParameterObject BusquedaPacienteDTO filtro,
+            @Parameter(description = "Cursor entregado en X-Next-Cursor por la página anterior, se omite para la primera página")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad de pacientes por página (se acota al máximo configurado)", example = "50")
+            @RequestParam(required = false) Integer limite) {
+        try {
+            PaginaDTO<Paciente> pagina = commandFactory.buscarPacientes(filtro, cursor, limite).execute();
 
-            // creamos una lista de todos los pacientes para el command
-            List<Paciente> pacientes = command.execute();
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+            if (pagina.getSiguienteCursor() != null) {
+                respuesta.header(HEADER_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+            }
 
-            // retornamos la lista de pacientes
-            return ResponseEntity.ok(pacientes);
+            return respuesta.body(pagina.getContenido());
+        } catch (ValidationException e) {
+            System.out.println("BAD REQUEST: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            System.out.println("Exception: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+    }
+
+    /*
+     * Retorna el resumen de los pacientes (proyección de solo lectura con el nombre del genero y del tipo de sangre),
+     * de a una página con el mismo cursor que el listado (GET)
+     */
+    @GetMapping("listar/resumen")
+    @Operation(summary = "Listado resumido de los pacientes paginado por cursor", description = "Devuelve una página del resumen de los pacientes registrados ordenados por id, sin cargar las entidades. Si quedan más pacientes, el header X-Next-Cursor trae el cursor para pedir la siguiente página", tags = {
+            "Pacientes" }, responses = {
+                    @ApiResponse(responseCode = "200", description = "Página de pacientes obtenida sin problemas", content = @Content(mediaType = "application/json", schema = @Schema(type = "array", implementation = PacienteDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Cursor o límite inválido"),
+                    @ApiResponse(responseCode = "204", description = "Sin respuesta del listado")
+            })
+    public ResponseEntity<List<PacienteDTO>> obtenerResumen(
+            @Parameter(description = "Cursor entregado en X-Next-Cursor por la página anterior, se omite para la primera página")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad de pacientes por página (se acota al máximo configurado)", example = "50")
+            @RequestParam(required = false) Integer limite) {
+        try {
+            PaginaDTO<PacienteDTO> pagina = commandFactory.obtenerPaginaResumenPacientes(cursor, limite).execute();
+
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+            if (pagina.getSiguienteCursor() != null) {
+                respuesta.header(HEADER_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+            }
+
+            return respuesta.body(pagina.getContenido());
+        } catch (ValidationException e) {
+            System.out.println("BAD REQUEST: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
             System.out.println("Exception: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
@@ -79,21 +211,39 @@ public class PacienteController {
 
     /*
      * Retorna en json un paciente regisrados en el sistema a travéz de la busqueda
-     * de si ID (GET/id)
+     * de si ID (GET/id). La respuesta lleva el ETag del paciente: si el cliente ya tiene esa versión
+     * (If-None-Match) se responde 304 consultando solo la versión, sin cargar ni serializar al paciente
      */
     @GetMapping("listar/{id}")
-    @Operation(summary = "Listamos a un paciente en especifico por el id", description = "Devuelve un solo paciente buscado por su id", tags = {
+    @Operation(summary = "Listamos a un paciente en especifico por el id", description = "Devuelve un solo paciente buscado por su id, con su ETag. Con If-None-Match responde 304 si el paciente no cambió", tags = {
             "Pacientes" }, responses = {
                     @ApiResponse(responseCode = "200", description = "Busqueda del paciente sin problemas", content = @Content(mediaType = "application/json", schema = @Schema(type = "array", implementation = Paciente.class))),
-                    @ApiResponse(responseCode = "204", description = "Sin respuesta del listado")
+                    @ApiResponse(responseCode = "204", description = "Sin respuesta del listado"),
+                    @ApiResponse(responseCode = "304", description = "El paciente no cambió desde el ETag indicado")
             })
-    public ResponseEntity<?> buscarPorId(@PathVariable("id") Long id) {
+    public ResponseEntity<?> buscarPorId(@PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            if (ifNoneMatch != null) {
+                Optional<Long> version = commandFactory.versionPacienteCommand(id).execute();
+                if (version.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+
+                String etag = ETagPaciente.de(id, version.get());
+                if (ETagPaciente.coincide(ifNoneMatch, etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+            }
+
             Command<Optional<Paciente>> command = commandFactory.buscarPorId(id);
             Optional<Paciente> pacienteOptional = command.execute(); // <-- EJECUTAR el command
             
             if (pacienteOptional.isPresent()) {
-                return ResponseEntity.ok(pacienteOptional.get());
+                Paciente paciente = pacienteOptional.get();
+                return ResponseEntity.ok()
+                        .eTag(ETagPaciente.de(paciente.getId(), paciente.getVersion()))
+                        .body(paciente);
             } else {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
@@ -127,6 +277,10 @@ public class PacienteController {
         } catch (ResourceNotFoundException ex) {
             System.out.println("NOT FOUND: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (BusinessException ex) {
+            // RUT, correo o número de paciente ya registrado
+            System.out.println("CONFLICT: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
         } catch (ConcurrencyException ex) {
             System.out.println("CONFLICT: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
@@ -136,24 +290,66 @@ public class PacienteController {
         }
     }
 
-    // actualizamos un paciente registrado y existente en el sistema (PUT/id)
+    /*
+     * Registro masivo de pacientes (por ejemplo al incorporar una clínica nueva) desde un CSV o un arreglo JSON.
+     * El archivo se lee y se registra por lotes mientras se responde el reporte, fila por fila (POST)
+    */
+    @PostMapping(value = "importar", consumes = { "text/csv", MediaType.APPLICATION_JSON_VALUE }, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+        summary = "Importar pacientes desde CSV o JSON",
+        description = "Registra pacientes en forma masiva. El CSV lleva encabezado con las columnas nombrePaciente, rutPaciente, correoPaciente, " +
+                      "fechaNacimiento (AAAA-MM-DD), generoId y tipoSangreId separadas por ; o por coma; el JSON es un arreglo de objetos con los mismos campos. " +
+                      "Se valida el dígito verificador del RUT, el correo, las referencias y los duplicados, y la respuesta indica por fila si se creó o por qué se rechazó"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Importación procesada, el reporte trae el resultado de cada fila",
+                     content = @Content(mediaType = "application/json")),
+        @ApiResponse(responseCode = "400", description = "Archivo vacío, sin el encabezado esperado o que no es un arreglo JSON"),
+        @ApiResponse(responseCode = "415", description = "Tipo de contenido distinto de text/csv o application/json"),
+        @ApiResponse(responseCode = "500", description = "Error al leer la importación")
+    })
+    public ResponseEntity<StreamingResponseBody> importarPacientes(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream entrada) {
+        try {
+            String formato = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON) ? "json" : "csv";
+            StreamingResponseBody cuerpo = commandFactory.importarPacientesCommand(entrada, formato).execute();
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(cuerpo);
+
+        } catch (ValidationException ex) {
+            System.out.println("BAD REQUEST: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // actualizamos un paciente registrado y existente en el sistema (PUT/id), con If-Match solo si sigue en esa versión
     @PutMapping("update/{id}")
-    @Operation(summary = "Actualizamos un paciente existente en el sistema", description = "Devuelve una actualización de un paciente que ya existe en el sistema", tags = {
+    @Operation(summary = "Actualizamos un paciente existente en el sistema", description = "Devuelve una actualización de un paciente que ya existe en el sistema. Con If-Match solo se actualiza si el paciente sigue en la versión de ese ETag", tags = {
             "Pacientes" }, responses = {
                     @ApiResponse(responseCode = "201", description = "Registro del paciente creado sin problemas", content = @Content(mediaType = "application/json", schema = @Schema(type = "array", implementation = Paciente.class))),
                     @ApiResponse(responseCode = "400", description = "Error de validación"),
+                    @ApiResponse(responseCode = "412", description = "El paciente cambió desde el ETag del If-Match"),
                     @ApiResponse(responseCode = "500", description = "Error interno del servidor")
             })
     public ResponseEntity<Paciente> actualizarPaciente(@PathVariable("id") Long id,
-            @RequestParam("paciente") String pacienteJson) throws Exception {
+            @RequestParam("paciente") String pacienteJson,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws Exception {
         try {
             Paciente paciente = objectMapper.readValue(pacienteJson, Paciente.class);
-            Command<Paciente> updateCommand = commandFactory.updatePacienteCommand(id, paciente);
+            Command<Paciente> updateCommand = commandFactory.updatePacienteCommand(id, paciente, ETagPaciente.versionEsperada(ifMatch, id));
 
             // registramos los datos para actualizar el paciente
             Paciente nuevoPaciente = updateCommand.execute();
 
-            return ResponseEntity.status(HttpStatus.OK).body(nuevoPaciente);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .eTag(ETagPaciente.de(nuevoPaciente.getId(), nuevoPaciente.getVersion()))
+                    .body(nuevoPaciente);
         } catch (ValidationException ex) {
             System.out.println("BAD REQUEST: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
@@ -161,14 +357,51 @@ public class PacienteController {
             System.out.println("NOT FOUND: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         } catch (ConcurrencyException ex) {
-            System.out.println("CONFLICT: " + ex.getMessage());
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+            return conflicto(ex, ifMatch);
         } catch (Exception ex) {
             System.out.println("INTERNAL SERVER ERROR (Exception): " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    /*
+     * Modificamos solo los campos enviados de un paciente (JSON Merge Patch). Si el cliente indica la versión que leyó
+     * (If-Match o el campo version), el cambio se aplica con un solo UPDATE y solo si nadie lo modificó desde entonces (PATCH/id)
+    */
+    @PatchMapping(value = "update/{id}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+    @Operation(summary = "Modificación parcial de un paciente", description = "Aplica un JSON Merge Patch con los campos a modificar (nombrePaciente, rutPaciente, correoPaciente, fechaNacimiento, genero, tipoSangre). El campo version opcional hace que el cambio solo se aplique si el paciente sigue en esa versión", tags = {
+            "Pacientes" }, responses = {
+                    @ApiResponse(responseCode = "204", description = "Paciente modificado"),
+                    @ApiResponse(responseCode = "400", description = "Error de validación"),
+                    @ApiResponse(responseCode = "404", description = "Paciente, genero o tipo de sangre no encontrado"),
+                    @ApiResponse(responseCode = "409", description = "Dato duplicado o el paciente fue modificado por otro"),
+                    @ApiResponse(responseCode = "412", description = "El paciente cambió desde el ETag del If-Match"),
+                    @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+            })
+    public ResponseEntity<Void> modificarPaciente(@PathVariable("id") Long id, @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Command<Long> patchCommand = commandFactory.patchPacienteCommand(id, patch, ETagPaciente.versionEsperada(ifMatch, id));
+            Long version = patchCommand.execute();
+
+            return ResponseEntity.noContent().eTag(ETagPaciente.de(id, version)).build();
+        } catch (ValidationException ex) {
+            System.out.println("BAD REQUEST: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (ResourceNotFoundException ex) {
+            System.out.println("NOT FOUND: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (BusinessException ex) {
+            System.out.println("CONFLICT: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (ConcurrencyException ex) {
+            return conflicto(ex, ifMatch);
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @DeleteMapping("delete/{id}")
     @Operation(summary = "Eliminación lógica (soft delete) de un paciente", description = "Realiza una eliminación lógica cambiando el estado activo a false", tags = {
             "Pacientes" }, responses = {
@@ -190,6 +423,62 @@ public class PacienteController {
         }
     }
 
+    // eliminación lógica de varios pacientes, un UPDATE por cada grupo de hasta 1000 ids (POST)
+    @PostMapping("delete/lote")
+    @Operation(summary = "Eliminación lógica (soft delete) de varios pacientes", description = "Cambia el estado activo a false de los pacientes indicados sin cargarlos. Informa cuántos cambiaron de estado, cuántos ya estaban inactivos y qué ids no existen", tags = {
+            "Pacientes" }, responses = {
+                    @ApiResponse(responseCode = "200", description = "Resultado de la eliminación", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResultadoEstadoPacientesDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Lista de ids vacía, con ids inválidos o sobre el máximo permitido"),
+                    @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+            })
+    public ResponseEntity<ResultadoEstadoPacientesDTO> eliminarPacientes(@RequestBody IdsPacientesDTO solicitud) {
+        return cambiarEstado(solicitud.getIds(), false);
+    }
+
+    // reactivamos a un paciente eliminado (POST/id)
+    @PostMapping("reactivar/{id}")
+    @Operation(summary = "Reactivación de un paciente eliminado", description = "Cambia el estado activo a true de un paciente eliminado lógicamente", tags = {
+            "Pacientes" }, responses = {
+                    @ApiResponse(responseCode = "200", description = "Paciente reactivado (o ya estaba activo)", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResultadoEstadoPacientesDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "ID inválido"),
+                    @ApiResponse(responseCode = "404", description = "Paciente no encontrado"),
+                    @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+            })
+    public ResponseEntity<ResultadoEstadoPacientesDTO> reactivarPaciente(@PathVariable("id") Long id) {
+        ResponseEntity<ResultadoEstadoPacientesDTO> respuesta = cambiarEstado(List.of(id), true);
+
+        if (respuesta.getBody() != null && !respuesta.getBody().getNoEncontrados().isEmpty()) {
+            System.out.println("NOT FOUND: Paciente no se encontro con el ID: " + id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return respuesta;
+    }
+
+    // reactivación de varios pacientes, un UPDATE por cada grupo de hasta 1000 ids (POST)
+    @PostMapping("reactivar/lote")
+    @Operation(summary = "Reactivación de varios pacientes eliminados", description = "Cambia el estado activo a true de los pacientes indicados sin cargarlos. Informa cuántos cambiaron de estado, cuántos ya estaban activos y qué ids no existen", tags = {
+            "Pacientes" }, responses = {
+                    @ApiResponse(responseCode = "200", description = "Resultado de la reactivación", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResultadoEstadoPacientesDTO.class))),
+                    @ApiResponse(responseCode = "400", description = "Lista de ids vacía, con ids inválidos o sobre el máximo permitido"),
+                    @ApiResponse(responseCode = "500", description = "Error interno del servidor")
+            })
+    public ResponseEntity<ResultadoEstadoPacientesDTO> reactivarPacientes(@RequestBody IdsPacientesDTO solicitud) {
+        return cambiarEstado(solicitud.getIds(), true);
+    }
+
+    private ResponseEntity<ResultadoEstadoPacientesDTO> cambiarEstado(List<Long> ids, boolean activo) {
+        try {
+            Command<ResultadoEstadoPacientesDTO> estadoCommand = commandFactory.cambiarEstadoPacientesCommand(ids, activo);
+            return ResponseEntity.ok(estadoCommand.execute());
+        } catch (ValidationException ex) {
+            System.out.println("BAD REQUEST: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping(value = "{id}/ficha-tecnia/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
     @Operation(
         summary = "Generar ficha técnica en PDF",
@@ -198,14 +487,34 @@ public class PacienteController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "PDF generado exitosamente",
                      content = @Content(mediaType = "application/pdf")),
+        @ApiResponse(responseCode = "304", description = "La ficha no cambió desde el ETag indicado"),
         @ApiResponse(responseCode = "404", description = "Paciente no encontrado"),
+        @ApiResponse(responseCode = "503", description = "Generador de reportes saturado, reintentar según Retry-After"),
         @ApiResponse(responseCode = "500", description = "Error al generar el PDF")
     })
-    public ResponseEntity<Resource> generarFichaTecnicaPDF(
+    public ResponseEntity<StreamingResponseBody> generarFichaTecnicaPDF(
             @Parameter(description = "ID del paciente", required = true, example = "1")
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         
         try {
+            // si el cliente ya tiene la ficha de esta versión no se carga al paciente ni se genera el PDF
+            if (ifNoneMatch != null) {
+                Optional<Long> version = commandFactory.versionPacienteCommand(id).execute();
+                if (version.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+
+                String etag = ETagPaciente.de(id, version.get());
+                if (ETagPaciente.coincide(ifNoneMatch, etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+            }
+
+            // la época se lee antes de cargar al paciente: si se modifica entre medio, el PDF con los datos
+            // anteriores no se guarda en el cache
+            long epoca = cacheFichaTecnica.epoca(id);
+
             // verificamos que el paciente exista
             Command<Optional<Paciente>> buscarCommand = commandFactory.buscarPorId(id);
 
@@ -215,32 +524,268 @@ public class PacienteController {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
 
-            // generamos el PDF usando el archivo jrxml
-            Command<byte[]> pdfCommand = commandFactory.generarFichaTecnicaPDFCommand(id);
+            // servimos el PDF desde el cache o lo generamos con el paciente ya cargado
+            Command<StreamingResponseBody> pdfCommand = commandFactory.generarFichaTecnicaPDFCommand(pacOptional.get(), epoca);
 
-            byte[] pdfBytes = pdfCommand.execute();
+            StreamingResponseBody cuerpo = pdfCommand.execute();
 
             // creamos el nombre del archio con el nombre del paciente
-            String nombrePaciente = pacOptional.get().getNombrePaciente().replace(" ", "_");
-            String nombreArchivo = String.format("Ficha_Tecnica_%s_%d.pdf", nombrePaciente, id);
-
-            // creamos el recurso
-            ByteArrayResource resource = new ByteArrayResource(pdfBytes);
+            String nombreArchivo = ReporteUtils.nombreArchivoFichaTecnica(pacOptional.get());
 
             // retornamos el respuesta final
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, 
                             "attachment; filename=\"" + nombreArchivo + "\"")
+                    .eTag(ETagPaciente.de(id, pacOptional.get().getVersion()))
                     .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(pdfBytes.length)
-                    .body(resource);
+                    .body(cuerpo);
                     
         } catch (ResourceNotFoundException ex) {
             System.out.println("NOT FOUND: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (ReporteSaturadoException ex) {
+            System.out.println("SERVICE UNAVAILABLE: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarEnSegundos()))
+                    .build();
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping(value = "ficha-tecnica/lote", produces = { MediaType.APPLICATION_PDF_VALUE, "application/zip" })
+    @Operation(
+        summary = "Generar fichas técnicas por lote",
+        description = "Genera las fichas técnicas de una lista de pacientes (o de un filtro por genero y tipo de sangre) en un solo PDF o en un ZIP con un PDF por paciente, en el orden de los ids pedidos. Los ids que no existen o están inactivos se omiten y se informan en el header X-Missing-Patient-Ids"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Fichas generadas exitosamente",
+                     content = { @Content(mediaType = "application/pdf"), @Content(mediaType = "application/zip") }),
+        @ApiResponse(responseCode = "400", description = "Solicitud del lote inválida"),
+        @ApiResponse(responseCode = "404", description = "No se encontraron pacientes"),
+        @ApiResponse(responseCode = "503", description = "Generador de reportes saturado, reintentar según Retry-After"),
+        @ApiResponse(responseCode = "500", description = "Error al generar las fichas")
+    })
+    public ResponseEntity<StreamingResponseBody> generarFichasTecnicasLote(@RequestBody FichaTecnicaLoteDTO solicitud) {
+        try {
+            // buscamos los pacientes del lote, el documento se escribe directo en la respuesta
+            Command<ResultadoFichaTecnicaLoteDTO> loteCommand = commandFactory.generarFichasTecnicasLoteCommand(solicitud);
+
+            ResultadoFichaTecnicaLoteDTO lote = loteCommand.execute();
+
+            boolean zip = solicitud.isZip();
+            String nombreArchivo = zip ? "Fichas_Tecnicas.zip" : "Fichas_Tecnicas.pdf";
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"" + nombreArchivo + "\"")
+                    .headers(noEncontrados(lote))
+                    .contentType(zip ? MediaType.parseMediaType("application/zip") : MediaType.APPLICATION_PDF)
+                    .body(lote.getCuerpo());
+
+        } catch (ValidationException ex) {
+            System.out.println("BAD REQUEST: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (ResourceNotFoundException ex) {
+            System.out.println("NOT FOUND: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (ReporteSaturadoException ex) {
+            System.out.println("SERVICE UNAVAILABLE: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarEnSegundos()))
+                    .build();
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /*
+     * Exporta el listado de pacientes activos en CSV o XLSX, escrito fila por fila desde el cursor
+     * de la base de datos (la memoria no depende de la cantidad de pacientes)
+    */
+    @GetMapping(value = "listar/exportar", produces = { "text/csv", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" })
+    @Operation(
+        summary = "Exportar listado de pacientes",
+        description = "Descarga el listado de pacientes activos en formato CSV o XLSX"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Listado exportado exitosamente",
+                     content = { @Content(mediaType = "text/csv"),
+                                 @Content(mediaType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet") }),
+        @ApiResponse(responseCode = "400", description = "Formato no soportado"),
+        @ApiResponse(responseCode = "500", description = "Error al exportar el listado")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarListado(
+            @Parameter(description = "Formato del archivo (csv o xlsx)", example = "csv")
+            @RequestParam(defaultValue = "csv") String formato) {
+        try {
+            StreamingResponseBody cuerpo = commandFactory.exportarListadoPacientesCommand(formato).execute();
+
+            boolean xlsx = "xlsx".equalsIgnoreCase(formato);
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"" + (xlsx ? "Pacientes.xlsx" : "Pacientes.csv") + "\"")
+                    .contentType(xlsx
+                            ? MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+                            : MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                    .body(cuerpo);
+
+        } catch (ValidationException ex) {
+            System.out.println("BAD REQUEST: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping(value = "listar/ndjson", produces = "application/x-ndjson")
+    @Operation(
+        summary = "Exportar todos los pacientes en NDJSON",
+        description = "Entrega todos los pacientes (activos e inactivos) con su genero y tipo de sangre, un JSON por línea, " +
+                      "a medida que se leen de la base de datos. Pensado para la sincronización nocturna de otros sistemas"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Pacientes exportados exitosamente",
+                     content = @Content(mediaType = "application/x-ndjson")),
+        @ApiResponse(responseCode = "500", description = "Error al exportar los pacientes")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarPacientesNdjson() {
+        try {
+            StreamingResponseBody cuerpo = commandFactory.exportarPacientesNdjsonCommand().execute();
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                    .body(cuerpo);
+
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /*
+     * Los siguientes endpoints generan la ficha técnica (o el lote) en segundo plano:
+     * responden de inmediato con el job y el archivo se descarga desde api/v1/reportes/jobs/{id}/archivo
+    */
+    @PostMapping("{id}/ficha-tecnica/jobs")
+    @Operation(
+        summary = "Generar ficha técnica en segundo plano",
+        description = "Encola la generación de la ficha técnica de un paciente y retorna el job para consultar su estado"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Job encolado",
+                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReporteJobDTO.class))),
+        @ApiResponse(responseCode = "404", description = "Paciente no encontrado"),
+        @ApiResponse(responseCode = "503", description = "Cola de reportes llena, reintentar según Retry-After"),
+        @ApiResponse(responseCode = "500", description = "Error al encolar el job")
+    })
+    public ResponseEntity<ReporteJobDTO> encolarFichaTecnica(
+            @Parameter(description = "ID del paciente", required = true, example = "1")
+            @PathVariable Long id) {
+
+        try {
+            long epoca = cacheFichaTecnica.epoca(id);
+            Optional<Paciente> pacOptional = commandFactory.buscarPorId(id).execute();
+
+            if (!pacOptional.isPresent()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+
+            // el cuerpo no llena nada todavía: si la cola de jobs está llena se responde 503 sin trabajo pendiente
+            StreamingResponseBody cuerpo = commandFactory.generarFichaTecnicaPDFJobCommand(pacOptional.get(), epoca).execute();
+
+            ReporteJobDTO job = reporteJobService.encolar(
+                    ReporteUtils.nombreArchivoFichaTecnica(pacOptional.get()), MediaType.APPLICATION_PDF_VALUE, cuerpo);
+
+            return aceptado(job);
+
+        } catch (ReporteSaturadoException ex) {
+            System.out.println("SERVICE UNAVAILABLE: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarEnSegundos()))
+                    .build();
+        } catch (Exception ex) {
+            System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("ficha-tecnica/lote/jobs")
+    @Operation(
+        summary = "Generar fichas técnicas por lote en segundo plano",
+        description = "Encola la generación de un lote de fichas técnicas (PDF unido o ZIP) y retorna el job para consultar su estado. Los ids que no existen o están inactivos se informan en el header X-Missing-Patient-Ids"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Job encolado",
+                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReporteJobDTO.class))),
+        @ApiResponse(responseCode = "400", description = "Solicitud del lote inválida"),
+        @ApiResponse(responseCode = "404", description = "No se encontraron pacientes"),
+        @ApiResponse(responseCode = "503", description = "Cola de reportes llena, reintentar según Retry-After"),
+        @ApiResponse(responseCode = "500", description = "Error al encolar el job")
+    })
+    public ResponseEntity<ReporteJobDTO> encolarFichasTecnicasLote(@RequestBody FichaTecnicaLoteDTO solicitud) {
+        try {
+            // el lote se valida y se buscan los pacientes ahora, así los errores se informan al encolar
+            ResultadoFichaTecnicaLoteDTO lote = commandFactory.generarFichasTecnicasLoteCommand(solicitud).execute();
+
+            boolean zip = solicitud.isZip();
+            ReporteJobDTO job = reporteJobService.encolar(
+                    zip ? "Fichas_Tecnicas.zip" : "Fichas_Tecnicas.pdf",
+                    zip ? "application/zip" : MediaType.APPLICATION_PDF_VALUE,
+                    lote.getCuerpo());
+
+            return aceptado(job, noEncontrados(lote));
+
+        } catch (ValidationException ex) {
+            System.out.println("BAD REQUEST: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (ResourceNotFoundException ex) {
+            System.out.println("NOT FOUND: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (ReporteSaturadoException ex) {
+            System.out.println("SERVICE UNAVAILABLE: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarEnSegundos()))
+                    .build();
         } catch (Exception ex) {
             System.out.println("INTERNAL SERVER ERROR: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    // 202 con la ubicación del job para consultar su estado
+    private ResponseEntity<ReporteJobDTO> aceptado(ReporteJobDTO job) {
+        return aceptado(job, HttpHeaders.EMPTY);
+    }
+
+    private ResponseEntity<ReporteJobDTO> aceptado(ReporteJobDTO job, HttpHeaders headers) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/v1/reportes/jobs/" + job.getId())
+                .headers(headers)
+                .body(job);
+    }
+
+    // ids del lote que no se encontraron separados por coma, sin header si están todos
+    private HttpHeaders noEncontrados(ResultadoFichaTecnicaLoteDTO lote) {
+        HttpHeaders headers = new HttpHeaders();
+        if (!lote.getNoEncontrados().isEmpty()) {
+            headers.set(HEADER_NO_ENCONTRADOS, lote.getNoEncontrados().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        return headers;
+    }
+
+    // con If-Match el cambio concurrente es una precondición fallida (412), sin él un conflicto (409)
+    private <T> ResponseEntity<T> conflicto(ConcurrencyException ex, String ifMatch) {
+        if (ifMatch != null) {
+            System.out.println("PRECONDITION FAILED: " + ex.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+
+        System.out.println("CONFLICT: " + ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
 }
@@ -0,0 +1,90 @@
+package cl.grupobios.fichatecnica.controllers;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO;
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO.Estado;
+import cl.grupobios.fichatecnica.services.IReporteJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("api/v1/reportes/jobs/")
+@Tag(name = "Reportes", description = "Controlador de reportes generados en segundo plano")
+public class ReporteJobController {
+
+    private final IReporteJobService reporteJobService;
+
+    @Autowired
+    public ReporteJobController(IReporteJobService reporteJobService) {
+        this.reporteJobService = reporteJobService;
+    }
+
+    /*
+     * Retorna el estado del job, el cliente consulta hasta que esté TERMINADO o FALLIDO
+    */
+    @GetMapping("{id}")
+    @Operation(summary = "Estado de un job de reporte", description = "Devuelve el estado de un reporte que se genera en segundo plano")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Estado del job",
+                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReporteJobDTO.class))),
+        @ApiResponse(responseCode = "404", description = "Job no encontrado o expirado")
+    })
+    public ResponseEntity<ReporteJobDTO> obtenerJob(
+            @Parameter(description = "ID del job", required = true)
+            @PathVariable String id) {
+        return reporteJobService.obtenerJob(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    /*
+     * Descarga el archivo del job terminado directamente desde el directorio de spool
+    */
+    @GetMapping("{id}/archivo")
+    @Operation(summary = "Descargar el reporte de un job", description = "Descarga el archivo generado por un job terminado")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Archivo del reporte"),
+        @ApiResponse(responseCode = "404", description = "Job no encontrado o expirado"),
+        @ApiResponse(responseCode = "409", description = "El job todavía no termina o falló")
+    })
+    public ResponseEntity<Resource> descargarArchivo(
+            @Parameter(description = "ID del job", required = true)
+            @PathVariable String id) {
+        Optional<ReporteJobDTO> job = reporteJobService.obtenerJob(id);
+
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        Optional<Path> archivo = reporteJobService.obtenerArchivo(id);
+
+        if (job.get().getEstado() != Estado.TERMINADO || archivo.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + job.get().getNombreArchivo() + "\"")
+                .contentType(MediaType.parseMediaType(job.get().getTipoContenido()))
+                .body(new FileSystemResource(archivo.get()));
+    }
+}
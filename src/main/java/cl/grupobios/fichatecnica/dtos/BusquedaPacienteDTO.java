@@ -0,0 +1,84 @@
+package cl.grupobios.fichatecnica.dtos;
+
+/*
+ * Filtros de la búsqueda de pacientes, todos opcionales y combinables entre sí.
+ * Si no se indica activo se buscan solo los pacientes activos.
+*/
+public class BusquedaPacienteDTO {
+    private String rut;
+    // inicio del nombre (se distingue entre mayúsculas y minúsculas para poder usar el índice)
+    private String nombre;
+    private String correo;
+    private Long generoId;
+    private Long tipoSangreId;
+    private Integer edadMinima;
+    private Integer edadMaxima;
+    private Boolean activo = true;
+
+    // Constructores
+    public BusquedaPacienteDTO() {}
+
+    public String getRut() {
+        return rut;
+    }
+
+    public void setRut(String rut) {
+        this.rut = rut;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getCorreo() {
+        return correo;
+    }
+
+    public void setCorreo(String correo) {
+        this.correo = correo;
+    }
+
+    public Long getGeneroId() {
+        return generoId;
+    }
+
+    public void setGeneroId(Long generoId) {
+        this.generoId = generoId;
+    }
+
+    public Long getTipoSangreId() {
+        return tipoSangreId;
+    }
+
+    public void setTipoSangreId(Long tipoSangreId) {
+        this.tipoSangreId = tipoSangreId;
+    }
+
+    public Integer getEdadMinima() {
+        return edadMinima;
+    }
+
+    public void setEdadMinima(Integer edadMinima) {
+        this.edadMinima = edadMinima;
+    }
+
+    public Integer getEdadMaxima() {
+        return edadMaxima;
+    }
+
+    public void setEdadMaxima(Integer edadMaxima) {
+        this.edadMaxima = edadMaxima;
+    }
+
+    public Boolean getActivo() {
+        return activo;
+    }
+
+    public void setActivo(Boolean activo) {
+        this.activo = activo;
+    }
+}
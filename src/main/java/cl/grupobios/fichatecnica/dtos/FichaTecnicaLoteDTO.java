@@ -0,0 +1,70 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+ * Solicitud para generar las fichas técnicas de varios pacientes en una sola descarga.
+ * Se indica una lista de ids o un filtro por genero y/o tipo de sangre.
+*/
+public class FichaTecnicaLoteDTO {
+    private List<Long> ids;
+    private Long generoId;
+    private Long tipoSangreId;
+    // pdf (un solo documento con todas las fichas) o zip (un PDF por paciente)
+    private String formato = "pdf";
+
+    // Constructores
+    public FichaTecnicaLoteDTO() {}
+
+    public FichaTecnicaLoteDTO(List<Long> ids, Long generoId, Long tipoSangreId, String formato) {
+        this.ids = ids;
+        this.generoId = generoId;
+        this.tipoSangreId = tipoSangreId;
+        this.formato = formato;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Long getGeneroId() {
+        return generoId;
+    }
+
+    public void setGeneroId(Long generoId) {
+        this.generoId = generoId;
+    }
+
+    public Long getTipoSangreId() {
+        return tipoSangreId;
+    }
+
+    public void setTipoSangreId(Long tipoSangreId) {
+        this.tipoSangreId = tipoSangreId;
+    }
+
+    public String getFormato() {
+        return formato;
+    }
+
+    public void setFormato(String formato) {
+        this.formato = formato;
+    }
+
+    // sin formato es pdf, el comando del lote rechaza cualquier otro valor que no sea pdf o zip
+    @JsonIgnore
+    public boolean isFormatoValido() {
+        return formato == null || "pdf".equalsIgnoreCase(formato.trim()) || isZip();
+    }
+
+    @JsonIgnore
+    public boolean isZip() {
+        return formato != null && "zip".equalsIgnoreCase(formato.trim());
+    }
+}
@@ -0,0 +1,96 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Una fila de la importación masiva de pacientes, leída desde el CSV o desde el arreglo JSON.
+ * Los errores se van acumulando al leer y validar la fila; si queda alguno la fila no se registra.
+*/
+public class FilaImportacionPacienteDTO {
+    // número de la fila en el archivo (sin contar el encabezado del CSV), parte en 1
+    private long fila;
+    private String nombrePaciente;
+    private String rutPaciente;
+    private String correoPaciente;
+    private LocalDate fechaNacimiento;
+    private Long generoId;
+    private Long tipoSangreId;
+    private final List<String> errores = new ArrayList<>();
+
+    // Constructores
+    public FilaImportacionPacienteDTO() {}
+
+    public FilaImportacionPacienteDTO(long fila) {
+        this.fila = fila;
+    }
+
+    public long getFila() {
+        return fila;
+    }
+
+    public void setFila(long fila) {
+        this.fila = fila;
+    }
+
+    public String getNombrePaciente() {
+        return nombrePaciente;
+    }
+
+    public void setNombrePaciente(String nombrePaciente) {
+        this.nombrePaciente = nombrePaciente;
+    }
+
+    public String getRutPaciente() {
+        return rutPaciente;
+    }
+
+    public void setRutPaciente(String rutPaciente) {
+        this.rutPaciente = rutPaciente;
+    }
+
+    public String getCorreoPaciente() {
+        return correoPaciente;
+    }
+
+    public void setCorreoPaciente(String correoPaciente) {
+        this.correoPaciente = correoPaciente;
+    }
+
+    public LocalDate getFechaNacimiento() {
+        return fechaNacimiento;
+    }
+
+    public void setFechaNacimiento(LocalDate fechaNacimiento) {
+        this.fechaNacimiento = fechaNacimiento;
+    }
+
+    public Long getGeneroId() {
+        return generoId;
+    }
+
+    public void setGeneroId(Long generoId) {
+        this.generoId = generoId;
+    }
+
+    public Long getTipoSangreId() {
+        return tipoSangreId;
+    }
+
+    public void setTipoSangreId(Long tipoSangreId) {
+        this.tipoSangreId = tipoSangreId;
+    }
+
+    public List<String> getErrores() {
+        return errores;
+    }
+
+    public void agregarError(String error) {
+        errores.add(error);
+    }
+
+    public boolean isValida() {
+        return errores.isEmpty();
+    }
+}
@@ -0,0 +1,25 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.util.List;
+
+/*
+ * Solicitud con los ids de los pacientes a eliminar (soft delete) o reactivar en una sola operación
+*/
+public class IdsPacientesDTO {
+    private List<Long> ids;
+
+    // Constructores
+    public IdsPacientesDTO() {}
+
+    public IdsPacientesDTO(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,36 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.util.List;
+
+/*
+ * Página de resultados de una paginación por cursor.
+ * siguienteCursor es null cuando no quedan más resultados.
+*/
+public class PaginaDTO<T> {
+    private List<T> contenido;
+    private String siguienteCursor;
+
+    // Constructores
+    public PaginaDTO() {}
+
+    public PaginaDTO(List<T> contenido, String siguienteCursor) {
+        this.contenido = contenido;
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public List<T> getContenido() {
+        return contenido;
+    }
+
+    public void setContenido(List<T> contenido) {
+        this.contenido = contenido;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public void setSiguienteCursor(String siguienteCursor) {
+        this.siguienteCursor = siguienteCursor;
+    }
+}
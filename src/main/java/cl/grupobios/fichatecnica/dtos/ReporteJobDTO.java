@@ -0,0 +1,95 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.time.LocalDateTime;
+
+/*
+ * Estado de un reporte que se genera en segundo plano.
+ * El cliente consulta el job hasta que esté TERMINADO y luego descarga el archivo.
+*/
+public class ReporteJobDTO {
+
+    public enum Estado {
+        PENDIENTE,
+        EN_PROCESO,
+        TERMINADO,
+        FALLIDO
+    }
+
+    private String id;
+    private Estado estado;
+    private String nombreArchivo;
+    private String tipoContenido;
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaTermino;
+    private String error;
+
+    // Constructores
+    public ReporteJobDTO() {}
+
+    public ReporteJobDTO(String id, Estado estado, String nombreArchivo, String tipoContenido,
+            LocalDateTime fechaCreacion, LocalDateTime fechaTermino, String error) {
+        this.id = id;
+        this.estado = estado;
+        this.nombreArchivo = nombreArchivo;
+        this.tipoContenido = tipoContenido;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaTermino = fechaTermino;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public void setEstado(Estado estado) {
+        this.estado = estado;
+    }
+
+    public String getNombreArchivo() {
+        return nombreArchivo;
+    }
+
+    public void setNombreArchivo(String nombreArchivo) {
+        this.nombreArchivo = nombreArchivo;
+    }
+
+    public String getTipoContenido() {
+        return tipoContenido;
+    }
+
+    public void setTipoContenido(String tipoContenido) {
+        this.tipoContenido = tipoContenido;
+    }
+
+    public LocalDateTime getFechaCreacion() {
+        return fechaCreacion;
+    }
+
+    public void setFechaCreacion(LocalDateTime fechaCreacion) {
+        this.fechaCreacion = fechaCreacion;
+    }
+
+    public LocalDateTime getFechaTermino() {
+        return fechaTermino;
+    }
+
+    public void setFechaTermino(LocalDateTime fechaTermino) {
+        this.fechaTermino = fechaTermino;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,66 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.util.List;
+
+/*
+ * Resultado de eliminar (soft delete) o reactivar varios pacientes: cuántos ids se pidieron (sin repetir),
+ * cuántos cambiaron de estado, cuántos ya estaban en ese estado y cuáles no existen
+*/
+public class ResultadoEstadoPacientesDTO {
+    private boolean activo;
+    private int solicitados;
+    private int actualizados;
+    private int sinCambios;
+    private List<Long> noEncontrados;
+
+    // Constructores
+    public ResultadoEstadoPacientesDTO() {}
+
+    public ResultadoEstadoPacientesDTO(boolean activo, int solicitados, int actualizados, int sinCambios, List<Long> noEncontrados) {
+        this.activo = activo;
+        this.solicitados = solicitados;
+        this.actualizados = actualizados;
+        this.sinCambios = sinCambios;
+        this.noEncontrados = noEncontrados;
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    public void setActivo(boolean activo) {
+        this.activo = activo;
+    }
+
+    public int getSolicitados() {
+        return solicitados;
+    }
+
+    public void setSolicitados(int solicitados) {
+        this.solicitados = solicitados;
+    }
+
+    public int getActualizados() {
+        return actualizados;
+    }
+
+    public void setActualizados(int actualizados) {
+        this.actualizados = actualizados;
+    }
+
+    public int getSinCambios() {
+        return sinCambios;
+    }
+
+    public void setSinCambios(int sinCambios) {
+        this.sinCambios = sinCambios;
+    }
+
+    public List<Long> getNoEncontrados() {
+        return noEncontrados;
+    }
+
+    public void setNoEncontrados(List<Long> noEncontrados) {
+        this.noEncontrados = noEncontrados;
+    }
+}
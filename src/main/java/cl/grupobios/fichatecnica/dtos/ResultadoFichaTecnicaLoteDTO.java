@@ -0,0 +1,38 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.util.List;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/*
+ * Resultado de un lote de fichas técnicas: el cuerpo que escribe el PDF o ZIP en el orden pedido
+ * y los ids solicitados que no existen o están inactivos (quedan fuera del documento)
+*/
+public class ResultadoFichaTecnicaLoteDTO {
+    private StreamingResponseBody cuerpo;
+    private List<Long> noEncontrados;
+
+    // Constructores
+    public ResultadoFichaTecnicaLoteDTO() {}
+
+    public ResultadoFichaTecnicaLoteDTO(StreamingResponseBody cuerpo, List<Long> noEncontrados) {
+        this.cuerpo = cuerpo;
+        this.noEncontrados = noEncontrados;
+    }
+
+    public StreamingResponseBody getCuerpo() {
+        return cuerpo;
+    }
+
+    public void setCuerpo(StreamingResponseBody cuerpo) {
+        this.cuerpo = cuerpo;
+    }
+
+    public List<Long> getNoEncontrados() {
+        return noEncontrados;
+    }
+
+    public void setNoEncontrados(List<Long> noEncontrados) {
+        this.noEncontrados = noEncontrados;
+    }
+}
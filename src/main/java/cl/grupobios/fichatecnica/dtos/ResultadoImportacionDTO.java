@@ -0,0 +1,81 @@
+package cl.grupobios.fichatecnica.dtos;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*
+ * Resultado de una fila de la importación masiva: CREADO con el id y el número del paciente,
+ * o RECHAZADO con los motivos
+*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResultadoImportacionDTO {
+    public static final String CREADO = "CREADO";
+    public static final String RECHAZADO = "RECHAZADO";
+
+    private long fila;
+    private String estado;
+    private Long idPaciente;
+    private String nroPaciente;
+    private List<String> errores;
+
+    // Constructores
+    public ResultadoImportacionDTO() {}
+
+    public static ResultadoImportacionDTO creado(long fila, Long idPaciente, String nroPaciente) {
+        ResultadoImportacionDTO resultado = new ResultadoImportacionDTO();
+        resultado.fila = fila;
+        resultado.estado = CREADO;
+        resultado.idPaciente = idPaciente;
+        resultado.nroPaciente = nroPaciente;
+        return resultado;
+    }
+
+    public static ResultadoImportacionDTO rechazado(long fila, List<String> errores) {
+        ResultadoImportacionDTO resultado = new ResultadoImportacionDTO();
+        resultado.fila = fila;
+        resultado.estado = RECHAZADO;
+        resultado.errores = errores;
+        return resultado;
+    }
+
+    public long getFila() {
+        return fila;
+    }
+
+    public void setFila(long fila) {
+        this.fila = fila;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public Long getIdPaciente() {
+        return idPaciente;
+    }
+
+    public void setIdPaciente(Long idPaciente) {
+        this.idPaciente = idPaciente;
+    }
+
+    public String getNroPaciente() {
+        return nroPaciente;
+    }
+
+    public void setNroPaciente(String nroPaciente) {
+        this.nroPaciente = nroPaciente;
+    }
+
+    public List<String> getErrores() {
+        return errores;
+    }
+
+    public void setErrores(List<String> errores) {
+        this.errores = errores;
+    }
+}
@@ -0,0 +1,44 @@
+package cl.grupobios.fichatecnica.dtos;
+
+/*
+ * Sugerencia del autocompletado de pacientes por nombre.
+ * La distancia es 0 si todas las palabras calzan exactas y crece con las palabras completadas o con errores de tipeo.
+*/
+public class SugerenciaPacienteDTO {
+    private Long idPaciente;
+    private String nombrePaciente;
+    private int distancia;
+
+    // Constructores
+    public SugerenciaPacienteDTO() {}
+
+    public SugerenciaPacienteDTO(Long idPaciente, String nombrePaciente, int distancia) {
+        this.idPaciente = idPaciente;
+        this.nombrePaciente = nombrePaciente;
+        this.distancia = distancia;
+    }
+
+    public Long getIdPaciente() {
+        return idPaciente;
+    }
+
+    public void setIdPaciente(Long idPaciente) {
+        this.idPaciente = idPaciente;
+    }
+
+    public String getNombrePaciente() {
+        return nombrePaciente;
+    }
+
+    public void setNombrePaciente(String nombrePaciente) {
+        this.nombrePaciente = nombrePaciente;
+    }
+
+    public int getDistancia() {
+        return distancia;
+    }
+
+    public void setDistancia(int distancia) {
+        this.distancia = distancia;
+    }
+}
@@ -0,0 +1,18 @@
+package cl.grupobios.fichatecnica.exceptions;
+
+/*
+ * El pool de reportes no tiene capacidad para aceptar más trabajo,
+ * se responde 503 con Retry-After para que el cliente reintente más tarde
+*/
+public class ReporteSaturadoException extends RuntimeException{
+    private final long reintentarEnSegundos;
+
+    public ReporteSaturadoException(String message, long reintentarEnSegundos) {
+        super(message);
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+
+    public long getReintentarEnSegundos() {
+        return reintentarEnSegundos;
+    }
+}
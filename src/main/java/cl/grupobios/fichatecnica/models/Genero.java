@@ -1,5 +1,9 @@
 package cl.grupobios.fichatecnica.models;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -15,12 +19,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+// datos de referencia que casi no cambian: se leen desde el cache de segundo nivel (región acotada en application.conf)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "genero")
 @Table(name = "genero")
 public class Genero {
 
@@ -29,7 +36,7 @@ public class Genero {
     @SequenceGenerator(
         name = "seq_genero",
         sequenceName = "seq_genero",
-        allocationSize = 1,
+        allocationSize = 50,
         initialValue = 1
     )
     @Column(name = "id_genero")
@@ -3,6 +3,8 @@ package cl.grupobios.fichatecnica.models;
 import java.time.LocalDate;
 import java.time.Period;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -12,25 +14,45 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "pacientes")
+// los UPDATE llevan solo las columnas que cambiaron (el PATCH de un campo no reescribe la fila completa)
+@DynamicUpdate
+/*
+ * Índices para los filtros de la búsqueda de pacientes. El rut, el correo, el número de paciente y el tipo de sangre
+ * (uno a uno) ya quedan indexados por sus restricciones únicas, que son las que validan los duplicados al registrar
+ * (en bases existentes el RUT y el número de paciente se crean con db/pacientes_restricciones_unicas.sql)
+*/
+@Table(name = "pacientes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_pacientes_rut", columnNames = "rut_paciente"),
+    @UniqueConstraint(name = "uk_pacientes_nro", columnNames = "nro_paciente")
+}, indexes = {
+    @Index(name = "idx_pacientes_nombre", columnList = "nom_paciente"),
+    @Index(name = "idx_pacientes_fech_nacimiento", columnList = "fech_nacimiento"),
+    @Index(name = "idx_pacientes_genero", columnList = "genero_id"),
+    @Index(name = "idx_pacientes_activo_id", columnList = "activo, id_paciente")
+})
 public class Paciente {
 
+    // los ids se reservan de a 50 por llamada a la secuencia (optimizador pooled), por eso seq_paciente
+    // debe tener INCREMENT BY 50; en bases existentes se ajusta con db/secuencias_incremento_50.sql
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_paciente")
     @SequenceGenerator(
         name = "seq_paciente",
         sequenceName = "seq_paciente",
-        allocationSize = 1,
+        allocationSize = 50,
         initialValue = 1
     )
     @Column(name = "id_paciente")
@@ -62,6 +84,14 @@ public class Paciente {
     @Column(name = "activo", nullable = false)
     private boolean activo = true;
 
+    /*
+     * Versión para el bloqueo optimista: cada UPDATE la incrementa y solo se aplica si la fila sigue en la versión leída.
+     * En bases existentes la columna se agrega con db/pacientes_version.sql
+    */
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     // relaciones una a muchos
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "genero_id", nullable = false)
@@ -155,6 +185,14 @@ public class Paciente {
         this.activo = activo;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Genero getGenero() { 
         return genero; 
     }
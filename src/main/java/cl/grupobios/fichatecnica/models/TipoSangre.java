@@ -1,5 +1,9 @@
 package cl.grupobios.fichatecnica.models;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -15,12 +19,16 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+// uno por paciente: el cache de segundo nivel guarda solo los recién creados, que se leen al registrar al paciente
+// (región acotada y con expiración en application.conf); el listado completo siempre se consulta a la base de datos
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tipoSangre")
 @Table(name = "tipo_sangre")
 public class TipoSangre {
 
@@ -29,7 +37,7 @@ public class TipoSangre {
     @SequenceGenerator(
         name = "seq_tipo_sangre",
         sequenceName = "seq_tipo_sangre",
-        allocationSize = 1,
+        allocationSize = 50,
         initialValue = 1
     )
     @Column(name = "id_tipo_sangre")
@@ -1,11 +1,28 @@
 package cl.grupobios.fichatecnica.repositories;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import cl.grupobios.fichatecnica.models.Genero;
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface IGeneroRepository extends JpaRepository<Genero, Long> {
-    
+
+    // el listado completo de generos queda en el cache de consultas, se invalida solo cuando cambia la tabla
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Genero> findAll();
+
+    // ids que existen entre los indicados, para validar las referencias de un lote completo en una consulta
+    @Query("SELECT g.id FROM Genero g WHERE g.id IN :ids")
+    Set<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
 }
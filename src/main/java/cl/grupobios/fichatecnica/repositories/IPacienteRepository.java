@@ -1,17 +1,29 @@
 package cl.grupobios.fichatecnica.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
 import cl.grupobios.fichatecnica.models.Paciente;
+import jakarta.persistence.QueryHint;
 
 @Repository
-public interface IPacienteRepository extends JpaRepository<Paciente, Long> {
+public interface IPacienteRepository extends JpaRepository<Paciente, Long>, JpaSpecificationExecutor<Paciente>, IPacienteRepositoryCustom {
     
     // Solo busca pacientes activos
     List<Paciente> findByActivoTrue();
@@ -33,6 +45,28 @@ public interface IPacienteRepository extends JpaRepository<Paciente, Long> {
            "WHERE p.activo = true")
     List<Paciente> findAllWithRelations();
     
+    // Página de pacientes activos con relaciones después de un id (paginación por llave sobre la llave primaria).
+    // Las relaciones son a uno, así el límite se aplica en la consulta y no en memoria
+    @Query("SELECT p FROM Paciente p " +
+           "LEFT JOIN FETCH p.genero " +
+           "LEFT JOIN FETCH p.tipoSangre " +
+           "WHERE p.activo = true AND p.id > :despuesDe " +
+           "ORDER BY p.id")
+    List<Paciente> findPaginaWithRelations(@Param("despuesDe") Long despuesDe, Limit limite);
+
+    // Página de pacientes activos como proyección (resumen para listados): no se crean entidades ni
+    // snapshots en el contexto de persistencia, el genero y tipo de sangre vienen como texto en la misma fila
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT new cl.grupobios.fichatecnica.dtos.PacienteDTO(" +
+           "p.id, p.nombrePaciente, p.rutPaciente, p.correoPaciente, p.fechaNacimiento, " +
+           "p.nroPaciente, p.activo, g.nombreGenero, t.nombreTipoSangre) " +
+           "FROM Paciente p " +
+           "LEFT JOIN p.genero g " +
+           "LEFT JOIN p.tipoSangre t " +
+           "WHERE p.activo = true AND p.id > :despuesDe " +
+           "ORDER BY p.id")
+    List<PacienteDTO> findPaginaResumen(@Param("despuesDe") Long despuesDe, Limit limite);
+
     // Buscar por ID con relaciones
     @Query("SELECT p FROM Paciente p " +
            "LEFT JOIN FETCH p.genero " +
@@ -40,8 +74,111 @@ public interface IPacienteRepository extends JpaRepository<Paciente, Long> {
            "WHERE p.id = :id AND p.activo = true")
     Optional<Paciente> findByIdWithRelations(@Param("id") Long id);
 
+    // Solo la versión de un paciente activo, para revalidar su ETag sin cargarlo
+    @Query("SELECT p.version FROM Paciente p WHERE p.id = :id AND p.activo = true")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Buscar varios pacientes por sus ids con relaciones (descarga de fichas por lote)
+    @Query("SELECT p FROM Paciente p " +
+           "LEFT JOIN FETCH p.genero " +
+           "LEFT JOIN FETCH p.tipoSangre " +
+           "WHERE p.id IN :ids AND p.activo = true " +
+           "ORDER BY p.id")
+    List<Paciente> findAllWithRelationsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Buscar pacientes filtrando por genero y/o tipo de sangre con relaciones (descarga de fichas por lote)
+    @Query("SELECT p FROM Paciente p " +
+           "LEFT JOIN FETCH p.genero g " +
+           "LEFT JOIN FETCH p.tipoSangre t " +
+           "WHERE p.activo = true " +
+           "AND (:generoId IS NULL OR g.id = :generoId) " +
+           "AND (:tipoSangreId IS NULL OR t.id = :tipoSangreId) " +
+           "ORDER BY p.id")
+    List<Paciente> findAllWithRelationsByFiltro(@Param("generoId") Long generoId,
+                                               @Param("tipoSangreId") Long tipoSangreId,
+                                               Limit limite);
+
+    // Recorrer los pacientes activos para exportar el listado. Es una proyección (no deja entidades en el
+    // contexto de persistencia) y se lee desde el cursor de a 500 filas, así la memoria no crece con la tabla.
+    // Se debe consumir dentro de una transacción y cerrar el Stream al terminar
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new cl.grupobios.fichatecnica.dtos.PacienteDTO(" +
+           "p.id, p.nombrePaciente, p.rutPaciente, p.correoPaciente, p.fechaNacimiento, " +
+           "p.nroPaciente, p.activo, g.nombreGenero, t.nombreTipoSangre) " +
+           "FROM Paciente p " +
+           "LEFT JOIN p.genero g " +
+           "LEFT JOIN p.tipoSangre t " +
+           "WHERE p.activo = true " +
+           "ORDER BY p.id")
+    Stream<PacienteDTO> streamListadoPacientes();
+
+    // Resumen de varios pacientes por sus ids, activos o no (al reactivar se vuelven a agregar al autocompletado)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("SELECT new cl.grupobios.fichatecnica.dtos.PacienteDTO(" +
+           "p.id, p.nombrePaciente, p.rutPaciente, p.correoPaciente, p.fechaNacimiento, " +
+           "p.nroPaciente, p.activo, g.nombreGenero, t.nombreTipoSangre) " +
+           "FROM Paciente p " +
+           "LEFT JOIN p.genero g " +
+           "LEFT JOIN p.tipoSangre t " +
+           "WHERE p.id IN :ids")
+    List<PacienteDTO> findResumenByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Ids registrados entre los indicados, activos o no
+    @Query("SELECT p.id FROM Paciente p WHERE p.id IN :ids")
+    Set<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
+
+    /*
+     * Eliminación lógica o reactivación de varios pacientes con un solo UPDATE, sin cargar las entidades.
+     * Solo cuenta las filas que cambian de estado (las que ya estaban así no se tocan) y les sube la versión.
+     * El contexto de persistencia se vacía antes y se limpia después, así no quedan entidades con el estado anterior
+    */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Paciente p SET p.activo = :activo, p.version = p.version + 1 " +
+           "WHERE p.id IN :ids AND p.activo <> :activo")
+    int actualizarActivo(@Param("ids") Collection<Long> ids, @Param("activo") boolean activo);
+
     // métodos para verificar duplicados
     boolean existsByRutPaciente(String rutPaciente);
     boolean existsByCorreoPaciente(String correoPaciente);
 
+    // duplicados en los demás pacientes, para informar por qué falló la modificación de uno existente
+    boolean existsByRutPacienteAndIdNot(String rutPaciente, Long id);
+    boolean existsByCorreoPacienteAndIdNot(String correoPaciente, Long id);
+    boolean existsByTipoSangreIdAndIdNot(Long tipoSangreId, Long id);
+
+    // RUT, correos y tipos de sangre ya registrados entre los indicados: la importación masiva revisa
+    // los duplicados de todo un lote con una consulta por campo (máximo 1000 valores por IN en Oracle)
+    @Query("SELECT p.rutPaciente FROM Paciente p WHERE p.rutPaciente IN :ruts")
+    Set<String> findRutsRegistrados(@Param("ruts") Collection<String> ruts);
+
+    @Query("SELECT p.correoPaciente FROM Paciente p WHERE p.correoPaciente IN :correos")
+    Set<String> findCorreosRegistrados(@Param("correos") Collection<String> correos);
+
+    @Query("SELECT p.tipoSangre.id FROM Paciente p WHERE p.tipoSangre.id IN :ids")
+    Set<Long> findTiposSangreAsignados(@Param("ids") Collection<Long> ids);
+
+    /*
+     * Describe qué dato único del paciente ya está registrado. Solo se usa después de que la base de datos
+     * rechazó el insert por una restricción única, así el camino normal no paga estas consultas
+    */
+    default String describirDuplicado(Paciente paciente) {
+        if (paciente.getRutPaciente() != null && existsByRutPaciente(paciente.getRutPaciente())) {
+            return "Ya existe un paciente con el RUT: " + paciente.getRutPaciente();
+        }
+
+        if (paciente.getCorreoPaciente() != null && existsByCorreoPaciente(paciente.getCorreoPaciente())) {
+            return "Ya existe un paciente con el correo: " + paciente.getCorreoPaciente();
+        }
+
+        if (paciente.getNroPaciente() != null && existsByNroPaciente(paciente.getNroPaciente())) {
+            return "Ya existe un paciente con el número: " + paciente.getNroPaciente();
+        }
+
+        return null;
+    }
+
 }
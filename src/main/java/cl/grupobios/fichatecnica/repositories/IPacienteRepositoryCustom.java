@@ -0,0 +1,32 @@
+package cl.grupobios.fichatecnica.repositories;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import cl.grupobios.fichatecnica.models.Paciente;
+
+/*
+ * Consultas de pacientes que necesitan el EntityManager directamente
+ * (se implementan en IPacienteRepositoryCustomImpl y se exponen a través de IPacienteRepository)
+*/
+public interface IPacienteRepositoryCustom {
+
+    /**
+     * Recorre todos los pacientes (activos e inactivos) con su genero y tipo de sangre desde un cursor de la base de datos.
+     * Debe consumirse dentro de una transacción y cerrarse al terminar
+     * @param fetchSize filas que el driver trae por cada viaje a la base de datos
+     * @param limpiarCada cada cuántos pacientes leídos se limpia el contexto de persistencia
+     * @return stream de pacientes ordenados por id
+     */
+    Stream<Paciente> streamPacientesConRelaciones(int fetchSize, int limpiarCada);
+
+    /**
+     * Actualiza solo los campos indicados de un paciente con un único UPDATE condicionado a la versión,
+     * sin leer la fila antes. La versión se incrementa en el mismo UPDATE
+     * @param id id del paciente
+     * @param version versión que el cliente leyó
+     * @param cambios valor nuevo por atributo de Paciente (genero y tipoSangre como referencias)
+     * @return 1 si se actualizó, 0 si el paciente no existe o ya está en otra versión
+     */
+    int actualizarCampos(Long id, long version, Map<String, Object> cambios);
+}
@@ -0,0 +1,74 @@
+package cl.grupobios.fichatecnica.repositories;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import cl.grupobios.fichatecnica.models.Paciente;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+public class IPacienteRepositoryCustomImpl implements IPacienteRepositoryCustom {
+
+    // atributos que se pueden modificar por partes, los nombres van directo en la consulta
+    private static final Set<String> CAMPOS_MODIFICABLES = Set.of(
+            "nombrePaciente", "rutPaciente", "correoPaciente", "fechaNacimiento", "genero", "tipoSangre");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /*
+     * El fetch size no se puede dejar en un @QueryHints porque es configurable, por eso la consulta se arma aquí.
+     * Aunque la consulta es de solo lectura, Hibernate igual registra cada entidad leída en el contexto de
+     * persistencia: lo limpiamos cada cierta cantidad de filas para que la memoria no crezca con el recorrido.
+     * Los pacientes ya entregados quedan desconectados, pero con el genero y tipo de sangre cargados (fetch join)
+    */
+    @Override
+    public Stream<Paciente> streamPacientesConRelaciones(int fetchSize, int limpiarCada) {
+        AtomicLong leidos = new AtomicLong();
+
+        return entityManager.createQuery(
+                "SELECT p FROM Paciente p " +
+                "LEFT JOIN FETCH p.genero " +
+                "LEFT JOIN FETCH p.tipoSangre " +
+                "ORDER BY p.id", Paciente.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .map(paciente -> {
+                    if (leidos.incrementAndGet() % limpiarCada == 0) {
+                        entityManager.clear();
+                    }
+                    return paciente;
+                });
+    }
+
+    /*
+     * La consulta se arma con las columnas que cambian, así el UPDATE no reescribe la fila completa.
+     * La condición por versión hace que un cambio concurrente no se pierda: si otro lo modificó antes, no se actualiza nada
+    */
+    @Override
+    @Transactional
+    public int actualizarCampos(Long id, long version, Map<String, Object> cambios) {
+        StringBuilder jpql = new StringBuilder("UPDATE Paciente p SET ");
+        for (String campo : cambios.keySet()) {
+            if (!CAMPOS_MODIFICABLES.contains(campo)) {
+                throw new IllegalArgumentException("Campo de paciente no modificable: " + campo);
+            }
+            jpql.append("p.").append(campo).append(" = :").append(campo).append(", ");
+        }
+        jpql.append("p.version = p.version + 1 WHERE p.id = :id AND p.version = :version");
+
+        Query query = entityManager.createQuery(jpql.toString());
+        cambios.forEach(query::setParameter);
+        query.setParameter("id", id);
+        query.setParameter("version", version);
+
+        return query.executeUpdate();
+    }
+}
@@ -1,11 +1,19 @@
 package cl.grupobios.fichatecnica.repositories;
 
+import java.util.Collection;
+import java.util.Set;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import cl.grupobios.fichatecnica.models.TipoSangre;
 
 @Repository
 public interface ITipoSangreRepository extends JpaRepository<TipoSangre, Long> {
-    
+
+    // ids que existen entre los indicados, para validar las referencias de un lote completo en una consulta
+    @Query("SELECT t.id FROM TipoSangre t WHERE t.id IN :ids")
+    Set<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,112 @@
+package cl.grupobios.fichatecnica.repositories;
+
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import cl.grupobios.fichatecnica.dtos.BusquedaPacienteDTO;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
+import jakarta.persistence.criteria.JoinType;
+
+/*
+ * Filtros de la búsqueda de pacientes como Specifications combinables.
+ * Cada filtro compara directo contra una columna indexada de la tabla pacientes (ver índices en Paciente),
+ * sin funciones sobre la columna que impidan usar el índice.
+*/
+public final class PacienteSpecifications {
+
+    private PacienteSpecifications() {
+    }
+
+    /**
+     * Arma la búsqueda con los filtros informados, ordenada por id y paginada por llave
+     * @param filtro filtros de la búsqueda (los null no se aplican)
+     * @param hoy fecha con la que se convierten las edades en fechas de nacimiento
+     * @param despuesDe id del último paciente de la página anterior (0 para la primera)
+     */
+    public static Specification<Paciente> busqueda(BusquedaPacienteDTO filtro, LocalDate hoy, long despuesDe) {
+        return Specification.allOf(
+                conRelaciones(),
+                idMayorQue(despuesDe),
+                rutIgual(filtro.getRut()),
+                nombreEmpiezaCon(filtro.getNombre()),
+                correoIgual(filtro.getCorreo()),
+                generoIgual(filtro.getGeneroId()),
+                tipoSangreIgual(filtro.getTipoSangreId()),
+                edadMinima(filtro.getEdadMinima(), hoy),
+                edadMaxima(filtro.getEdadMaxima(), hoy),
+                activoIgual(filtro.getActivo()));
+    }
+
+    // trae el genero y tipo de sangre en la misma consulta (no aplica a las consultas de conteo)
+    public static Specification<Paciente> conRelaciones() {
+        return (root, query, cb) -> {
+            if (query != null && !Long.class.equals(query.getResultType()) && !long.class.equals(query.getResultType())) {
+                root.fetch("genero", JoinType.LEFT);
+                root.fetch("tipoSangre", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    public static Specification<Paciente> idMayorQue(long despuesDe) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), despuesDe);
+    }
+
+    // el RUT se guarda normalizado (12345678-K), así se encuentra aunque se busque con puntos
+    public static Specification<Paciente> rutIgual(String rut) {
+        return (root, query, cb) -> {
+            if (esVacio(rut)) {
+                return null;
+            }
+            String normalizado = ValidadorPaciente.normalizarRut(rut);
+            return cb.equal(root.get("rutPaciente"), normalizado != null ? normalizado : rut.trim());
+        };
+    }
+
+    // LIKE 'prefijo%' sigue usando el índice de nom_paciente; se escapan los comodines que traiga el texto
+    public static Specification<Paciente> nombreEmpiezaCon(String prefijo) {
+        return (root, query, cb) -> esVacio(prefijo) ? null
+                : cb.like(root.get("nombrePaciente"), escaparLike(prefijo.trim()) + "%", '\\');
+    }
+
+    public static Specification<Paciente> correoIgual(String correo) {
+        return (root, query, cb) -> esVacio(correo) ? null : cb.equal(root.get("correoPaciente"), correo.trim());
+    }
+
+    public static Specification<Paciente> generoIgual(Long generoId) {
+        return (root, query, cb) -> generoId == null ? null : cb.equal(root.get("genero").get("id"), generoId);
+    }
+
+    public static Specification<Paciente> tipoSangreIgual(Long tipoSangreId) {
+        return (root, query, cb) -> tipoSangreId == null ? null : cb.equal(root.get("tipoSangre").get("id"), tipoSangreId);
+    }
+
+    /*
+     * Las edades se convierten en un rango de fech_nacimiento en vez de calcular la edad de cada fila:
+     * tener al menos N años es haber nacido en o antes de hoy - N años,
+     * tener a lo más N años es haber nacido después de hoy - (N + 1) años
+    */
+    public static Specification<Paciente> edadMinima(Integer edad, LocalDate hoy) {
+        return (root, query, cb) -> edad == null ? null
+                : cb.lessThanOrEqualTo(root.get("fechaNacimiento"), hoy.minusYears(edad));
+    }
+
+    public static Specification<Paciente> edadMaxima(Integer edad, LocalDate hoy) {
+        return (root, query, cb) -> edad == null ? null
+                : cb.greaterThan(root.get("fechaNacimiento"), hoy.minusYears(edad + 1L));
+    }
+
+    public static Specification<Paciente> activoIgual(Boolean activo) {
+        return (root, query, cb) -> activo == null ? null : cb.equal(root.get("activo"), activo);
+    }
+
+    private static boolean esVacio(String valor) {
+        return valor == null || valor.isBlank();
+    }
+
+    private static String escaparLike(String valor) {
+        return valor.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,31 @@
+package cl.grupobios.fichatecnica.services;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO;
+
+public interface IReporteJobService {
+
+    /*
+     * Encola la generación de un reporte en segundo plano, el cuerpo se escribe en el directorio de spool.
+    */
+    ReporteJobDTO encolar(String nombreArchivo, String tipoContenido, StreamingResponseBody cuerpo);
+
+    /*
+     * Obtiene el estado de un job por su ID.
+    */
+    Optional<ReporteJobDTO> obtenerJob(String idJob);
+
+    /*
+     * Obtiene el archivo de un job terminado.
+    */
+    Optional<Path> obtenerArchivo(String idJob);
+
+    /*
+     * Elimina los jobs (y sus archivos) que superaron el tiempo de retención.
+    */
+    void limpiarJobsExpirados();
+}
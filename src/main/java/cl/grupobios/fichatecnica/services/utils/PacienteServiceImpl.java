@@ -1,6 +1,7 @@
 package cl.grupobios.fichatecnica.services.utils;
 
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -8,11 +9,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import cl.grupobios.fichatecnica.exceptions.BusinessException;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
 import cl.grupobios.fichatecnica.models.Paciente;
 import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
 import cl.grupobios.fichatecnica.services.IPacienteService;
-import cl.grupobios.fichatecnica.utils.GeneratorCodigo;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.IGeneradorNroPaciente;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
 import cl.grupobios.fichatecnica.utils.ReporteUtils;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
 @Service
 public class PacienteServiceImpl implements IPacienteService {
 
@@ -22,6 +28,15 @@ public class PacienteServiceImpl implements IPacienteService {
     @Autowired
     private IPacienteRepository pacienteRepository;
 
+    @Autowired
+    private CacheFichaTecnicaPdf cacheFichaTecnica;
+
+    @Autowired
+    private IGeneradorNroPaciente generadorNroPaciente;
+
+    @Autowired
+    private IndiceNombresPacientes indiceNombres;
+
     public PacienteServiceImpl(IPacienteRepository pacienteRepository){
         this.pacienteRepository = pacienteRepository;
     }
@@ -42,31 +57,31 @@ public class PacienteServiceImpl implements IPacienteService {
     // registramos un paciente en el sistema
     @Override
     public Paciente agregarPaciente(Paciente paciente) {
-        
-        // Verificar si el RUT ya existe
-        if (existePacientePorRut(paciente.getRutPaciente())) {
-            throw new RuntimeException("Ya existe un paciente con el RUT: " + paciente.getRutPaciente());
+        // el RUT se guarda en una sola forma (12345678-K), así la restricción única compara RUT con y sin puntos
+        if (!ValidadorPaciente.rutValido(paciente.getRutPaciente())) {
+            throw new ValidationException("RUT inválido: " + paciente.getRutPaciente());
         }
-        
-        // Verificar si el correo ya existe (si aplica)
-        if (paciente.getCorreoPaciente() != null && 
-            existePacientePorCorreo(paciente.getCorreoPaciente())) {
-            throw new RuntimeException("Ya existe un paciente con el correo: " + paciente.getCorreoPaciente());
+        paciente.setRutPaciente(ValidadorPaciente.normalizarRut(paciente.getRutPaciente()));
+
+        if (!ValidadorPaciente.correoValido(paciente.getCorreoPaciente())) {
+            throw new ValidationException("Correo inválido: " + paciente.getCorreoPaciente());
         }
 
-        String numeroPaciente = generarNumeroPacienteUnico();
-        paciente.setNroPaciente(numeroPaciente);
+        // el RUT y el correo duplicados los rechazan las restricciones únicas, y el número de paciente
+        // es único por construcción: ninguno se consulta antes
+        paciente.setNroPaciente(generadorNroPaciente.generar());
         paciente.setActivo(true); // por defecto el paciente se registra como activo
         
         try {
             // 4. Intentar guardar
             return pacienteRepository.save(paciente);
         } catch (DataIntegrityViolationException e) {
-            // 5. Manejar error de restricción única
-            if (e.getMessage().contains("UKGD287WRMSYB7ACCI6U2WXOMU9")) {
-                throw new RuntimeException("Error de duplicado: Verifique que el RUT, número o correo no estén registrados");
+            // 5. Manejar error de restricción única indicando qué dato estaba repetido
+            String duplicado = pacienteRepository.describirDuplicado(paciente);
+            if (duplicado != null) {
+                throw new BusinessException(duplicado);
             }
-            throw new RuntimeException("Error al guardar el paciente: " + e.getMessage(), e);
+            throw e;
         }
     }
 
@@ -101,7 +116,12 @@ public class PacienteServiceImpl implements IPacienteService {
         // el estado de activo tampoco se actualiza en este metodo
 
         try {
-            return pacienteRepository.save(pacienteExistente);
+            Paciente pacienteGuardado = pacienteRepository.save(pacienteExistente);
+
+            // la ficha técnica cacheada ya no es válida
+            cacheFichaTecnica.invalidar(idPaciente);
+
+            return pacienteGuardado;
         } catch (DataIntegrityViolationException e) {
             throw new RuntimeException("Error al actualizar: Verifique que los datos únicos no estén duplicados", e);
         }
@@ -110,36 +130,22 @@ public class PacienteServiceImpl implements IPacienteService {
     // este método para eliminar un paciete es un soft delete (eliminacion logica)
     @Override
     public void eliminarPaciente(Long idPaciente) {
-        Paciente pacienteExistente = pacienteRepository.findById(idPaciente)
-                .orElseThrow(() -> new RuntimeException("Paciente no encontrado"));
-
-        // eliminación logica: aquí lo que hacemos es cambiar el estado del paciente a inactivo
-        pacienteExistente.setActivo(false);
-        pacienteRepository.save(pacienteExistente);
+        // eliminación logica: aquí lo que hacemos es cambiar el estado del paciente a inactivo con un solo UPDATE
+        int actualizados = pacienteRepository.actualizarActivo(List.of(idPaciente), false);
+        if (actualizados == 0 && !pacienteRepository.existsById(idPaciente)) {
+            throw new RuntimeException("Paciente no encontrado");
+        }
+        cacheFichaTecnica.invalidar(idPaciente);
+        // un paciente inactivo deja de aparecer en el autocompletado
+        indiceNombres.quitar(idPaciente);
 
         /*
          * en el JSON ahora aparecera como eliminado, pero en la base de datos seguira existiendo
-         * si se desea eliminar fisicamente de la base de datos, solo de debe cambiar la siguiente linea:
-         * pacienteRepository.delete(pacienteExistente);
+         * si se desea eliminar fisicamente de la base de datos, solo de debe cambiar el UPDATE por:
+         * pacienteRepository.deleteById(idPaciente);
         */
     }
 
-    private String generarNumeroPacienteUnico() {
-        String numeroPaciente;
-        boolean existe;
-
-        do{
-            // generamos el numero de paciente aleatorio
-            numeroPaciente = GeneratorCodigo.generarCodigoAleatorio();
-
-            // Realizamos una verificación para saber si el numero existe en la base de datos de un paciente
-            existe = pacienteRepository.existsByNroPaciente(numeroPaciente);
-
-        } while(existe); // repetimos el proceso hasta que se genere un numero unico
-
-        return numeroPaciente;
-    }
-
     /**
      * Genera la ficha técnica de un paciente en formato PDF
      * @param idPaciente ID del paciente
@@ -147,24 +153,26 @@ public class PacienteServiceImpl implements IPacienteService {
     */
     @Override
     public byte[] generarFichaTecnicaPdf(Long idPaciente) {
-        // verificamos que el paciente existe
-        Optional<Paciente> paciente = obtenerPacientePorId(idPaciente);
+        // si la ficha ya fue generada y el paciente no ha cambiado la servimos desde el cache
+        long epoca = cacheFichaTecnica.epoca(idPaciente);
+        Optional<byte[]> pdfCacheado = cacheFichaTecnica.obtener(idPaciente);
+
+        if (pdfCacheado.isPresent()) {
+            return pdfCacheado.get();
+        }
+
+        // verificamos que el paciente existe (cargamos genero y tipo de sangre en la misma consulta)
+        Optional<Paciente> paciente = pacienteRepository.findByIdWithRelations(idPaciente);
 
         if (!paciente.isPresent()) {
             throw new RuntimeException("Paciente no encontrado con ID: " + idPaciente);
         }
 
-        // generamos el archivo PDF
-        return reporteUtils.generarFichaTecnicaPaciente(idPaciente);
-    }
-    
+        // generamos el archivo PDF con el paciente ya cargado
+        byte[] pdf = reporteUtils.generarFichaTecnicaPaciente(paciente.get());
+        cacheFichaTecnica.guardar(idPaciente, epoca, pdf);
 
-
-    private boolean existePacientePorRut(String rut) {
-        return pacienteRepository.existsByRutPaciente(rut);
-    }
-    
-    private boolean existePacientePorCorreo(String correo) {
-        return pacienteRepository.existsByCorreoPaciente(correo);
+        return pdf;
     }
+
 }
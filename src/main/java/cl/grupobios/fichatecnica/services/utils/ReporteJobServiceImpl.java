@@ -0,0 +1,166 @@
+package cl.grupobios.fichatecnica.services.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO;
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO.Estado;
+import cl.grupobios.fichatecnica.exceptions.ReporteSaturadoException;
+import cl.grupobios.fichatecnica.services.IReporteJobService;
+
+/*
+ * Jobs de reportes en segundo plano para un solo nodo: el estado vive en memoria
+ * y el archivo generado en un directorio de spool local.
+*/
+@Service
+public class ReporteJobServiceImpl implements IReporteJobService {
+
+    private final ThreadPoolTaskExecutor jobExecutor;
+    private final Path directorio;
+    private final Duration retencion;
+    private final long reintentarEnSegundos;
+
+    private final ConcurrentMap<String, ReporteJobDTO> jobs = new ConcurrentHashMap<>();
+
+    public ReporteJobServiceImpl(
+            @Qualifier("reporteJobExecutor") ThreadPoolTaskExecutor jobExecutor,
+            @Value("${app.reportes.jobs.directorio:${java.io.tmpdir}/fichatecnica-reportes}") String directorio,
+            @Value("${app.reportes.jobs.retencion:PT1H}") Duration retencion,
+            @Value("${app.reportes.executor.retry-after-segundos:5}") long reintentarEnSegundos) throws IOException {
+        this.jobExecutor = jobExecutor;
+        this.directorio = Paths.get(directorio);
+        this.retencion = retencion;
+        this.reintentarEnSegundos = reintentarEnSegundos;
+
+        // los jobs viven en memoria, al iniciar los archivos que quedaron ya no tienen dueño
+        Files.createDirectories(this.directorio);
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(this.directorio)) {
+            for (Path archivo : archivos) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+    }
+
+    @Override
+    public ReporteJobDTO encolar(String nombreArchivo, String tipoContenido, StreamingResponseBody cuerpo) {
+        String idJob = UUID.randomUUID().toString();
+        ReporteJobDTO job = new ReporteJobDTO(idJob, Estado.PENDIENTE, nombreArchivo, tipoContenido,
+                LocalDateTime.now(), null, null);
+        jobs.put(idJob, job);
+
+        try {
+            jobExecutor.execute(() -> ejecutar(job, cuerpo));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(idJob);
+            throw new ReporteSaturadoException("La cola de reportes está llena, intente nuevamente más tarde", reintentarEnSegundos);
+        }
+
+        return copiar(job);
+    }
+
+    @Override
+    public Optional<ReporteJobDTO> obtenerJob(String idJob) {
+        return Optional.ofNullable(jobs.get(idJob)).map(this::copiar);
+    }
+
+    @Override
+    public Optional<Path> obtenerArchivo(String idJob) {
+        ReporteJobDTO job = jobs.get(idJob);
+
+        if (job == null || job.getEstado() != Estado.TERMINADO) {
+            return Optional.empty();
+        }
+
+        Path archivo = archivo(idJob);
+        return Files.exists(archivo) ? Optional.of(archivo) : Optional.empty();
+    }
+
+    // eliminamos los jobs terminados o fallidos que superaron el tiempo de retención
+    @Override
+    @Scheduled(fixedDelayString = "${app.reportes.jobs.limpieza:PT5M}")
+    public void limpiarJobsExpirados() {
+        LocalDateTime limite = LocalDateTime.now().minus(retencion);
+
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                if (job.getFechaTermino() == null || job.getFechaTermino().isAfter(limite)) {
+                    return false;
+                }
+            }
+
+            eliminar(archivo(job.getId()));
+            return true;
+        });
+    }
+
+    private void ejecutar(ReporteJobDTO job, StreamingResponseBody cuerpo) {
+        actualizar(job, Estado.EN_PROCESO, null);
+
+        Path temporal = directorio.resolve(job.getId() + ".tmp");
+
+        try {
+            try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(temporal))) {
+                cuerpo.writeTo(salida);
+            }
+
+            // el archivo aparece completo o no aparece
+            Files.move(temporal, archivo(job.getId()), StandardCopyOption.ATOMIC_MOVE);
+            actualizar(job, Estado.TERMINADO, null);
+
+        } catch (Exception e) {
+            System.out.println("Error al generar el reporte del job " + job.getId() + ": " + e.getMessage());
+            eliminar(temporal);
+            actualizar(job, Estado.FALLIDO, e.getMessage());
+        }
+    }
+
+    private void actualizar(ReporteJobDTO job, Estado estado, String error) {
+        synchronized (job) {
+            job.setEstado(estado);
+            job.setError(error);
+            if (estado == Estado.TERMINADO || estado == Estado.FALLIDO) {
+                job.setFechaTermino(LocalDateTime.now());
+            }
+        }
+    }
+
+    // entregamos una copia para que el worker no cambie el job mientras se serializa
+    private ReporteJobDTO copiar(ReporteJobDTO job) {
+        synchronized (job) {
+            return new ReporteJobDTO(job.getId(), job.getEstado(), job.getNombreArchivo(), job.getTipoContenido(),
+                    job.getFechaCreacion(), job.getFechaTermino(), job.getError());
+        }
+    }
+
+    private Path archivo(String idJob) {
+        return directorio.resolve(idJob + ".reporte");
+    }
+
+    private void eliminar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            System.out.println("No se pudo eliminar el archivo del job: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Cache de dos niveles para los PDF de fichas técnicas ya generados:
+ * - memoria: LRU acotado por el total de bytes, solo con las fichas bajo el umbral por ficha
+ * - disco: un archivo por paciente en un directorio local, copiado a la salida por bloques sin leerlo completo
+ * Las entradas se invalidan cuando el paciente se actualiza o elimina, y expiran pasado el TTL
+ * (los archivos vencidos se eliminan al encontrarlos y en una limpieza periódica del directorio)
+ * (el cache es local a cada nodo, el TTL acota lo desactualizado que puede quedar si otro nodo modifica al paciente).
+*/
+@Component
+public class CacheFichaTecnicaPdf {
+
+    private final long memoriaMaxBytes;
+    private final long memoriaMaxBytesFicha;
+    private final long ttlMillis;
+    private final Path directorio;
+
+    // LRU en memoria (orden de acceso), protegido por su propio monitor
+    private final LinkedHashMap<Long, EntradaMemoria> memoria = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesEnMemoria;
+
+    /*
+     * Época por paciente: cambia en cada invalidación, así un PDF generado antes de un cambio no se guarda.
+     * Las épocas salen de un contador global. Las invalidaciones más antiguas que el TTL se descartan y el piso
+     * sube a la mayor época descartada, así un paciente sin entrada nunca vuelve a una época que ya tuvo
+     * (el mapa solo guarda los pacientes invalidados en el último TTL, no todos los que se han modificado)
+    */
+    private final ConcurrentMap<Long, Invalidacion> epocas = new ConcurrentHashMap<>();
+    private final AtomicLong ultimaEpoca = new AtomicLong();
+    private final AtomicLong piso = new AtomicLong();
+    private long ultimaLimpieza = System.currentTimeMillis();
+
+    private final Counter aciertosMemoria;
+    private final Counter aciertosDisco;
+    private final Counter fallos;
+    private final Counter bytesAhorrados;
+
+    public CacheFichaTecnicaPdf(
+            MeterRegistry meterRegistry,
+            @Value("${app.reportes.cache.memoria-max-bytes:33554432}") long memoriaMaxBytes,
+            @Value("${app.reportes.cache.memoria-max-bytes-ficha:1048576}") long memoriaMaxBytesFicha,
+            @Value("${app.reportes.cache.ttl:PT10M}") Duration ttl,
+            @Value("${app.reportes.cache.directorio:${java.io.tmpdir}/fichatecnica-pdf-cache}") String directorio) throws IOException {
+        this.memoriaMaxBytes = memoriaMaxBytes;
+        this.memoriaMaxBytesFicha = Math.min(memoriaMaxBytesFicha, memoriaMaxBytes);
+        this.ttlMillis = ttl.toMillis();
+        this.directorio = Paths.get(directorio);
+
+        // al iniciar descartamos lo que haya quedado en disco, pudo cambiar mientras el nodo estaba abajo
+        Files.createDirectories(this.directorio);
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(this.directorio, "*.pdf")) {
+            for (Path archivo : archivos) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+
+        this.aciertosMemoria = Counter.builder("reportes.pdf.cache")
+                .tag("resultado", "hit").tag("nivel", "memoria")
+                .register(meterRegistry);
+        this.aciertosDisco = Counter.builder("reportes.pdf.cache")
+                .tag("resultado", "hit").tag("nivel", "disco")
+                .register(meterRegistry);
+        this.fallos = Counter.builder("reportes.pdf.cache")
+                .tag("resultado", "miss").tag("nivel", "ninguno")
+                .register(meterRegistry);
+        this.bytesAhorrados = Counter.builder("reportes.pdf.cache.bytes.ahorrados")
+                .description("Bytes de PDF servidos desde el cache sin volver a generar el reporte")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        Gauge.builder("reportes.pdf.cache.ratio", this, CacheFichaTecnicaPdf::getRatioAciertos)
+                .description("Proporción de descargas de fichas servidas desde el cache")
+                .register(meterRegistry);
+        Gauge.builder("reportes.pdf.cache.memoria.bytes", this, CacheFichaTecnicaPdf::getBytesEnMemoria)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Escribe en la salida el PDF cacheado del paciente
+     * @param idPaciente ID del paciente
+     * @param salida stream donde se escribe el PDF
+     * @return true si el PDF estaba en cache, false si hay que generarlo
+     */
+    public boolean transferir(Long idPaciente, OutputStream salida) throws IOException {
+        byte[] pdf = obtenerDeMemoria(idPaciente);
+
+        if (pdf != null) {
+            salida.write(pdf);
+            registrarAcierto(aciertosMemoria, pdf.length);
+            return true;
+        }
+
+        Path archivo = archivoVigente(idPaciente);
+
+        if (archivo != null) {
+            try {
+                // la salida es un OutputStream, no un canal: es una copia por un buffer pequeño, no zero-copy
+                long tamano = Files.copy(archivo, salida);
+                registrarAcierto(aciertosDisco, tamano);
+                return true;
+            } catch (NoSuchFileException e) {
+                // se invalidó mientras lo leíamos, lo tratamos como un fallo
+            }
+        }
+
+        fallos.increment();
+        return false;
+    }
+
+    /**
+     * Indica si el PDF del paciente está en cache, sin leerlo (si no está se registra como fallo)
+     * @param idPaciente ID del paciente
+     * @return true si está en memoria o en disco y no ha expirado
+     */
+    public boolean contiene(Long idPaciente) {
+        if (obtenerDeMemoria(idPaciente) != null || archivoVigente(idPaciente) != null) {
+            return true;
+        }
+
+        fallos.increment();
+        return false;
+    }
+
+    /**
+     * Obtiene el PDF cacheado del paciente como arreglo de bytes (lo sube a memoria si estaba en disco)
+     * @param idPaciente ID del paciente
+     * @return PDF cacheado o vacío si hay que generarlo
+     */
+    public Optional<byte[]> obtener(Long idPaciente) {
+        byte[] pdf = obtenerDeMemoria(idPaciente);
+
+        if (pdf != null) {
+            registrarAcierto(aciertosMemoria, pdf.length);
+            return Optional.of(pdf);
+        }
+
+        Path archivo = archivoVigente(idPaciente);
+
+        if (archivo != null) {
+            try {
+                long epoca = epoca(idPaciente);
+                pdf = Files.readAllBytes(archivo);
+                guardarEnMemoria(idPaciente, epoca, pdf);
+                registrarAcierto(aciertosDisco, pdf.length);
+                return Optional.of(pdf);
+            } catch (IOException e) {
+                // se invalidó mientras lo leíamos, lo tratamos como un fallo
+            }
+        }
+
+        fallos.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Época actual del paciente, se debe obtener antes de generar el PDF y entregarla al guardarlo
+     */
+    public long epoca(Long idPaciente) {
+        Invalidacion invalidacion = epocas.get(idPaciente);
+        return invalidacion != null ? invalidacion.epoca() : piso.get();
+    }
+
+    /**
+     * Guarda el PDF generado en memoria y en disco, salvo que el paciente haya cambiado mientras se generaba
+     * @param idPaciente ID del paciente
+     * @param epoca época obtenida antes de generar el PDF
+     * @param pdf PDF generado
+     */
+    public void guardar(Long idPaciente, long epoca, byte[] pdf) {
+        if (epoca != epoca(idPaciente)) {
+            return;
+        }
+
+        try {
+            Path temporal = Files.createTempFile(directorio, "tmp-", ".pdf");
+            Files.write(temporal, pdf);
+
+            if (!publicar(idPaciente, epoca, temporal)) {
+                return;
+            }
+        } catch (IOException e) {
+            // el nivel de disco es opcional, si falla seguimos solo con memoria
+            System.out.println("No se pudo guardar la ficha en el cache de disco: " + e.getMessage());
+        }
+
+        guardarEnMemoria(idPaciente, epoca, pdf);
+    }
+
+    /**
+     * Abre una escritura que copia al cache de disco lo que se escribe en la salida, para guardar
+     * la ficha mientras se exporta sin tenerla completa en memoria. Si la ficha completa no supera
+     * el umbral por ficha también queda en el nivel de memoria.
+     * El archivo solo se publica si se llama a completar() antes de cerrar la escritura.
+     * @param idPaciente ID del paciente
+     * @param epoca época obtenida antes de generar el PDF
+     * @param salida stream donde se escribe el PDF (ej: la respuesta HTTP), no se cierra al cerrar la escritura
+     * @return escritura a entregar al exportador del reporte
+     */
+    public Escritura abrirEscritura(Long idPaciente, long epoca, OutputStream salida) {
+        Path temporal = null;
+        OutputStream archivo = null;
+
+        try {
+            temporal = Files.createTempFile(directorio, "tmp-", ".pdf");
+            archivo = new BufferedOutputStream(Files.newOutputStream(temporal));
+        } catch (IOException e) {
+            // sin nivel de disco la ficha igual se escribe en la salida
+            System.out.println("No se pudo abrir el cache de disco: " + e.getMessage());
+            eliminar(temporal);
+            temporal = null;
+        }
+
+        ByteArrayOutputStream copia = memoriaMaxBytesFicha > 0 ? new ByteArrayOutputStream() : null;
+
+        return new Escritura(idPaciente, epoca, salida, temporal, archivo, copia);
+    }
+
+    /**
+     * Invalida el PDF cacheado de un paciente (se llama al actualizar o eliminar al paciente)
+     * @param idPaciente ID del paciente
+     */
+    public void invalidar(Long idPaciente) {
+        if (idPaciente == null) {
+            return;
+        }
+
+        long ahora = System.currentTimeMillis();
+        epocas.put(idPaciente, new Invalidacion(ultimaEpoca.incrementAndGet(), ahora));
+        limpiarEpocas(ahora);
+
+        synchronized (memoria) {
+            EntradaMemoria entrada = memoria.remove(idPaciente);
+            if (entrada != null) {
+                bytesEnMemoria -= entrada.pdf().length;
+            }
+        }
+
+        try {
+            Files.deleteIfExists(archivo(idPaciente));
+        } catch (IOException e) {
+            System.out.println("No se pudo eliminar la ficha del cache de disco: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Elimina del directorio las fichas que superaron el TTL, también las de pacientes que no se volvieron a pedir
+     */
+    @Scheduled(fixedDelayString = "${app.reportes.cache.limpieza:PT5M}")
+    public void limpiarDisco() {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "ficha-*.pdf")) {
+            for (Path archivo : archivos) {
+                try {
+                    if (expirado(Files.getLastModifiedTime(archivo).toMillis())) {
+                        eliminar(archivo);
+                    }
+                } catch (IOException e) {
+                    // se invalidó mientras recorríamos el directorio
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("No se pudo limpiar el cache de disco: " + e.getMessage());
+        }
+    }
+
+    public double getRatioAciertos() {
+        double aciertos = aciertosMemoria.count() + aciertosDisco.count();
+        double total = aciertos + fallos.count();
+        return total == 0 ? 0 : aciertos / total;
+    }
+
+    public double getBytesEnMemoria() {
+        synchronized (memoria) {
+            return bytesEnMemoria;
+        }
+    }
+
+    int getPacientesConEpoca() {
+        return epocas.size();
+    }
+
+    // una vez por TTL descarta las invalidaciones que ya no pueden coincidir con un PDF en generación ni en cache
+    private synchronized void limpiarEpocas(long ahora) {
+        if (ahora - ultimaLimpieza < ttlMillis) {
+            return;
+        }
+        ultimaLimpieza = ahora;
+
+        for (Map.Entry<Long, Invalidacion> entrada : epocas.entrySet()) {
+            Invalidacion invalidacion = entrada.getValue();
+
+            if (ahora - invalidacion.instante() > ttlMillis) {
+                // el piso sube antes de quitar la entrada, así epoca() nunca retorna un valor menor
+                piso.accumulateAndGet(invalidacion.epoca(), Math::max);
+                epocas.remove(entrada.getKey(), invalidacion);
+            }
+        }
+    }
+
+    private void registrarAcierto(Counter contador, long bytes) {
+        contador.increment();
+        bytesAhorrados.increment(bytes);
+    }
+
+    private byte[] obtenerDeMemoria(Long idPaciente) {
+        synchronized (memoria) {
+            EntradaMemoria entrada = memoria.get(idPaciente);
+
+            if (entrada == null) {
+                return null;
+            }
+
+            if (expirado(entrada.creado())) {
+                memoria.remove(idPaciente);
+                bytesEnMemoria -= entrada.pdf().length;
+                return null;
+            }
+
+            return entrada.pdf();
+        }
+    }
+
+    private void guardarEnMemoria(Long idPaciente, long epoca, byte[] pdf) {
+        // un PDF más grande que todo el nivel de memoria queda solo en disco
+        if (pdf.length > memoriaMaxBytes) {
+            return;
+        }
+
+        synchronized (memoria) {
+            if (epoca != epoca(idPaciente)) {
+                return;
+            }
+
+            EntradaMemoria anterior = memoria.put(idPaciente, new EntradaMemoria(pdf, System.currentTimeMillis()));
+            if (anterior != null) {
+                bytesEnMemoria -= anterior.pdf().length;
+            }
+            bytesEnMemoria += pdf.length;
+
+            // desalojamos los menos usados hasta volver al límite
+            Iterator<Map.Entry<Long, EntradaMemoria>> iterador = memoria.entrySet().iterator();
+            while (bytesEnMemoria > memoriaMaxBytes && iterador.hasNext()) {
+                bytesEnMemoria -= iterador.next().getValue().pdf().length;
+                iterador.remove();
+            }
+        }
+    }
+
+    // mueve el temporal a su lugar, descartándolo si el paciente cambió mientras se escribía
+    private boolean publicar(Long idPaciente, long epoca, Path temporal) throws IOException {
+        if (epoca != epoca(idPaciente)) {
+            Files.deleteIfExists(temporal);
+            return false;
+        }
+
+        Files.move(temporal, archivo(idPaciente), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // si se invalidó mientras movíamos el archivo lo descartamos
+        if (epoca != epoca(idPaciente)) {
+            Files.deleteIfExists(archivo(idPaciente));
+            return false;
+        }
+
+        return true;
+    }
+
+    private void eliminar(Path archivo) {
+        if (archivo == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            System.out.println("No se pudo eliminar el archivo del cache: " + e.getMessage());
+        }
+    }
+
+    private Path archivoVigente(Long idPaciente) {
+        Path archivo = archivo(idPaciente);
+
+        try {
+            if (!expirado(Files.getLastModifiedTime(archivo).toMillis())) {
+                return archivo;
+            }
+            // vencido: se elimina para que el disco no guarde una ficha por cada paciente generado desde el inicio
+            eliminar(archivo);
+        } catch (IOException e) {
+            // no está en disco o se eliminó entre la verificación y la lectura de su fecha
+        }
+
+        return null;
+    }
+
+    private boolean expirado(long creado) {
+        return System.currentTimeMillis() - creado > ttlMillis;
+    }
+
+    private Path archivo(Long idPaciente) {
+        return directorio.resolve("ficha-" + idPaciente + ".pdf");
+    }
+
+    private record EntradaMemoria(byte[] pdf, long creado) {}
+
+    private record Invalidacion(long epoca, long instante) {}
+
+    /*
+     * Stream que escribe en la salida y en paralelo en un archivo temporal del cache.
+     * Mientras la ficha no supere el umbral por ficha también se copia a un buffer para el nivel de memoria.
+     * Si falla el disco se deja de copiar al cache, pero la salida sigue recibiendo el PDF.
+    */
+    public class Escritura extends OutputStream {
+
+        private final Long idPaciente;
+        private final long epoca;
+        private final OutputStream salida;
+        private final Path temporal;
+        private OutputStream archivo;
+        private ByteArrayOutputStream copia;
+        private boolean completa;
+
+        private Escritura(Long idPaciente, long epoca, OutputStream salida, Path temporal, OutputStream archivo,
+                ByteArrayOutputStream copia) {
+            this.idPaciente = idPaciente;
+            this.epoca = epoca;
+            this.salida = salida;
+            this.temporal = temporal;
+            this.archivo = archivo;
+            this.copia = copia;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            salida.write(b);
+            copiarAMemoria(new byte[] { (byte) b }, 0, 1);
+
+            if (archivo != null) {
+                try {
+                    archivo.write(b);
+                } catch (IOException e) {
+                    descartarArchivo(e);
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            salida.write(b, off, len);
+            copiarAMemoria(b, off, len);
+
+            if (archivo != null) {
+                try {
+                    archivo.write(b, off, len);
+                } catch (IOException e) {
+                    descartarArchivo(e);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            salida.flush();
+        }
+
+        /**
+         * Marca el PDF como escrito por completo, al cerrar se publica en el cache
+         */
+        public void completar() {
+            this.completa = true;
+        }
+
+        @Override
+        public void close() {
+            if (archivo != null) {
+                try {
+                    archivo.close();
+                    archivo = null;
+
+                    if (completa) {
+                        publicar(idPaciente, epoca, temporal);
+                    }
+                } catch (IOException e) {
+                    System.out.println("No se pudo guardar la ficha en el cache de disco: " + e.getMessage());
+                } finally {
+                    // si no se completó (o no se pudo publicar) el temporal sobra
+                    eliminar(temporal);
+                }
+            }
+
+            // la siguiente descarga de una ficha pequeña se sirve desde memoria (si el paciente cambió no se guarda)
+            if (copia != null) {
+                if (completa) {
+                    guardarEnMemoria(idPaciente, epoca, copia.toByteArray());
+                }
+                copia = null;
+            }
+        }
+
+        // sobre el umbral se deja de copiar, esa ficha queda solo en disco
+        private void copiarAMemoria(byte[] b, int off, int len) {
+            if (copia == null) {
+                return;
+            }
+
+            if (copia.size() + (long) len > memoriaMaxBytesFicha) {
+                copia = null;
+                return;
+            }
+
+            copia.write(b, off, len);
+        }
+
+        private void descartarArchivo(IOException e) {
+            System.out.println("No se pudo escribir la ficha en el cache de disco: " + e.getMessage());
+
+            try {
+                archivo.close();
+            } catch (IOException ignorada) {
+                // el temporal se elimina igual
+            }
+
+            archivo = null;
+            eliminar(temporal);
+        }
+    }
+}
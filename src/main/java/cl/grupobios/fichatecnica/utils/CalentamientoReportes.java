@@ -0,0 +1,84 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Calentamiento del motor de reportes al iniciar: genera en memoria fichas de un paciente ficticio
+ * para que la carga de clases de Jasper, las extensiones de fuentes, la plantilla y el primer llenado
+ * no ocurran dentro de la primera solicitud real.
+ * Spring publica la disponibilidad ACCEPTING_TRAFFIC recién cuando terminan los ApplicationRunner,
+ * así el readiness de actuator queda fuera de servicio hasta que termine el calentamiento.
+*/
+@Component
+public class CalentamientoReportes implements ApplicationRunner {
+
+    private final ReporteUtils reporteUtils;
+    private final boolean habilitado;
+    private final int iteraciones;
+    private final Timer duracion;
+
+    public CalentamientoReportes(
+            ReporteUtils reporteUtils,
+            MeterRegistry meterRegistry,
+            @Value("${app.reportes.calentamiento.habilitado:true}") boolean habilitado,
+            @Value("${app.reportes.calentamiento.iteraciones:3}") int iteraciones) {
+        this.reporteUtils = reporteUtils;
+        this.habilitado = habilitado;
+        this.iteraciones = iteraciones;
+        this.duracion = Timer.builder("reportes.calentamiento")
+                .description("Duración del calentamiento del motor de reportes al iniciar")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!habilitado) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        Paciente paciente = pacienteFicticio();
+
+        try {
+            // varias vueltas para que el JIT alcance a compilar el camino del llenado y la exportación
+            for (int i = 0; i < iteraciones; i++) {
+                reporteUtils.exportarFichaTecnicaPdf(paciente, OutputStream.nullOutputStream());
+            }
+        } catch (Exception e) {
+            // si falla el motor de reportes el nodo igual puede atender el resto de la API
+            System.out.println("Error en el calentamiento de reportes: " + e.getMessage());
+        } finally {
+            long transcurrido = System.nanoTime() - inicio;
+            duracion.record(transcurrido, TimeUnit.NANOSECONDS);
+            System.out.println("Calentamiento de reportes terminado en " + TimeUnit.NANOSECONDS.toMillis(transcurrido) + " ms");
+        }
+    }
+
+    // paciente que no existe en la base de datos, solo se usa para llenar la plantilla
+    private Paciente pacienteFicticio() {
+        return new Paciente(
+            0L,
+            "PAC-000",
+            "Paciente Calentamiento",
+            "11111111-1",
+            "calentamiento@grupobios.cl",
+            LocalDate.of(1990, 1, 1),
+            0,
+            new Genero(0L, "Genero", "G"),
+            new TipoSangre(0L, "O+")
+        );
+    }
+}
@@ -0,0 +1,77 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Carga el índice de nombres con los pacientes activos al iniciar, recorriendo el mismo cursor del listado exportable.
+ * Desde ahí los comandos de crear, actualizar y eliminar lo mantienen al día. Como el nodo ya recibe escrituras
+ * durante la carga, lo que modifican los comandos mientras tanto prevalece sobre la fila que entrega el cursor.
+ * Igual que el calentamiento de reportes, corre antes de que el nodo quede ACCEPTING_TRAFFIC.
+*/
+@Component
+public class CargaIndiceNombresPacientes implements ApplicationRunner {
+
+    private final IndiceNombresPacientes indice;
+    private final IPacienteRepository pacienteRepository;
+    private final TransactionTemplate transaccionLectura;
+    private final boolean habilitado;
+    private final Timer duracion;
+
+    public CargaIndiceNombresPacientes(
+            IndiceNombresPacientes indice,
+            IPacienteRepository pacienteRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.pacientes.indice-nombres.habilitado:true}") boolean habilitado) {
+        this.indice = indice;
+        this.pacienteRepository = pacienteRepository;
+        this.habilitado = habilitado;
+        this.duracion = Timer.builder("pacientes.indice-nombres.carga")
+                .description("Duración de la carga del índice de nombres de pacientes al iniciar")
+                .register(meterRegistry);
+
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!habilitado) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        indice.iniciarCarga();
+
+        try {
+            transaccionLectura.executeWithoutResult(estado -> {
+                try (Stream<PacienteDTO> pacientes = pacienteRepository.streamListadoPacientes()) {
+                    pacientes.forEach(paciente -> indice.cargar(paciente.getIdPaciente(), paciente.getNombrePaciente()));
+                }
+            });
+        } catch (Exception e) {
+            // sin índice el autocompletado no sugiere nada, pero el resto de la API funciona
+            System.out.println("Error al cargar el índice de nombres de pacientes: " + e.getMessage());
+        } finally {
+            indice.terminarCarga();
+
+            long transcurrido = System.nanoTime() - inicio;
+            duracion.record(transcurrido, TimeUnit.NANOSECONDS);
+            System.out.println("Índice de nombres cargado con " + indice.tamano() + " pacientes en "
+                    + TimeUnit.NANOSECONDS.toMillis(transcurrido) + " ms");
+        }
+    }
+}
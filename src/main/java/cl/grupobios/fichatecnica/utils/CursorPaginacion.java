@@ -0,0 +1,50 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+
+/*
+ * Cursor opaco para la paginación por llave (keyset): guarda el último id entregado.
+ * El cliente solo lo reenvía, así podemos cambiar su contenido sin romper la API.
+*/
+public final class CursorPaginacion {
+    private static final String PREFIJO = "id:";
+
+    private CursorPaginacion() {}
+
+    /**
+     * Codifica el último id de la página como cursor
+     * @param ultimoId id del último elemento entregado
+     * @return cursor en base64 url (sin relleno)
+     */
+    public static String codificar(Long ultimoId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIJO + ultimoId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Obtiene el id desde donde continuar
+     * @param cursor cursor entregado en la página anterior, null o vacío para la primera página
+     * @return id después del cual continuar (0 para la primera página)
+     * @throws ValidationException si el cursor no es válido
+     */
+    public static long decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            if (!valor.startsWith(PREFIJO)) {
+                throw new IllegalArgumentException();
+            }
+
+            return Long.parseLong(valor.substring(PREFIJO.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Cursor de paginación inválido");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
+
+/*
+ * ETag fuerte de un paciente: "id-versión-fecha". La versión cambia con cada UPDATE del paciente y la fecha del día
+ * cubre lo que cambia sin modificarlo (la edad en el JSON, la edad y la fecha de emisión en la ficha PDF).
+ * Así una respuesta igual se puede revalidar con If-None-Match sin leer el paciente completo ni generar el PDF.
+ * Un cambio de nombre en el genero o el tipo de sangre no cambia el ETag, son datos de referencia que casi no cambian
+*/
+public final class ETagPaciente {
+
+    private ETagPaciente() {}
+
+    /**
+     * @param id id del paciente
+     * @param version versión actual del paciente
+     * @return ETag entre comillas, listo para el header
+     */
+    public static String de(Long id, long version) {
+        return "\"" + id + "-" + version + "-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + "\"";
+    }
+
+    /**
+     * Compara un If-None-Match con el ETag actual (comparación débil: se ignora el prefijo W/)
+     * @param ifNoneMatch valor del header, puede ser una lista separada por comas o *
+     * @param etag ETag actual del paciente
+     * @return true si el cliente ya tiene esta misma representación
+     */
+    public static boolean coincide(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+
+        for (String candidato : ifNoneMatch.split(",")) {
+            candidato = candidato.trim();
+            if (candidato.equals("*")) {
+                return true;
+            }
+            if (candidato.startsWith("W/")) {
+                candidato = candidato.substring(2);
+            }
+            if (candidato.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Versión que el cliente leyó según su If-Match. Solo importa la versión: un ETag de otro día con la misma
+     * versión sigue siendo válido para modificar, porque los datos del paciente no cambiaron
+     * @param ifMatch valor del header
+     * @param id id del paciente que se va a modificar
+     * @return la versión esperada, o null si no hay If-Match o es * (basta con que el paciente exista)
+     * @throws ConcurrencyException si el ETag no es de este paciente o no tiene el formato, no puede coincidir con ninguna versión
+     */
+    public static Long versionEsperada(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        String etag = ifMatch.trim();
+        String[] partes = etag.length() > 2 && etag.startsWith("\"") && etag.endsWith("\"")
+                ? etag.substring(1, etag.length() - 1).split("-")
+                : new String[0];
+
+        if (partes.length != 3 || !partes[0].equals(String.valueOf(id))) {
+            throw new ConcurrencyException("El If-Match no corresponde a una versión del paciente " + id + ": " + ifMatch);
+        }
+
+        try {
+            return Long.parseLong(partes[1]);
+        } catch (NumberFormatException e) {
+            throw new ConcurrencyException("El If-Match no corresponde a una versión del paciente " + id + ": " + ifMatch);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Component;
+
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+
+/*
+ * Escribe el listado de pacientes en CSV o XLSX fila por fila a medida que se lee el Stream,
+ * sin tener el listado completo en memoria.
+*/
+@Component
+public class ExportadorListadoPacientes {
+
+    // filas que el XLSX mantiene en memoria, las anteriores se bajan a un archivo temporal comprimido
+    private static final int FILAS_EN_MEMORIA = 100;
+
+    private static final String[] COLUMNAS = {
+        "ID", "Nro paciente", "Nombre", "RUT", "Correo", "Fecha de nacimiento", "Genero", "Tipo de sangre"
+    };
+
+    /**
+     * Escribe el listado en CSV (UTF-8 con BOM para que Excel reconozca los acentos)
+     * @param pacientes pacientes a exportar, se recorren una sola vez
+     * @param salida stream donde se escribe el CSV (no se cierra)
+     */
+    public void escribirCsv(Stream<PacienteDTO> pacientes, OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        writer.write(String.join(";", COLUMNAS));
+        writer.write("\r\n");
+
+        Iterator<PacienteDTO> iterador = pacientes.iterator();
+        while (iterador.hasNext()) {
+            PacienteDTO paciente = iterador.next();
+            writer.write(String.valueOf(paciente.getIdPaciente()));
+            writer.write(';');
+            writer.write(csv(paciente.getNroPaciente()));
+            writer.write(';');
+            writer.write(csv(paciente.getNombrePaciente()));
+            writer.write(';');
+            writer.write(csv(paciente.getRutPaciente()));
+            writer.write(';');
+            writer.write(csv(paciente.getCorreoPaciente()));
+            writer.write(';');
+            writer.write(paciente.getFechaNacimiento() != null ? paciente.getFechaNacimiento().toString() : "");
+            writer.write(';');
+            writer.write(csv(paciente.getGeneroNombre()));
+            writer.write(';');
+            writer.write(csv(paciente.getTipoSangreNombre()));
+            writer.write("\r\n");
+        }
+
+        // flush y no close, el stream de salida lo cierra quien lo abrió
+        writer.flush();
+    }
+
+    /**
+     * Escribe el listado en XLSX con SXSSF (ventana de filas en memoria de tamaño fijo)
+     * @param pacientes pacientes a exportar, se recorren una sola vez
+     * @param salida stream donde se escribe el XLSX (no se cierra)
+     */
+    public void escribirXlsx(Stream<PacienteDTO> pacientes, OutputStream salida) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(FILAS_EN_MEMORIA);
+        workbook.setCompressTempFiles(true);
+
+        try {
+            Sheet hoja = workbook.createSheet("Pacientes");
+
+            CellStyle estiloFecha = workbook.createCellStyle();
+            estiloFecha.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd-mm-yyyy"));
+
+            Row encabezado = hoja.createRow(0);
+            for (int i = 0; i < COLUMNAS.length; i++) {
+                encabezado.createCell(i).setCellValue(COLUMNAS[i]);
+            }
+
+            int numeroFila = 1;
+            Iterator<PacienteDTO> iterador = pacientes.iterator();
+            while (iterador.hasNext()) {
+                PacienteDTO paciente = iterador.next();
+                Row fila = hoja.createRow(numeroFila++);
+
+                fila.createCell(0).setCellValue(paciente.getIdPaciente());
+                fila.createCell(1).setCellValue(paciente.getNroPaciente());
+                fila.createCell(2).setCellValue(paciente.getNombrePaciente());
+                fila.createCell(3).setCellValue(paciente.getRutPaciente());
+                fila.createCell(4).setCellValue(paciente.getCorreoPaciente());
+                if (paciente.getFechaNacimiento() != null) {
+                    Cell fecha = fila.createCell(5);
+                    fecha.setCellValue(paciente.getFechaNacimiento());
+                    fecha.setCellStyle(estiloFecha);
+                }
+                fila.createCell(6).setCellValue(paciente.getGeneroNombre());
+                fila.createCell(7).setCellValue(paciente.getTipoSangreNombre());
+            }
+
+            workbook.write(salida);
+        } finally {
+            // elimina los archivos temporales de la ventana de filas
+            workbook.close();
+        }
+    }
+
+    /**
+     * Escribe el listado en el formato indicado
+     * @param formato csv o xlsx
+     */
+    public void escribir(String formato, Stream<PacienteDTO> pacientes, OutputStream salida) {
+        try {
+            if ("xlsx".equalsIgnoreCase(formato)) {
+                escribirXlsx(pacientes, salida);
+            } else {
+                escribirCsv(pacientes, salida);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al exportar el listado de pacientes: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Escapamos los campos que traen separador, comillas o saltos de línea.
+     * Los que empiezan como una fórmula (=, +, -, @, tabulación o retorno) llevan un ' adelante,
+     * así Excel los muestra como texto: los nombres y correos pueden venir de un archivo importado
+    */
+    private String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+
+        if (!valor.isEmpty() && "=+-@\t\r".indexOf(valor.charAt(0)) >= 0) {
+            valor = "'" + valor;
+        }
+
+        if (valor.indexOf(';') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+
+        return valor;
+    }
+}
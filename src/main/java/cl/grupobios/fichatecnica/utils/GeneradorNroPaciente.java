@@ -0,0 +1,114 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Número de paciente con el esquema tiempo + nodo + contador (64 bits):
+ * 41 bits de milisegundos desde 2025-01-01, 10 bits del nodo y 12 bits de contador dentro del milisegundo.
+ * Se escribe en base 32 de Crockford (solo ASCII, sin I, L, O ni U para no confundirlos al dictarlos)
+ * en 13 caracteres más un dígito verificador Luhn mod 32, 14 en total.
+ *
+ * Dos nodos con distinto app.pacientes.numero.nodo nunca generan el mismo número, y dentro del nodo el estado
+ * (milisegundo y contador) avanza con compareAndSet, sin locks ni SecureRandom.
+ * Si el reloj retrocede o se agotan los 4096 números de un milisegundo, se sigue contando desde el último
+ * número entregado, de modo que nunca se repite.
+*/
+@Component
+public class GeneradorNroPaciente implements IGeneradorNroPaciente {
+
+    static final String ALFABETO = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    static final int LONGITUD = 14;
+
+    private static final long EPOCA = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    private static final int BITS_NODO = 10;
+    private static final int BITS_CONTADOR = 12;
+    public static final int NODO_MAXIMO = (1 << BITS_NODO) - 1;
+
+    private final long nodo;
+    private final Clock reloj;
+
+    // milisegundo y contador del último número entregado, juntos para actualizarlos en una sola operación
+    private final AtomicLong ultimo = new AtomicLong();
+
+    @Autowired
+    public GeneradorNroPaciente(@Value("${app.pacientes.numero.nodo:0}") int nodo) {
+        this(nodo, Clock.systemUTC());
+
+        // 0 es el valor por defecto cuando no se define NODO_ID: dos instancias con el mismo nodo pueden generar
+        // el mismo número en el mismo milisegundo y el registro falla por uk_pacientes_nro
+        if (nodo == 0) {
+            System.out.println("Generador de número de paciente con el nodo 0 (NODO_ID sin definir): "
+                    + "si hay más de una instancia, cada una debe tener su propio NODO_ID entre 0 y " + NODO_MAXIMO);
+        }
+    }
+
+    GeneradorNroPaciente(int nodo, Clock reloj) {
+        if (nodo < 0 || nodo > NODO_MAXIMO) {
+            throw new IllegalArgumentException("El nodo del generador de número de paciente debe estar entre 0 y " + NODO_MAXIMO);
+        }
+        this.nodo = nodo;
+        this.reloj = reloj;
+    }
+
+    @Override
+    public String generar() {
+        long ahora = (reloj.millis() - EPOCA) << BITS_CONTADOR;
+
+        // el contador desborda solo hacia el milisegundo siguiente
+        long estado = ultimo.updateAndGet(anterior -> Math.max(ahora, anterior + 1));
+
+        long milisegundo = estado >>> BITS_CONTADOR;
+        long contador = estado & ((1L << BITS_CONTADOR) - 1);
+
+        return codificar((milisegundo << (BITS_NODO + BITS_CONTADOR)) | (nodo << BITS_CONTADOR) | contador);
+    }
+
+    // verifica el largo, el alfabeto y el dígito verificador de un número de paciente
+    public static boolean esValido(String numero) {
+        if (numero == null || numero.length() != LONGITUD) {
+            return false;
+        }
+
+        for (int i = 0; i < LONGITUD; i++) {
+            if (ALFABETO.indexOf(numero.charAt(i)) < 0) {
+                return false;
+            }
+        }
+
+        return digitoVerificador(numero, LONGITUD - 1) == numero.charAt(LONGITUD - 1);
+    }
+
+    private static String codificar(long valor) {
+        char[] caracteres = new char[LONGITUD];
+
+        // 13 caracteres de 5 bits cubren los 64 bits (el primero lleva solo los 4 más altos)
+        for (int i = LONGITUD - 2; i >= 0; i--) {
+            caracteres[i] = ALFABETO.charAt((int) (valor & 31));
+            valor >>>= 5;
+        }
+
+        String sinVerificador = new String(caracteres, 0, LONGITUD - 1);
+        caracteres[LONGITUD - 1] = digitoVerificador(sinVerificador, LONGITUD - 1);
+        return new String(caracteres);
+    }
+
+    // Luhn mod 32: detecta cualquier carácter cambiado y el intercambio de dos vecinos (salvo el par 0 y Z)
+    private static char digitoVerificador(String numero, int largo) {
+        int factor = 2;
+        int suma = 0;
+
+        for (int i = largo - 1; i >= 0; i--) {
+            int sumando = factor * ALFABETO.indexOf(numero.charAt(i));
+            suma += sumando / 32 + sumando % 32;
+            factor = factor == 2 ? 1 : 2;
+        }
+
+        return ALFABETO.charAt((32 - suma % 32) % 32);
+    }
+}
@@ -0,0 +1,10 @@
+package cl.grupobios.fichatecnica.utils;
+
+/*
+ * Genera el número de paciente (nro_paciente). Cada número debe ser único por construcción,
+ * sin consultar la base de datos: la restricción única de la tabla queda solo como respaldo.
+*/
+public interface IGeneradorNroPaciente {
+
+    String generar();
+}
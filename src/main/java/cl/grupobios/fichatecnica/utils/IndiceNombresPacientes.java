@@ -0,0 +1,537 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import cl.grupobios.fichatecnica.dtos.SugerenciaPacienteDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Índice en memoria de los nombres de los pacientes activos para el autocompletado de recepción.
+ * Los nombres se normalizan (sin tildes, ñ como n, minúsculas) y se separan en palabras; cada palabra distinta
+ * queda una sola vez en un trie con la lista de ids de los pacientes que la tienen.
+ * La búsqueda recorre el trie calculando la distancia de edición contra cada palabra de la consulta,
+ * así los errores de tipeo se resuelven sin revisar cada paciente, y la última palabra se completa como prefijo.
+*/
+@Component
+public class IndiceNombresPacientes {
+
+    // cantidad máxima de sugerencias por consulta
+    public static final int MAXIMO_SUGERENCIAS = 50;
+
+    // largo mínimo de la consulta normalizada, con menos el prefijo coincide con casi todos los pacientes
+    private static final int LARGO_MINIMO = 2;
+
+    // costos para ordenar: palabra exacta, palabra completada desde el prefijo y palabra con errores (1 + distancia)
+    private static final int COSTO_EXACTO = 0;
+    private static final int COSTO_PREFIJO = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Nodo raiz = new Nodo();
+    // nombre original y sus palabras normalizadas (las mismas instancias que guarda el trie) por id de paciente
+    private final Map<Long, Entrada> entradas = new HashMap<>();
+
+    /*
+     * Mientras se carga el índice al iniciar, el nodo ya recibe escrituras y la fila que entrega el cursor puede ser
+     * anterior a ellas. Se recuerdan los ids que los comandos ya dejaron al día (la fila del cursor se ignora)
+     * y los nombres nuevos de pacientes que aún no se cargan, porque renombrar no sabe si están activos
+    */
+    private boolean cargando;
+    private final Set<Long> modificadosEnCarga = new HashSet<>();
+    private final Map<Long, String> renombradosEnCarga = new HashMap<>();
+
+    public IndiceNombresPacientes(MeterRegistry meterRegistry) {
+        Gauge.builder("pacientes.indice-nombres.tamano", this, IndiceNombresPacientes::tamano)
+                .description("Pacientes activos en el índice de nombres")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Agrega (o reemplaza) el nombre de un paciente en el índice
+     * @param id id del paciente
+     * @param nombre nombre tal como está registrado
+     */
+    public void agregar(Long id, String nombre) {
+        if (id == null || nombre == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            agregarSinLock(id, nombre);
+            registrarModificacion(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cambia el nombre de un paciente solo si ya está en el índice, para cuando no se sabe si está activo
+     * (los inactivos no están y así no se agregan)
+     * @param id id del paciente
+     * @param nombre nombre nuevo tal como quedó registrado
+     */
+    public void renombrar(Long id, String nombre) {
+        if (id == null || nombre == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (entradas.containsKey(id)) {
+                agregarSinLock(id, nombre);
+                registrarModificacion(id);
+            } else if (cargando && !modificadosEnCarga.contains(id)) {
+                // si el cursor lo trae activo se carga con el nombre nuevo
+                renombradosEnCarga.put(id, nombre);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void agregarSinLock(Long id, String nombre) {
+        quitarSinLock(id);
+
+        List<String> palabras = palabras(nombre);
+        String[] palabrasIndexadas = new String[palabras.size()];
+        for (int i = 0; i < palabrasIndexadas.length; i++) {
+            Nodo nodo = raiz.insertar(palabras.get(i));
+            nodo.agregar(id);
+            palabrasIndexadas[i] = nodo.palabra;
+        }
+        entradas.put(id, new Entrada(nombre, palabrasIndexadas));
+    }
+
+    /**
+     * Actualiza el índice después de modificar un paciente: los inactivos se quitan
+     */
+    public void actualizar(Long id, String nombre, boolean activo) {
+        if (activo) {
+            agregar(id, nombre);
+        } else {
+            quitar(id);
+        }
+    }
+
+    public void quitar(Long id) {
+        if (id == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            quitarSinLock(id);
+            registrarModificacion(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empieza la carga inicial: desde aquí se recuerdan los pacientes que modifican los comandos
+     */
+    public void iniciarCarga() {
+        lock.writeLock().lock();
+        try {
+            cargando = true;
+            modificadosEnCarga.clear();
+            renombradosEnCarga.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega un paciente activo leído por la carga inicial, salvo que un comando ya lo haya modificado durante la carga
+     * @param id id del paciente
+     * @param nombre nombre según el cursor (puede estar desactualizado)
+     */
+    public void cargar(Long id, String nombre) {
+        if (id == null || nombre == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (cargando && modificadosEnCarga.contains(id)) {
+                return;
+            }
+
+            String renombrado = renombradosEnCarga.remove(id);
+            agregarSinLock(id, renombrado != null ? renombrado : nombre);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Termina la carga inicial (también si falló), los comandos vuelven a actualizar el índice sin registrar nada
+     */
+    public void terminarCarga() {
+        lock.writeLock().lock();
+        try {
+            cargando = false;
+            modificadosEnCarga.clear();
+            renombradosEnCarga.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // debe llamarse con el lock de escritura tomado
+    private void registrarModificacion(Long id) {
+        if (cargando) {
+            modificadosEnCarga.add(id);
+            renombradosEnCarga.remove(id);
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return entradas.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los pacientes cuyo nombre contiene todas las palabras de la consulta (con errores de tipeo tolerados),
+     * ordenados de la coincidencia más cercana a la más lejana
+     * @param texto lo que escribió el usuario, la última palabra puede estar incompleta
+     * @param limite cantidad máxima de sugerencias
+     * @return sugerencias ordenadas por distancia y nombre
+     */
+    public List<SugerenciaPacienteDTO> buscar(String texto, int limite) {
+        List<String> consulta = palabras(texto);
+        if (limite < 1 || String.join("", consulta).length() < LARGO_MINIMO) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // coincidencias del diccionario para cada palabra de la consulta
+            List<Map<String, Coincidencia>> coincidencias = new ArrayList<>();
+            for (int i = 0; i < consulta.size(); i++) {
+                Map<String, Coincidencia> encontradas = coincidenciasDe(consulta.get(i), i == consulta.size() - 1);
+                if (encontradas.isEmpty()) {
+                    return List.of();
+                }
+                coincidencias.add(encontradas);
+            }
+
+            return rankear(coincidencias, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Normaliza un texto para comparar nombres: sin tildes ni diéresis, ñ como n, minúsculas y solo letras y números
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+
+        String sinMarcas = Normalizer.normalize(texto, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return sinMarcas.toLowerCase().replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    // palabras distintas del texto normalizado, en el orden en que aparecen
+    static List<String> palabras(String texto) {
+        String normalizado = normalizar(texto);
+        if (normalizado.isEmpty()) {
+            return List.of();
+        }
+
+        return new ArrayList<>(new LinkedHashSet<>(Arrays.asList(normalizado.split(" "))));
+    }
+
+    private void quitarSinLock(Long id) {
+        Entrada anterior = entradas.remove(id);
+        if (anterior == null) {
+            return;
+        }
+
+        for (String palabra : anterior.palabras) {
+            Nodo nodo = raiz.buscar(palabra);
+            if (nodo != null) {
+                nodo.quitar(id);
+            }
+        }
+    }
+
+    /*
+     * Palabras del diccionario que calzan con una palabra de la consulta: la exacta, las que están a la distancia
+     * de edición tolerada según su largo y, si es la última palabra, las que empiezan con ella
+    */
+    private Map<String, Coincidencia> coincidenciasDe(String palabra, boolean completarPrefijo) {
+        Map<String, Coincidencia> encontradas = new HashMap<>();
+        char[] letras = palabra.toCharArray();
+
+        int[] filaInicial = new int[letras.length + 1];
+        for (int i = 0; i < filaInicial.length; i++) {
+            filaInicial[i] = i;
+        }
+        buscarAproximado(raiz, new StringBuilder(), letras, filaInicial, distanciaTolerada(letras.length), encontradas);
+
+        if (completarPrefijo) {
+            Nodo nodoPrefijo = raiz.buscar(palabra);
+            if (nodoPrefijo != null) {
+                recolectar(nodoPrefijo, new StringBuilder(palabra), encontradas);
+            }
+        }
+
+        return encontradas;
+    }
+
+    // errores de tipeo tolerados: ninguno en palabras cortas, donde casi todo quedaría a distancia 1
+    private static int distanciaTolerada(int largo) {
+        if (largo <= 3) {
+            return 0;
+        }
+        return largo <= 6 ? 1 : 2;
+    }
+
+    /*
+     * Distancia de Levenshtein contra todas las palabras del trie a la vez: cada nodo calcula su fila a partir
+     * de la fila del padre, y si el mínimo de la fila supera la distancia tolerada no se baja por esa rama
+    */
+    private void buscarAproximado(Nodo nodo, StringBuilder prefijo, char[] palabra, int[] filaPadre, int maximo,
+            Map<String, Coincidencia> encontradas) {
+        for (int i = 0; i < nodo.cantidadHijos; i++) {
+            char letra = nodo.letras[i];
+            Nodo hijo = nodo.hijos[i];
+
+            int[] fila = new int[palabra.length + 1];
+            fila[0] = filaPadre[0] + 1;
+            int minimo = fila[0];
+            for (int j = 1; j <= palabra.length; j++) {
+                int sustitucion = filaPadre[j - 1] + (palabra[j - 1] == letra ? 0 : 1);
+                fila[j] = Math.min(sustitucion, Math.min(fila[j - 1] + 1, filaPadre[j] + 1));
+                minimo = Math.min(minimo, fila[j]);
+            }
+
+            prefijo.append(letra);
+            int distancia = fila[palabra.length];
+            if (hijo.cantidadIds > 0 && distancia <= maximo) {
+                registrar(encontradas, prefijo.toString(), hijo, distancia == 0 ? COSTO_EXACTO : 1 + distancia);
+            }
+            if (minimo <= maximo) {
+                buscarAproximado(hijo, prefijo, palabra, fila, maximo, encontradas);
+            }
+            prefijo.setLength(prefijo.length() - 1);
+        }
+    }
+
+    // todas las palabras bajo el prefijo (la propia palabra ya quedó registrada como exacta)
+    private void recolectar(Nodo nodo, StringBuilder prefijo, Map<String, Coincidencia> encontradas) {
+        for (int i = 0; i < nodo.cantidadHijos; i++) {
+            Nodo hijo = nodo.hijos[i];
+            prefijo.append(nodo.letras[i]);
+            if (hijo.cantidadIds > 0) {
+                registrar(encontradas, prefijo.toString(), hijo, COSTO_PREFIJO);
+            }
+            recolectar(hijo, prefijo, encontradas);
+            prefijo.setLength(prefijo.length() - 1);
+        }
+    }
+
+    private static void registrar(Map<String, Coincidencia> encontradas, String palabra, Nodo nodo, int costo) {
+        Coincidencia actual = encontradas.get(palabra);
+        if (actual == null || costo < actual.costo) {
+            encontradas.put(palabra, new Coincidencia(palabra, nodo, costo));
+        }
+    }
+
+    /*
+     * Se recorren los ids de la palabra de la consulta con menos pacientes, de menor a mayor costo, y cada candidato
+     * se verifica contra las demás palabras con las palabras de su nombre. Ningún candidato de un nivel puede costar
+     * menos que el costo del nivel más el mínimo posible de las demás palabras: cuando ya hay "limite" pacientes
+     * con ese costo o menos, ningún candidato posterior puede quedar antes y se deja de buscar
+    */
+    private List<SugerenciaPacienteDTO> rankear(List<Map<String, Coincidencia>> coincidencias, int limite) {
+        int guia = 0;
+        long menorCantidad = Long.MAX_VALUE;
+        for (int i = 0; i < coincidencias.size(); i++) {
+            long cantidad = coincidencias.get(i).values().stream().mapToLong(c -> c.nodo.cantidadIds).sum();
+            if (cantidad < menorCantidad) {
+                menorCantidad = cantidad;
+                guia = i;
+            }
+        }
+
+        List<Coincidencia> niveles = new ArrayList<>(coincidencias.get(guia).values());
+        niveles.sort(Comparator.comparingInt((Coincidencia c) -> c.costo).thenComparing(c -> c.palabra));
+
+        int minimoResto = 0;
+        for (int i = 0; i < coincidencias.size(); i++) {
+            if (i != guia) {
+                minimoResto += coincidencias.get(i).values().stream().mapToInt(c -> c.costo).min().orElse(0);
+            }
+        }
+
+        List<SugerenciaPacienteDTO> resultados = new ArrayList<>();
+        Set<Long> revisados = new HashSet<>();
+        int nivelActual = -1;
+        int costoDefinitivo = -1;
+        int definitivos = 0;
+
+        recorrido:
+        for (Coincidencia coincidencia : niveles) {
+            if (coincidencia.costo != nivelActual) {
+                nivelActual = coincidencia.costo;
+                costoDefinitivo = nivelActual + minimoResto;
+                definitivos = 0;
+                for (SugerenciaPacienteDTO resultado : resultados) {
+                    if (resultado.getDistancia() <= costoDefinitivo) {
+                        definitivos++;
+                    }
+                }
+                if (definitivos >= limite) {
+                    break;
+                }
+            }
+
+            Nodo nodo = coincidencia.nodo;
+            for (int i = 0; i < nodo.cantidadIds; i++) {
+                long id = nodo.ids[i];
+                if (!revisados.add(id)) {
+                    continue;
+                }
+
+                Entrada entrada = entradas.get(id);
+                int costo = costoTotal(entrada.palabras, coincidencias, guia, coincidencia.costo);
+                if (costo < 0) {
+                    continue;
+                }
+
+                resultados.add(new SugerenciaPacienteDTO(id, entrada.nombre, costo));
+                if (costo <= costoDefinitivo && ++definitivos >= limite) {
+                    break recorrido;
+                }
+            }
+        }
+
+        resultados.sort(Comparator.comparingInt(SugerenciaPacienteDTO::getDistancia)
+                .thenComparing(SugerenciaPacienteDTO::getNombrePaciente)
+                .thenComparing(SugerenciaPacienteDTO::getIdPaciente));
+        return resultados.size() > limite ? new ArrayList<>(resultados.subList(0, limite)) : resultados;
+    }
+
+    // costo del paciente sumando la mejor palabra de su nombre para cada palabra de la consulta, -1 si alguna no calza
+    private int costoTotal(String[] palabrasNombre, List<Map<String, Coincidencia>> coincidencias, int guia, int costoGuia) {
+        int total = costoGuia;
+        for (int i = 0; i < coincidencias.size(); i++) {
+            if (i == guia) {
+                continue;
+            }
+
+            int mejor = Integer.MAX_VALUE;
+            for (String palabra : palabrasNombre) {
+                Coincidencia coincidencia = coincidencias.get(i).get(palabra);
+                if (coincidencia != null) {
+                    mejor = Math.min(mejor, coincidencia.costo);
+                }
+            }
+
+            if (mejor == Integer.MAX_VALUE) {
+                return -1;
+            }
+            total += mejor;
+        }
+
+        return total;
+    }
+
+    private record Coincidencia(String palabra, Nodo nodo, int costo) {
+    }
+
+    private record Entrada(String nombre, String[] palabras) {
+    }
+
+    /*
+     * Nodo del trie: los hijos van en arreglos ordenados por letra (más livianos que un mapa por nodo)
+     * y si el nodo cierra una palabra guarda los ids de los pacientes que la tienen
+    */
+    private static final class Nodo {
+        private char[] letras = new char[0];
+        private Nodo[] hijos = new Nodo[0];
+        private int cantidadHijos;
+        private String palabra;
+        private long[] ids;
+        private int cantidadIds;
+
+        Nodo buscar(String palabra) {
+            Nodo nodo = this;
+            for (int i = 0; i < palabra.length() && nodo != null; i++) {
+                int posicion = Arrays.binarySearch(nodo.letras, 0, nodo.cantidadHijos, palabra.charAt(i));
+                nodo = posicion >= 0 ? nodo.hijos[posicion] : null;
+            }
+            return nodo;
+        }
+
+        Nodo insertar(String palabra) {
+            Nodo nodo = this;
+            for (int i = 0; i < palabra.length(); i++) {
+                char letra = palabra.charAt(i);
+                int posicion = Arrays.binarySearch(nodo.letras, 0, nodo.cantidadHijos, letra);
+                if (posicion < 0) {
+                    posicion = -posicion - 1;
+                    nodo.agregarHijo(posicion, letra);
+                }
+                nodo = nodo.hijos[posicion];
+            }
+            if (nodo.palabra == null) {
+                nodo.palabra = palabra;
+            }
+            return nodo;
+        }
+
+        private void agregarHijo(int posicion, char letra) {
+            if (cantidadHijos == letras.length) {
+                int capacidad = Math.max(2, cantidadHijos * 2);
+                letras = Arrays.copyOf(letras, capacidad);
+                hijos = Arrays.copyOf(hijos, capacidad);
+            }
+            System.arraycopy(letras, posicion, letras, posicion + 1, cantidadHijos - posicion);
+            System.arraycopy(hijos, posicion, hijos, posicion + 1, cantidadHijos - posicion);
+            letras[posicion] = letra;
+            hijos[posicion] = new Nodo();
+            cantidadHijos++;
+        }
+
+        void agregar(long id) {
+            if (ids == null) {
+                ids = new long[2];
+            } else if (cantidadIds == ids.length) {
+                ids = Arrays.copyOf(ids, cantidadIds * 2);
+            }
+            ids[cantidadIds++] = id;
+        }
+
+        // el orden de los ids no importa, el último ocupa el lugar del que se quita
+        void quitar(long id) {
+            for (int i = 0; i < cantidadIds; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--cantidadIds];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.grupobios.fichatecnica.dtos.FilaImportacionPacienteDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+
+/*
+ * Lee las filas de la importación masiva de pacientes desde un CSV o un arreglo JSON a medida que se recorren,
+ * sin cargar el archivo completo en memoria (en JSON se arma un objeto a la vez).
+ * Ambos formatos usan los mismos campos: nombrePaciente, rutPaciente, correoPaciente, fechaNacimiento (AAAA-MM-DD),
+ * generoId y tipoSangreId. Un valor que no se puede convertir queda como error de la fila y no detiene la lectura.
+*/
+@Component
+public class LectorImportacionPacientes {
+
+    public static final String CSV = "csv";
+    public static final String JSON = "json";
+
+    private static final String[] CAMPOS = {
+        "nombrePaciente", "rutPaciente", "correoPaciente", "fechaNacimiento", "generoId", "tipoSangreId"
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public LectorImportacionPacientes(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Prepara la lectura de las filas, el contenido se lee recién al recorrer el iterador
+     * @param entrada contenido del archivo (no se cierra)
+     * @param formato csv o json
+     * @return filas en el orden del archivo
+     * @throws ValidationException si el formato no es soportado o el archivo no parte como corresponde
+     */
+    public Iterator<FilaImportacionPacienteDTO> leer(InputStream entrada, String formato) throws IOException {
+        if (CSV.equalsIgnoreCase(formato)) {
+            return new FilasCsv(new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8)));
+        }
+
+        if (JSON.equalsIgnoreCase(formato)) {
+            JsonParser parser = objectMapper.getFactory().createParser(entrada);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ValidationException("El JSON de la importación debe ser un arreglo de pacientes");
+            }
+            return new FilasJson(parser);
+        }
+
+        throw new ValidationException("Formato de importación no soportado: " + formato + ", use csv o json");
+    }
+
+    // convierte el valor de texto de un campo, dejando el error en la fila si no se puede
+    private static void asignar(FilaImportacionPacienteDTO fila, String campo, String valor) {
+        if (valor == null || valor.isBlank()) {
+            return;
+        }
+        valor = valor.trim();
+
+        switch (campo) {
+            case "nombrePaciente" -> fila.setNombrePaciente(valor);
+            case "rutPaciente" -> fila.setRutPaciente(valor);
+            case "correoPaciente" -> fila.setCorreoPaciente(valor);
+            case "fechaNacimiento" -> {
+                try {
+                    fila.setFechaNacimiento(LocalDate.parse(valor));
+                } catch (DateTimeParseException e) {
+                    fila.agregarError("Fecha de nacimiento inválida, use el formato AAAA-MM-DD: " + valor);
+                }
+            }
+            case "generoId" -> fila.setGeneroId(convertirId(fila, "genero", valor));
+            case "tipoSangreId" -> fila.setTipoSangreId(convertirId(fila, "tipo de sangre", valor));
+            default -> { }
+        }
+    }
+
+    private static Long convertirId(FilaImportacionPacienteDTO fila, String referencia, String valor) {
+        try {
+            return Long.valueOf(valor);
+        } catch (NumberFormatException e) {
+            fila.agregarError("Id de " + referencia + " inválido: " + valor);
+            return null;
+        }
+    }
+
+    /*
+     * CSV con encabezado (separado por ; como el listado exportado, o por coma). Los campos entre comillas
+     * pueden contener el separador, saltos de línea y comillas dobles escapadas ("")
+    */
+    private static class FilasCsv implements Iterator<FilaImportacionPacienteDTO> {
+        private final BufferedReader reader;
+        private final char separador;
+        private final String[] columnas;
+        private List<String> siguiente;
+        private long numeroFila;
+
+        FilasCsv(BufferedReader reader) throws IOException {
+            this.reader = reader;
+
+            // el listado exportado parte con BOM para Excel
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+
+            reader.mark(8192);
+            String primeraLinea = reader.readLine();
+            if (primeraLinea == null || primeraLinea.isBlank()) {
+                throw new ValidationException("El CSV de la importación está vacío");
+            }
+            reader.reset();
+            this.separador = primeraLinea.indexOf(';') >= 0 ? ';' : ',';
+
+            List<String> encabezado = leerRegistro();
+            this.columnas = new String[encabezado.size()];
+            for (int i = 0; i < columnas.length; i++) {
+                columnas[i] = campo(encabezado.get(i));
+            }
+            if (!List.of(columnas).contains("rutPaciente")) {
+                throw new ValidationException("El encabezado del CSV debe tener las columnas " + String.join(", ", CAMPOS));
+            }
+
+            this.siguiente = leerRegistro();
+        }
+
+        // el encabezado se compara sin importar mayúsculas
+        private static String campo(String encabezado) {
+            String normalizado = encabezado.trim().toLowerCase(Locale.ROOT);
+            for (String campo : CAMPOS) {
+                if (campo.toLowerCase(Locale.ROOT).equals(normalizado)) {
+                    return campo;
+                }
+            }
+            return normalizado;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return siguiente != null;
+        }
+
+        @Override
+        public FilaImportacionPacienteDTO next() {
+            if (siguiente == null) {
+                throw new NoSuchElementException();
+            }
+
+            FilaImportacionPacienteDTO fila = new FilaImportacionPacienteDTO(++numeroFila);
+            for (int i = 0; i < columnas.length && i < siguiente.size(); i++) {
+                asignar(fila, columnas[i], siguiente.get(i));
+            }
+
+            try {
+                siguiente = leerRegistro();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al leer el CSV de la importación: " + e.getMessage(), e);
+            }
+            return fila;
+        }
+
+        // lee un registro completo, salta las líneas en blanco y retorna null al terminar el archivo
+        private List<String> leerRegistro() throws IOException {
+            List<String> valores = new ArrayList<>();
+            StringBuilder valor = new StringBuilder();
+            boolean entreComillas = false;
+            boolean vacio = true;
+            int c;
+
+            while ((c = reader.read()) != -1) {
+                if (entreComillas) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            valor.append('"');
+                        } else {
+                            reader.reset();
+                            entreComillas = false;
+                        }
+                    } else {
+                        valor.append((char) c);
+                    }
+                } else if (c == '"') {
+                    entreComillas = true;
+                    vacio = false;
+                } else if (c == separador) {
+                    valores.add(valor.toString());
+                    valor.setLength(0);
+                    vacio = false;
+                } else if (c == '\r') {
+                    // el \n que sigue cierra el registro
+                } else if (c == '\n') {
+                    if (vacio && valor.length() == 0) {
+                        continue;
+                    }
+                    valores.add(valor.toString());
+                    return valores;
+                } else {
+                    valor.append((char) c);
+                    vacio = false;
+                }
+            }
+
+            if (vacio && valor.length() == 0) {
+                return null;
+            }
+            valores.add(valor.toString());
+            return valores;
+        }
+    }
+
+    /*
+     * Arreglo JSON de objetos con los mismos campos. También se acepta el genero y el tipo de sangre
+     * como en el registro individual: "genero": {"id": 1}
+    */
+    private class FilasJson implements Iterator<FilaImportacionPacienteDTO> {
+        private final JsonParser parser;
+        private JsonToken token;
+        private long numeroFila;
+
+        FilasJson(JsonParser parser) throws IOException {
+            this.parser = parser;
+            this.token = parser.nextToken();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (token == null) {
+                throw new ValidationException("El arreglo JSON de la importación está incompleto");
+            }
+            return token != JsonToken.END_ARRAY;
+        }
+
+        @Override
+        public FilaImportacionPacienteDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            try {
+                FilaImportacionPacienteDTO fila = new FilaImportacionPacienteDTO(++numeroFila);
+                JsonNode nodo = objectMapper.readTree(parser);
+
+                if (nodo == null || !nodo.isObject()) {
+                    fila.agregarError("Cada elemento del arreglo debe ser un objeto con los datos del paciente");
+                } else {
+                    for (String campo : CAMPOS) {
+                        JsonNode valor = nodo.get(campo);
+                        if (valor != null && !valor.isNull()) {
+                            asignar(fila, campo, valor.asText());
+                        }
+                    }
+                    if (fila.getGeneroId() == null && nodo.path("genero").hasNonNull("id")) {
+                        asignar(fila, "generoId", nodo.path("genero").get("id").asText());
+                    }
+                    if (fila.getTipoSangreId() == null && nodo.path("tipoSangre").hasNonNull("id")) {
+                        asignar(fila, "tipoSangreId", nodo.path("tipoSangre").get("id").asText());
+                    }
+                }
+
+                token = parser.nextToken();
+                return fila;
+            } catch (JsonProcessingException e) {
+                throw new ValidationException("JSON de la importación mal formado en la fila " + numeroFila + ": " + e.getOriginalMessage());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error al leer el JSON de la importación: " + e.getMessage(), e);
+            }
+        }
+    }
+}
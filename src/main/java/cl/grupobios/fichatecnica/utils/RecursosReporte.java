@@ -0,0 +1,107 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.awt.Dimension;
+import java.awt.geom.Dimension2D;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.renderers.DataRenderable;
+import net.sf.jasperreports.renderers.DimensionRenderable;
+import net.sf.jasperreports.renderers.Renderable;
+
+/*
+ * Recursos estáticos de los reportes (logo) cargados una sola vez al iniciar.
+ * Se entregan a cada llenado como parámetros compartidos e inmutables, así Jasper no vuelve
+ * a buscar la imagen en el classpath ni a decodificarla para conocer su tamaño en cada PDF.
+*/
+@Component
+public class RecursosReporte {
+    public static final String PARAMETRO_LOGO = "LOGO";
+    public static final String RUTA_LOGO = "static/img/grupobios_logo.jpeg";
+
+    private final Map<String, Object> parametros;
+
+    public RecursosReporte() {
+        this.parametros = Map.of(PARAMETRO_LOGO, cargarImagen(RUTA_LOGO));
+    }
+
+    /**
+     * Parámetros con los recursos compartidos, se agregan a los parámetros de cada llenado
+     * @return mapa inmutable de parámetros
+     */
+    public Map<String, Object> parametros() {
+        return parametros;
+    }
+
+    private ImagenReporte cargarImagen(String ruta) {
+        try (InputStream stream = new ClassPathResource(ruta).getInputStream()) {
+            byte[] datos = stream.readAllBytes();
+            return new ImagenReporte(ruta, datos, leerDimension(datos));
+        } catch (IOException e) {
+            throw new RuntimeException("Error al cargar el recurso del reporte " + ruta + ": " + e.getMessage(), e);
+        }
+    }
+
+    // leemos solo la cabecera de la imagen para conocer su tamaño, sin decodificar los pixeles
+    private Dimension leerDimension(byte[] datos) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(new ByteArrayInputStream(datos))) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+
+            if (!lectores.hasNext()) {
+                throw new IOException("Formato de imagen no soportado");
+            }
+
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada);
+                return new Dimension(lector.getWidth(0), lector.getHeight(0));
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /*
+     * Imagen ya cargada con su tamaño conocido. El exportador la embebe tal cual (un JPEG no se re-codifica)
+     * y el mismo id permite reutilizarla entre las páginas de un mismo documento.
+    */
+    private static final class ImagenReporte implements Renderable, DataRenderable, DimensionRenderable {
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+        private final byte[] datos;
+        private final Dimension dimension;
+
+        private ImagenReporte(String id, byte[] datos, Dimension dimension) {
+            this.id = id;
+            this.datos = datos;
+            this.dimension = dimension;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public byte[] getData(JasperReportsContext jasperReportsContext) {
+            return datos;
+        }
+
+        @Override
+        public Dimension2D getDimension(JasperReportsContext jasperReportsContext) {
+            return (Dimension2D) dimension.clone();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+/*
+ * Registro de plantillas de JasperReports ya compiladas.
+ * Cada plantilla se compila (o se carga desde su .jasper) una sola vez y el JasperReport
+ * resultante se comparte entre todos los llenados concurrentes, ya que es inmutable.
+*/
+@Component
+public class RegistroPlantillasReporte {
+
+    private final ConcurrentMap<String, JasperReport> plantillas = new ConcurrentHashMap<>();
+    private final Counter aciertos;
+    private final Counter fallos;
+
+    public RegistroPlantillasReporte(MeterRegistry meterRegistry) {
+        this.aciertos = Counter.builder("reportes.plantillas.cache")
+                .description("Solicitudes de plantillas resueltas desde el registro")
+                .tag("resultado", "hit")
+                .register(meterRegistry);
+        this.fallos = Counter.builder("reportes.plantillas.cache")
+                .description("Solicitudes de plantillas que requirieron compilar o cargar el reporte")
+                .tag("resultado", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Obtiene la plantilla compilada, compilándola solo la primera vez
+     * @param ruta ruta en el classpath de la plantilla sin extensión (ej: static/files/Ficha_Tecnica)
+     * @return reporte compilado compartido
+     */
+    public JasperReport obtener(String ruta) {
+        JasperReport plantilla = plantillas.get(ruta);
+
+        if (plantilla != null) {
+            aciertos.increment();
+            return plantilla;
+        }
+
+        // computeIfAbsent garantiza que solo un hilo compile la plantilla, el resto espera el resultado
+        boolean[] cargada = { false };
+        plantilla = plantillas.computeIfAbsent(ruta, clave -> {
+            cargada[0] = true;
+            return cargarPlantilla(clave);
+        });
+
+        (cargada[0] ? fallos : aciertos).increment();
+        return plantilla;
+    }
+
+    public double getAciertos() {
+        return aciertos.count();
+    }
+
+    public double getFallos() {
+        return fallos.count();
+    }
+
+    /*
+     * El build (maven-antrun-plugin) deja el .jasper precompilado junto al .jrxml, por lo que en el jar
+     * empaquetado nunca se compila. La compilación del .jrxml queda solo como respaldo para desarrollo.
+    */
+    private JasperReport cargarPlantilla(String ruta) {
+        Resource compilado = new ClassPathResource(ruta + ".jasper");
+
+        try {
+            if (compilado.exists()) {
+                try (InputStream stream = compilado.getInputStream()) {
+                    return (JasperReport) JRLoader.loadObject(stream);
+                }
+            }
+
+            try (InputStream stream = new ClassPathResource(ruta + ".jrxml").getInputStream()) {
+                return JasperCompileManager.compileReport(stream);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error al cargar la plantilla del reporte " + ruta + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,59 +1,353 @@
 package cl.grupobios.fichatecnica.utils;
 
-import java.io.InputStream;
-import java.sql.Connection;
+import java.io.OutputStream;
+import java.sql.Date;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
-import javax.sql.DataSource;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import net.sf.jasperreports.engine.JasperCompileManager;
+import cl.grupobios.fichatecnica.exceptions.ReporteSaturadoException;
+import cl.grupobios.fichatecnica.models.Paciente;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JRVirtualizer;
 import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.data.JRMapCollectionDataSource;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
 
 @Service
 public class ReporteUtils {
+    public static final String PLANTILLA_FICHA_TECNICA = "static/files/Ficha_Tecnica";
+
+    @Autowired
+    private RegistroPlantillasReporte registroPlantillas;
+
     @Autowired
-    private DataSource dataSource;
+    private RecursosReporte recursosReporte;
+
+    @Autowired
+    @Qualifier("reporteExecutor")
+    private ThreadPoolTaskExecutor reporteExecutor;
+
+    @Value("${app.reportes.executor.retry-after-segundos:5}")
+    private long reintentarEnSegundos;
+
+    // páginas que un reporte virtualizado mantiene en memoria, el resto se baja al archivo swap (0 = sin virtualizar)
+    @Value("${app.reportes.virtualizador.paginas-en-memoria:50}")
+    private int paginasEnMemoria;
+
+    @Value("${app.reportes.virtualizador.directorio:${java.io.tmpdir}}")
+    private String directorioSwap;
 
     /**
      * Genera la ficha técnica de un paciente en formato PDF
-     * @param idPaciente ID del paciente
+     * @param paciente paciente ya cargado con su genero y tipo de sangre
      * @return byte array con el PDF generado
      */
-    public byte[] generarFichaTecnicaPaciente(Long idPaciente) {
-        try (Connection connection = dataSource.getConnection()) {
-            
-            // Cargar el archivo JRXML desde resources
-            Resource resource = new ClassPathResource("static/files/Ficha_Tecnica.jrxml");
-            InputStream reportStream = resource.getInputStream();
-            
-            // Compilar el reporte
-            JasperReport jasperReport = JasperCompileManager.compileReport(reportStream);
-            
-            // Parámetros del reporte
-            Map<String, Object> parameters = new HashMap<>();
-            parameters.put("PACIENTE_ID", idPaciente);
-            
-            // Llenar el reporte con datos de la base de datos
-            JasperPrint jasperPrint = JasperFillManager.fillReport(
-                jasperReport, 
-                parameters, 
-                connection
-            );
-            
+    public byte[] generarFichaTecnicaPaciente(Paciente paciente) {
+        try {
             // Exportar a PDF
-            return JasperExportManager.exportReportToPdf(jasperPrint);
-            
+            return JasperExportManager.exportReportToPdf(llenarFichaTecnica(paciente));
+
+        } catch (Exception e) {
+            throw new RuntimeException("Error al generar el reporte: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Genera la ficha técnica de un paciente escribiendo el PDF directamente en la salida,
+     * sin armar el documento completo en un byte array
+     * @param paciente paciente ya cargado con su genero y tipo de sangre
+     * @param salida stream donde se escribe el PDF (ej: la respuesta HTTP)
+     */
+    public void exportarFichaTecnicaPdf(Paciente paciente, OutputStream salida) {
+        try {
+            JasperExportManager.exportReportToPdfStream(llenarFichaTecnica(paciente), salida);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Error al generar el reporte: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Exporta a PDF una ficha técnica que se está llenando en el pool de reportes, escribiendo directo en la salida
+     * @param llenado llenado entregado por llenarFichaTecnicaEnPool
+     * @param salida stream donde se escribe el PDF (ej: la respuesta HTTP)
+     */
+    public void exportarFichaTecnicaPdf(Future<JasperPrint> llenado, OutputStream salida) {
+        try {
+            JasperExportManager.exportReportToPdfStream(esperar(llenado), salida);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Error al generar el reporte: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encola el llenado de la ficha técnica en el pool de reportes
+     * @param paciente paciente ya cargado con su genero y tipo de sangre
+     * @return llenado en curso
+     * @throws ReporteSaturadoException si la cola del pool está llena
+     */
+    public Future<JasperPrint> llenarFichaTecnicaEnPool(Paciente paciente) {
+        try {
+            return reporteExecutor.submit(() -> llenarFichaTecnica(paciente));
+        } catch (RejectedExecutionException e) {
+            throw saturado();
+        }
+    }
+
+    /**
+     * Verifica que la cola del pool tenga espacio para la ventana de un lote antes de empezar a responder
+     * @throws ReporteSaturadoException si no hay espacio
+     */
+    public void verificarCapacidad() {
+        if (reporteExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() < ventana()) {
+            throw saturado();
+        }
+    }
+
+    /**
+     * Llena la ficha técnica con los datos del paciente, sin abrir una conexión a la base de datos
+     * (la consulta SQL del jrxml se ignora al entregar un data source)
+     * @param paciente paciente ya cargado con su genero y tipo de sangre
+     * @return reporte lleno listo para exportar
+     */
+    public JasperPrint llenarFichaTecnica(Paciente paciente) throws JRException {
+        return llenarFichaTecnica(paciente, null);
+    }
+
+    private JasperPrint llenarFichaTecnica(Paciente paciente, JRVirtualizer virtualizador) throws JRException {
+        // Obtenemos el reporte ya compilado (se compila una sola vez y se comparte)
+        JasperReport jasperReport = registroPlantillas.obtener(PLANTILLA_FICHA_TECNICA);
+
+        // Parámetros del reporte
+        Map<String, Object> parameters = new HashMap<>(recursosReporte.parametros());
+        parameters.put("PACIENTE_ID", paciente.getId());
+        if (virtualizador != null) {
+            parameters.put(JRParameter.REPORT_VIRTUALIZER, virtualizador);
+        }
+
+        // Llenar el reporte con los datos del paciente
+        return JasperFillManager.fillReport(
+            jasperReport,
+            parameters,
+            new JRMapCollectionDataSource(List.of(datosFichaTecnica(paciente)))
+        );
+    }
+
+    /**
+     * Genera las fichas técnicas de varios pacientes en un solo PDF escrito directamente en la salida
+     * @param pacientes pacientes ya cargados con su genero y tipo de sangre
+     * @param salida stream donde se escribe el PDF (ej: la respuesta HTTP)
+     */
+    public void exportarFichasTecnicasPdf(List<Paciente> pacientes, OutputStream salida) {
+        // sobre el umbral todas las fichas del lote comparten un virtualizador, así las páginas pasan al archivo swap
+        JRSwapFileVirtualizer virtualizador = debeVirtualizar(pacientes.size()) ? crearVirtualizador() : null;
+
+        try {
+            // llenamos en paralelo, solo se guardan las páginas (JasperPrint), no los bytes del PDF
+            List<JasperPrint> prints = new ArrayList<>(pacientes.size());
+            llenarEnParalelo(pacientes, paciente -> llenarFichaTecnica(paciente, virtualizador), (paciente, print) -> prints.add(print));
+
+            if (virtualizador != null) {
+                virtualizador.setReadOnly(true);
+            }
+
+            exportarPdf(prints, salida);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Error al generar el reporte por lote: " + e.getMessage(), e);
+        } finally {
+            if (virtualizador != null) {
+                virtualizador.cleanup();
+            }
+        }
+    }
+
+    /**
+     * Genera un ZIP con la ficha técnica en PDF de cada paciente escrito directamente en la salida
+     * @param pacientes pacientes ya cargados con su genero y tipo de sangre
+     * @param salida stream donde se escribe el ZIP (ej: la respuesta HTTP)
+     */
+    public void exportarFichasTecnicasZip(List<Paciente> pacientes, OutputStream salida) {
+        try {
+            ZipOutputStream zip = new ZipOutputStream(salida);
+
+            // cada PDF se escribe en el ZIP apenas está listo y se libera, respetando el orden de los pacientes
+            llenarEnParalelo(pacientes, this::generarFichaTecnicaPaciente, (paciente, pdf) -> {
+                zip.putNextEntry(new ZipEntry(nombreArchivoFichaTecnica(paciente)));
+                zip.write(pdf);
+                zip.closeEntry();
+            });
+
+            // finish y no close, el stream de salida lo cierra quien lo abrió
+            zip.finish();
+
+        } catch (Exception e) {
+            throw new RuntimeException("Error al generar el reporte por lote: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Llena un reporte de muchas páginas (ej: listados) y lo exporta a PDF directamente en la salida.
+     * Pasado el umbral de páginas en memoria, las páginas llenas se bajan a un archivo swap local,
+     * así el tamaño del reporte no queda limitado por el heap.
+     * @param plantilla ruta en el classpath de la plantilla sin extensión
+     * @param parametros parámetros del reporte (se agregan los recursos compartidos)
+     * @param datos data source del reporte, idealmente uno que lea las filas a medida que se piden
+     * @param salida stream donde se escribe el PDF (ej: la respuesta HTTP)
+     */
+    public void exportarPdfVirtualizado(String plantilla, Map<String, Object> parametros, JRDataSource datos, OutputStream salida) {
+        JRSwapFileVirtualizer virtualizador = crearVirtualizador();
+
+        try {
+            Map<String, Object> parameters = new HashMap<>(recursosReporte.parametros());
+            parameters.putAll(parametros);
+            parameters.put(JRParameter.REPORT_VIRTUALIZER, virtualizador);
+
+            JasperPrint print = JasperFillManager.fillReport(registroPlantillas.obtener(plantilla), parameters, datos);
+
+            // ya no se agregan páginas, el exportador solo las lee desde el swap
+            virtualizador.setReadOnly(true);
+
+            exportarPdf(List.of(print), salida);
+
         } catch (Exception e) {
             throw new RuntimeException("Error al generar el reporte: " + e.getMessage(), e);
+        } finally {
+            virtualizador.cleanup();
         }
     }
+
+    // nombre del archivo de la ficha técnica con el nombre del paciente
+    public static String nombreArchivoFichaTecnica(Paciente paciente) {
+        String nombrePaciente = paciente.getNombrePaciente().replace(" ", "_");
+        return String.format("Ficha_Tecnica_%s_%d.pdf", nombrePaciente, paciente.getId());
+    }
+
+    /*
+     * Ejecuta la tarea de cada paciente en el pool de reportes manteniendo como máximo una ventana
+     * de tareas en curso (el doble de hilos del pool), así la memoria no crece con el tamaño del lote.
+     * Los resultados se entregan al consumidor en el mismo orden de la lista.
+    */
+    private <T> void llenarEnParalelo(List<Paciente> pacientes, TareaReporte<T> tarea, ConsumidorReporte<T> consumidor) throws Exception {
+        int ventana = ventana();
+        Deque<Paciente> pendientes = new ArrayDeque<>();
+        Deque<Future<T>> enCurso = new ArrayDeque<>();
+
+        try {
+            for (Paciente paciente : pacientes) {
+                if (enCurso.size() >= ventana) {
+                    consumidor.aceptar(pendientes.poll(), esperar(enCurso.poll()));
+                }
+
+                pendientes.add(paciente);
+                enCurso.add(enviar(() -> tarea.ejecutar(paciente), pendientes, enCurso, consumidor));
+            }
+
+            while (!enCurso.isEmpty()) {
+                consumidor.aceptar(pendientes.poll(), esperar(enCurso.poll()));
+            }
+        } finally {
+            // si algo falló cancelamos lo que quedó en curso
+            enCurso.forEach(futuro -> futuro.cancel(true));
+        }
+    }
+
+    /*
+     * Si la cola se llenó mientras el lote ya estaba respondiendo no podemos devolver un 503,
+     * así que esperamos a que termine la tarea más antigua del lote y reintentamos.
+    */
+    private <T> Future<T> enviar(Callable<T> tarea, Deque<Paciente> pendientes, Deque<Future<T>> enCurso, ConsumidorReporte<T> consumidor) throws Exception {
+        while (true) {
+            try {
+                return reporteExecutor.submit(tarea);
+            } catch (RejectedExecutionException e) {
+                if (enCurso.isEmpty()) {
+                    throw saturado();
+                }
+                consumidor.aceptar(pendientes.poll(), esperar(enCurso.poll()));
+            }
+        }
+    }
+
+    private void exportarPdf(List<JasperPrint> prints, OutputStream salida) throws JRException {
+        JRPdfExporter exporter = new JRPdfExporter();
+        exporter.setExporterInput(SimpleExporterInput.getInstance(prints));
+        exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(salida));
+        exporter.exportReport();
+    }
+
+    private boolean debeVirtualizar(int paginas) {
+        return paginasEnMemoria > 0 && paginas > paginasEnMemoria;
+    }
+
+    private JRSwapFileVirtualizer crearVirtualizador() {
+        // bloques de 4 KB, el archivo crece de a 64 bloques y se elimina al hacer cleanup
+        JRSwapFile swap = new JRSwapFile(directorioSwap, 4096, 64);
+        return new JRSwapFileVirtualizer(Math.max(paginasEnMemoria, 1), swap, true);
+    }
+
+    private int ventana() {
+        return reporteExecutor.getMaxPoolSize() * 2;
+    }
+
+    private ReporteSaturadoException saturado() {
+        return new ReporteSaturadoException("El generador de reportes está saturado, intente nuevamente más tarde", reintentarEnSegundos);
+    }
+
+    private <T> T esperar(Future<T> futuro) throws Exception {
+        try {
+            return futuro.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception causa ? causa : e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface TareaReporte<T> {
+        T ejecutar(Paciente paciente) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface ConsumidorReporte<T> {
+        void aceptar(Paciente paciente, T resultado) throws Exception;
+    }
+
+    // mapeamos el paciente a los mismos campos que entregaba la consulta del jrxml
+    private Map<String, ?> datosFichaTecnica(Paciente paciente) {
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("RUT_PACIENTE", paciente.getRutPaciente());
+        datos.put("NOM_PACIENTE", paciente.getNombrePaciente());
+        datos.put("NRO_PACIENTE", paciente.getNroPaciente());
+        datos.put("FECH_NACIMIENTO", paciente.getFechaNacimiento() != null ? Date.valueOf(paciente.getFechaNacimiento()) : null);
+        datos.put("EDAD_PACIENTE", paciente.getEdadPaciente());
+        datos.put("NOM_GENERO", paciente.getGenero() != null ? paciente.getGenero().getNombreGenero() : null);
+        datos.put("NOM_TIPO_SANGRE", paciente.getTipoSangre() != null ? paciente.getTipoSangre().getNombreTipoSangre() : null);
+        return datos;
+    }
 }
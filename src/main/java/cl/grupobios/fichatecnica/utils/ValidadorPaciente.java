@@ -0,0 +1,75 @@
+package cl.grupobios.fichatecnica.utils;
+
+import java.util.regex.Pattern;
+
+/*
+ * Validaciones de formato de los datos del paciente que no necesitan la base de datos,
+ * sin estado para poder usarlas en paralelo.
+*/
+public final class ValidadorPaciente {
+
+    // algo@dominio.tld, sin espacios ni más de una @
+    private static final Pattern CORREO = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private ValidadorPaciente() {}
+
+    /**
+     * Deja el RUT en la forma 12345678-K (sin puntos, con guion y la K en mayúscula)
+     * @param rut RUT con o sin puntos y guion
+     * @return RUT normalizado, o null si no tiene forma de RUT
+     */
+    public static String normalizarRut(String rut) {
+        if (rut == null) {
+            return null;
+        }
+
+        String limpio = rut.replace(".", "").replace("-", "").trim().toUpperCase();
+        if (limpio.length() < 2 || limpio.length() > 9) {
+            return null;
+        }
+
+        String cuerpo = limpio.substring(0, limpio.length() - 1);
+        char dv = limpio.charAt(limpio.length() - 1);
+        if (!cuerpo.chars().allMatch(Character::isDigit) || !(Character.isDigit(dv) || dv == 'K')) {
+            return null;
+        }
+
+        return cuerpo + "-" + dv;
+    }
+
+    /**
+     * Verifica el dígito verificador del RUT (módulo 11)
+     * @param rut RUT con o sin puntos y guion
+     * @return true si tiene forma de RUT y el dígito verificador calza
+     */
+    public static boolean rutValido(String rut) {
+        String normalizado = normalizarRut(rut);
+        if (normalizado == null) {
+            return false;
+        }
+
+        int guion = normalizado.indexOf('-');
+        return normalizado.charAt(guion + 1) == digitoVerificador(normalizado.substring(0, guion));
+    }
+
+    /**
+     * Calcula el dígito verificador del RUT (módulo 11)
+     * @param cuerpo dígitos del RUT sin puntos ni dígito verificador
+     * @return dígito verificador, 0 a 9 o K
+     */
+    public static char digitoVerificador(String cuerpo) {
+        int suma = 0;
+        int factor = 2;
+        for (int i = cuerpo.length() - 1; i >= 0; i--) {
+            suma += (cuerpo.charAt(i) - '0') * factor;
+            factor = factor == 7 ? 2 : factor + 1;
+        }
+
+        int resto = 11 - suma % 11;
+        return resto == 11 ? '0' : resto == 10 ? 'K' : (char) ('0' + resto);
+    }
+
+    public static boolean correoValido(String correo) {
+        return correo != null && CORREO.matcher(correo).matches();
+    }
+}
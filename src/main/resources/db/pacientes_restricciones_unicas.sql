@@ -0,0 +1,64 @@
+-- Restricciones únicas del RUT y del número de paciente (uk_pacientes_rut y uk_pacientes_nro en Paciente).
+-- Se ejecuta una sola vez en bases creadas antes del cambio, con la aplicación detenida (por ejemplo con SQL*Plus).
+-- Antes el registro no validaba el RUT, así que puede haber pacientes repetidos: con ddl-auto=update Hibernate solo
+-- deja en el log el ALTER TABLE fallido y los RUT repetidos se seguirían aceptando sin ninguna validación.
+--
+-- 1. Dejar los RUT en la forma que guarda la aplicación (12345678-K, ver ValidadorPaciente.normalizarRut),
+--    así el mismo RUT escrito con y sin puntos aparece como repetido en el paso 2.
+
+UPDATE pacientes
+SET rut_paciente = SUBSTR(UPPER(REPLACE(REPLACE(TRIM(rut_paciente), '.', ''), '-', '')), 1,
+                          LENGTH(REPLACE(REPLACE(TRIM(rut_paciente), '.', ''), '-', '')) - 1)
+                   || '-' || UPPER(SUBSTR(REPLACE(REPLACE(TRIM(rut_paciente), '.', ''), '-', ''), -1))
+WHERE LENGTH(REPLACE(REPLACE(TRIM(rut_paciente), '.', ''), '-', '')) >= 2
+  AND rut_paciente <> SUBSTR(UPPER(REPLACE(REPLACE(TRIM(rut_paciente), '.', ''), '-', '')), 1,
+                             LENGTH(REPLACE(REPLACE(TRIM(rut_paciente), '.', ''), '-', '')) - 1)
+                      || '-' || UPPER(SUBSTR(REPLACE(REPLACE(TRIM(rut_paciente), '.', ''), '-', ''), -1));
+
+COMMIT;
+
+-- 2. Revisar los repetidos. Deben quedar sin filas antes del paso 3: se corrige el RUT mal digitado o se deja
+--    un solo registro por persona. No se eliminan automáticamente, pueden ser personas distintas con un RUT mal ingresado.
+
+SELECT p.rut_paciente, p.id_paciente, p.nro_paciente, p.nom_paciente, p.correo, p.activo
+FROM pacientes p
+WHERE p.rut_paciente IN (SELECT rut_paciente FROM pacientes GROUP BY rut_paciente HAVING COUNT(*) > 1)
+ORDER BY p.rut_paciente, p.id_paciente;
+
+SELECT p.nro_paciente, p.id_paciente, p.rut_paciente, p.nom_paciente
+FROM pacientes p
+WHERE p.nro_paciente IN (SELECT nro_paciente FROM pacientes GROUP BY nro_paciente HAVING COUNT(*) > 1)
+ORDER BY p.nro_paciente, p.id_paciente;
+
+-- 3. Crear las restricciones que falten. Si todavía hay repetidos se detiene sin crear ninguna.
+
+WHENEVER SQLERROR EXIT FAILURE ROLLBACK
+
+DECLARE
+    repetidos NUMBER;
+
+    PROCEDURE crear(nombre VARCHAR2, columna VARCHAR2) IS
+        existe NUMBER;
+    BEGIN
+        SELECT COUNT(*) INTO existe FROM user_constraints
+        WHERE table_name = 'PACIENTES' AND constraint_name = UPPER(nombre);
+
+        IF existe = 0 THEN
+            EXECUTE IMMEDIATE 'ALTER TABLE pacientes ADD CONSTRAINT ' || nombre || ' UNIQUE (' || columna || ')';
+        END IF;
+    END;
+BEGIN
+    SELECT COUNT(*) INTO repetidos FROM (
+        SELECT rut_paciente FROM pacientes GROUP BY rut_paciente HAVING COUNT(*) > 1
+        UNION ALL
+        SELECT nro_paciente FROM pacientes GROUP BY nro_paciente HAVING COUNT(*) > 1
+    );
+
+    IF repetidos > 0 THEN
+        RAISE_APPLICATION_ERROR(-20001, repetidos || ' RUT o números de paciente repetidos, se deben resolver antes de crear las restricciones');
+    END IF;
+
+    crear('uk_pacientes_rut', 'rut_paciente');
+    crear('uk_pacientes_nro', 'nro_paciente');
+END;
+/
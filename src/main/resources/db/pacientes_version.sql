@@ -0,0 +1,6 @@
+-- Columna de versión de los pacientes (@Version en Paciente) para el bloqueo optimista.
+-- Se ejecuta una sola vez en bases creadas antes del cambio, con la aplicación detenida.
+-- Con ddl-auto=update Hibernate intentaría agregarla como NOT NULL sin valor por defecto, lo que falla
+-- si la tabla ya tiene filas; con el DEFAULT los pacientes existentes quedan en la versión 0.
+
+ALTER TABLE pacientes ADD (version NUMBER(19) DEFAULT 0 NOT NULL);
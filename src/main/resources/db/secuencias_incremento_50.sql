@@ -0,0 +1,11 @@
+-- Migración de las secuencias a incrementos de 50 (allocationSize = 50 en Paciente, Genero y TipoSangre).
+-- Se ejecuta una sola vez en bases creadas antes del cambio, con la aplicación detenida.
+-- Sin este ajuste Hibernate no inicia porque el incremento de la secuencia no coincide con el del mapeo.
+--
+-- Con el optimizador pooled el valor que entrega la secuencia es el último id del bloque reservado:
+-- tras el ALTER el siguiente nextval es el valor actual + 50, así el primer bloque empieza justo después
+-- del último id ya usado y no se repite ninguno.
+
+ALTER SEQUENCE seq_paciente INCREMENT BY 50;
+ALTER SEQUENCE seq_genero INCREMENT BY 50;
+ALTER SEQUENCE seq_tipo_sangre INCREMENT BY 50;
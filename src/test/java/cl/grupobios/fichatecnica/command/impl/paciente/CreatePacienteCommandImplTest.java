@@ -0,0 +1,200 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import cl.grupobios.fichatecnica.exceptions.BusinessException;
+import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import cl.grupobios.fichatecnica.utils.GeneradorNroPaciente;
+
+@DisplayName("Test de CreatePacienteCommandImpl sobre H2")
+class CreatePacienteCommandImplTest extends PacienteCommandTestBase {
+
+    private final GeneradorNroPaciente generadorNroPaciente = new GeneradorNroPaciente(0);
+
+    @Test
+    @DisplayName("Debería registrar sin consultar el genero ni el tipo de sangre y en una sola transacción")
+    void deberiaRegistrarSinLeerReferencias() {
+        Paciente paciente = nuevoPaciente(1, tipoSangreRepository.save(new TipoSangre(null, "O+")).getId());
+
+        estadisticas.clear();
+        Paciente guardado = crear(paciente).execute();
+
+        assertNotNull(guardado.getId());
+        assertNotNull(guardado.getNroPaciente());
+        assertEquals("Femenino", guardado.getGenero().getNombreGenero());
+        assertEquals("O+", guardado.getTipoSangre().getNombreTipoSangre());
+        assertEquals(1, indiceNombres.buscar("paciente 1", 10).size());
+
+        // el genero y el tipo de sangre recién creado por este nodo desde el cache de segundo nivel:
+        // solo el insert, más la secuencia si se agotó el bloque de ids
+        assertTrue(estadisticas.getPrepareStatementCount() <= 2);
+        assertEquals(0, estadisticas.getQueryExecutionCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(2, estadisticas.getSecondLevelCacheHitCount());
+        assertEquals(0, estadisticas.getSecondLevelCacheMissCount());
+        assertEquals(1, estadisticas.getTransactionCount());
+
+        // los siguientes usan los ids ya reservados: a lo más una llamada a la secuencia cada 50 registros
+        Long[] tiposSangre = crearTiposSangre(10);
+        estadisticas.clear();
+        for (int i = 0; i < tiposSangre.length; i++) {
+            crear(nuevoPaciente(i + 2, tiposSangre[i])).execute();
+        }
+        assertTrue(estadisticas.getPrepareStatementCount() <= 10 + 1);
+        assertEquals(0, estadisticas.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Debería leer el genero de la base de datos solo la primera vez")
+    void deberiaLeerGeneroUnaSolaVez() {
+        Long[] tiposSangre = crearTiposSangre(3);
+
+        // un genero que no está en el cache, como al reiniciar la aplicación
+        entityManagerFactory.getCache().evict(Genero.class);
+        estadisticas.clear();
+        for (int i = 0; i < tiposSangre.length; i++) {
+            crear(nuevoPaciente(i + 1, tiposSangre[i])).execute();
+        }
+
+        assertEquals(1, estadisticas.getEntityLoadCount());
+        assertEquals(1, estadisticas.getSecondLevelCacheMissCount());
+        assertEquals(tiposSangre.length * 2 - 1, estadisticas.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Debería leer por llave primaria el tipo de sangre que no está en el cache")
+    void deberiaLeerTipoSangreFueraDelCache() {
+        Long tipoSangreId = tipoSangreRepository.save(new TipoSangre(null, "O+")).getId();
+
+        // creado por otro nodo o hace más de una hora
+        entityManagerFactory.getCache().evict(TipoSangre.class, tipoSangreId);
+        estadisticas.clear();
+        crear(nuevoPaciente(1, tipoSangreId)).execute();
+
+        assertEquals(1, estadisticas.getEntityLoadCount());
+        assertEquals(1, estadisticas.getSecondLevelCacheMissCount());
+        assertEquals(1, estadisticas.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Debería informar el RUT duplicado aunque venga con puntos y K minúscula")
+    void deberiaInformarRutDuplicado() {
+        Paciente primero = nuevoPaciente(1, tipoSangreRepository.save(new TipoSangre(null, "O+")).getId());
+        primero.setRutPaciente("10.000.013-k");
+        assertEquals("10000013-K", crear(primero).execute().getRutPaciente());
+
+        Paciente duplicado = nuevoPaciente(2, tipoSangreRepository.save(new TipoSangre(null, "A+")).getId());
+        duplicado.setRutPaciente("10000013K");
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> crear(duplicado).execute());
+        assertEquals("Ya existe un paciente con el RUT: 10000013-K", ex.getMessage());
+        assertEquals(1, pacienteRepository.count());
+    }
+
+    @Test
+    @DisplayName("Debería informar el correo duplicado rechazado por la restricción única")
+    void deberiaInformarCorreoDuplicado() {
+        crear(nuevoPaciente(1, tipoSangreRepository.save(new TipoSangre(null, "O+")).getId())).execute();
+
+        Paciente duplicado = nuevoPaciente(2, tipoSangreRepository.save(new TipoSangre(null, "A+")).getId());
+        duplicado.setCorreoPaciente("paciente1@grupobios.cl");
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> crear(duplicado).execute());
+        assertEquals("Ya existe un paciente con el correo: paciente1@grupobios.cl", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Debería rechazar antes de insertar los datos que faltan o no caben en la tabla")
+    void deberiaRechazarDatosInvalidos() {
+        Long tipoSangreId = tipoSangreRepository.save(new TipoSangre(null, "O+")).getId();
+
+        Paciente sinFecha = nuevoPaciente(1, tipoSangreId);
+        sinFecha.setFechaNacimiento(null);
+        ValidationException ex = assertThrows(ValidationException.class, () -> crear(sinFecha).execute());
+        assertEquals("La fecha de nacimiento del paciente es requerida", ex.getMessage());
+
+        Paciente nombreLargo = nuevoPaciente(2, tipoSangreId);
+        nombreLargo.setNombrePaciente("N".repeat(36));
+        assertThrows(ValidationException.class, () -> crear(nombreLargo).execute());
+
+        Paciente rutInvalido = nuevoPaciente(3, tipoSangreId);
+        rutInvalido.setRutPaciente("12.345.678-K");
+        ex = assertThrows(ValidationException.class, () -> crear(rutInvalido).execute());
+        assertEquals("RUT inválido: 12.345.678-K", ex.getMessage());
+
+        Paciente correoLargo = nuevoPaciente(4, tipoSangreId);
+        correoLargo.setCorreoPaciente("c".repeat(90) + "@grupobios.cl");
+        assertThrows(ValidationException.class, () -> crear(correoLargo).execute());
+
+        Paciente correoInvalido = nuevoPaciente(5, tipoSangreId);
+        correoInvalido.setCorreoPaciente("paciente5@grupobios");
+        ex = assertThrows(ValidationException.class, () -> crear(correoInvalido).execute());
+        assertEquals("Correo inválido: paciente5@grupobios", ex.getMessage());
+
+        assertEquals(0, pacienteRepository.count());
+    }
+
+    @Test
+    @DisplayName("Debería informar el tipo de sangre ya asignado a otro paciente")
+    void deberiaInformarTipoSangreAsignado() {
+        Long tipoSangreId = tipoSangreRepository.save(new TipoSangre(null, "O+")).getId();
+        crear(nuevoPaciente(1, tipoSangreId)).execute();
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> crear(nuevoPaciente(2, tipoSangreId)).execute());
+        assertEquals("El tipo de sangre ya está asignado a otro paciente", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Debería indicar qué referencia no existe")
+    void deberiaIndicarReferenciaInexistente() {
+        Paciente sinTipoSangre = nuevoPaciente(1, 999L);
+        ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class, () -> crear(sinTipoSangre).execute());
+        assertEquals("Tipo de sangre no encontrado", ex.getMessage());
+
+        Paciente sinGenero = nuevoPaciente(2, tipoSangreRepository.save(new TipoSangre(null, "O+")).getId());
+        sinGenero.setGenero(new Genero(999L, null, null));
+        ex = assertThrows(ResourceNotFoundException.class, () -> crear(sinGenero).execute());
+        assertEquals("Genero no encontrado", ex.getMessage());
+    }
+
+    /*
+     * Sentencias, transacciones y tiempo por paciente registrado. No es parte de la suite, se ejecuta con
+     * mvn test -Dtest=CreatePacienteCommandImplTest -Dbenchmark=true
+    */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark del registro de pacientes")
+    void benchmarkRegistro() {
+        int porRonda = 500;
+        for (int ronda = 0; ronda < 3; ronda++) {
+            Long[] tiposSangre = crearTiposSangre(porRonda);
+
+            estadisticas.clear();
+            long inicio = System.nanoTime();
+            for (int i = 0; i < porRonda; i++) {
+                crear(nuevoPaciente(ronda * porRonda + i, tiposSangre[i])).execute();
+            }
+            long microsegundos = (System.nanoTime() - inicio) / 1000 / porRonda;
+
+            System.out.println("Ronda " + ronda + ": " + (double) estadisticas.getPrepareStatementCount() / porRonda
+                    + " sentencias/paciente, " + (double) estadisticas.getTransactionCount() / porRonda
+                    + " transacciones/paciente, " + microsegundos + " us/paciente");
+        }
+    }
+
+    private CreatePacienteCommandImpl crear(Paciente paciente) {
+        return new CreatePacienteCommandImpl(paciente, pacienteRepository, generoRepository, tipoSangreRepository, indiceNombres,
+                transaccion(), generadorNroPaciente);
+    }
+}
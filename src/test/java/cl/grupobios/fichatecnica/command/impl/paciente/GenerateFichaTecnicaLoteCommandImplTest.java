@@ -0,0 +1,79 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import cl.grupobios.fichatecnica.dtos.FichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoFichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.utils.ReporteUtils;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test de GenerateFichaTecnicaLoteCommandImpl sobre H2")
+class GenerateFichaTecnicaLoteCommandImplTest extends PacienteCommandTestBase {
+
+    @Mock
+    private ReporteUtils reporteUtils;
+
+    @Captor
+    private ArgumentCaptor<List<Paciente>> pacientes;
+
+    @Test
+    @DisplayName("Debería generar las fichas en el orden pedido e informar los ids no encontrados o inactivos")
+    void deberiaRespetarOrdenEInformarNoEncontrados() throws Exception {
+        Long primero = registrar(1).getId();
+        Long segundo = registrar(2).getId();
+        Paciente inactivo = pacienteCompleto(3);
+        inactivo.setActivo(false);
+        Long tercero = pacienteRepository.save(inactivo).getId();
+
+        ResultadoFichaTecnicaLoteDTO lote = lote(Arrays.asList(segundo, 999_999L, primero, tercero, segundo), "zip").execute();
+        lote.getCuerpo().writeTo(new ByteArrayOutputStream());
+
+        verify(reporteUtils).exportarFichasTecnicasZip(pacientes.capture(), any());
+        assertEquals(List.of(segundo, primero), pacientes.getValue().stream().map(Paciente::getId).toList());
+        assertEquals(List.of(999_999L, tercero), lote.getNoEncontrados());
+    }
+
+    @Test
+    @DisplayName("Debería informar que no hay fichas cuando no se encuentra ningún paciente")
+    void deberiaRechazarLoteSinPacientes() {
+        assertThrows(ResourceNotFoundException.class, () -> lote(List.of(999_999L), "pdf").execute());
+        assertThrows(ValidationException.class, () -> lote(Arrays.asList(1L, null), "pdf").execute());
+    }
+
+    @Test
+    @DisplayName("Debería aceptar solo los formatos pdf y zip")
+    void deberiaValidarElFormato() throws Exception {
+        Long id = registrar(1).getId();
+
+        assertThrows(ValidationException.class, () -> lote(List.of(id), "zips").execute());
+        assertThrows(ValidationException.class, () -> lote(List.of(id), "xlsx").execute());
+
+        lote(List.of(id), " ZIP ").execute().getCuerpo().writeTo(new ByteArrayOutputStream());
+        verify(reporteUtils).exportarFichasTecnicasZip(any(), any());
+        lote(List.of(id), "Pdf").execute().getCuerpo().writeTo(new ByteArrayOutputStream());
+        verify(reporteUtils).exportarFichasTecnicasPdf(any(), any());
+    }
+
+    private GenerateFichaTecnicaLoteCommandImpl lote(List<Long> ids, String formato) {
+        return new GenerateFichaTecnicaLoteCommandImpl(new FichaTecnicaLoteDTO(ids, null, null, formato), 100,
+                pacienteRepository, reporteUtils);
+    }
+}
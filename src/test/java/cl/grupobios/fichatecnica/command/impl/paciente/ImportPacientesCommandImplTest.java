@@ -0,0 +1,223 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.utils.GeneradorNroPaciente;
+import cl.grupobios.fichatecnica.utils.LectorImportacionPacientes;
+
+// el comando confirma un lote a la vez como en producción
+@DisplayName("Test de ImportPacientesCommandImpl sobre H2")
+class ImportPacientesCommandImplTest extends PacienteCommandTestBase {
+
+    private static final String ENCABEZADO = "nombrePaciente;rutPaciente;correoPaciente;fechaNacimiento;generoId;tipoSangreId\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Debería registrar las filas válidas y reportar por fila las rechazadas")
+    void deberiaReportarPorFila() throws IOException {
+        Long[] tiposSangre = crearTiposSangre(7);
+        Paciente existente = new Paciente();
+        existente.setNroPaciente("EXISTENTE");
+        existente.setNombrePaciente("Registrado antes");
+        existente.setRutPaciente("7654321-6");
+        existente.setCorreoPaciente("antes@grupobios.cl");
+        existente.setFechaNacimiento(LocalDate.of(1980, 1, 1));
+        existente.setGenero(genero);
+        existente.setTipoSangre(tipoSangreRepository.findById(tiposSangre[6]).orElseThrow());
+        pacienteRepository.save(existente);
+
+        String csv = ENCABEZADO
+                + "María Núñez;12.345.678-5;maria@grupobios.cl;1990-05-10;" + genero.getId() + ";" + tiposSangre[0] + "\n"
+                + "RUT malo;12345678-K;malo@grupobios.cl;1990-05-10;" + genero.getId() + ";" + tiposSangre[1] + "\n"
+                + "Ya registrado;7.654.321-6;otro@grupobios.cl;1990-05-10;" + genero.getId() + ";" + tiposSangre[2] + "\n"
+                + "Sin genero;10000013-K;sin.genero@grupobios.cl;1990-05-10;999999;" + tiposSangre[3] + "\n"
+                // repite el RUT de la fila 1, que quedó registrada en el lote anterior
+                + "Repetida;12345678-5;repetida@grupobios.cl;1990-05-10;" + genero.getId() + ";" + tiposSangre[4] + "\n"
+                + "Juan Pérez;10000004-0;juan@grupobios.cl;2001-12-31;" + genero.getId() + ";" + tiposSangre[5] + "\n";
+
+        JsonNode reporte = importar(csv, "csv", 2);
+
+        assertEquals(6, reporte.get("total").asInt());
+        assertEquals(2, reporte.get("creados").asInt());
+        assertEquals(4, reporte.get("rechazados").asInt());
+
+        JsonNode filas = reporte.get("filas");
+        assertEquals("CREADO", filas.get(0).get("estado").asText());
+        assertEquals(14, filas.get(0).get("nroPaciente").asText().length());
+        assertEquals("RUT inválido: 12345678-K", filas.get(1).get("errores").get(0).asText());
+        assertEquals("Ya existe un paciente con el RUT: 7654321-6", filas.get(2).get("errores").get(0).asText());
+        assertEquals("Genero no encontrado: 999999", filas.get(3).get("errores").get(0).asText());
+        assertEquals("Ya existe un paciente con el RUT: 12345678-5", filas.get(4).get("errores").get(0).asText());
+        assertEquals("CREADO", filas.get(5).get("estado").asText());
+
+        assertEquals(3, pacienteRepository.count());
+        assertEquals(filas.get(5).get("idPaciente").asLong(), indiceNombres.buscar("juan perez", 10).get(0).getIdPaciente());
+    }
+
+    @Test
+    @DisplayName("Debería rechazar los repetidos dentro del mismo lote")
+    void deberiaRechazarRepetidosEnLote() throws IOException {
+        Long[] tiposSangre = crearTiposSangre(3);
+        String json = "["
+                + fila("Ana", "12345678-5", "ana@grupobios.cl", tiposSangre[0]) + ","
+                + fila("Ana bis", "12.345.678-5", "ana.bis@grupobios.cl", tiposSangre[1]) + ","
+                + fila("Otra Ana", "7654321-6", "ana@grupobios.cl", tiposSangre[0])
+                + "]";
+
+        JsonNode filas = importar(json, "json", 500).get("filas");
+
+        assertEquals("CREADO", filas.get(0).get("estado").asText());
+        assertEquals("RUT repetido en la importación (fila 1)", filas.get(1).get("errores").get(0).asText());
+        assertEquals(List.of("Correo repetido en la importación (fila 1)", "Tipo de sangre ya asignado en la importación (fila 1)"),
+                objectMapper.convertValue(filas.get(2).get("errores"), List.class));
+        assertEquals(1, pacienteRepository.count());
+    }
+
+    @Test
+    @DisplayName("Debería revisar un lote completo con una consulta por campo y registrarlo en una transacción")
+    void deberiaRevisarLoteConUnaConsultaPorCampo() throws IOException {
+        Long[] tiposSangre = crearTiposSangre(100);
+        StringBuilder csv = new StringBuilder(ENCABEZADO);
+        for (int i = 0; i < 100; i++) {
+            csv.append(filaCsv(i, tiposSangre[i]));
+        }
+
+        estadisticas.clear();
+        JsonNode reporte = importar(csv.toString(), "csv", 100);
+
+        assertEquals(100, reporte.get("creados").asInt());
+        // RUT, correo, tipos de sangre asignados, tipos de sangre y generos existentes
+        assertEquals(5, estadisticas.getQueryExecutionCount());
+        assertEquals(1, estadisticas.getTransactionCount());
+        // las 5 consultas, 2 lotes de inserts y las llamadas a la secuencia; uno por fila serían más de 100
+        assertTrue(estadisticas.getPrepareStatementCount() <= 10, "sentencias: " + estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Debería mantener lo ya registrado e informar el error si el archivo se corta")
+    void deberiaInformarArchivoCortado() throws IOException {
+        Long[] tiposSangre = crearTiposSangre(1);
+        String json = "[" + fila("Ana", "12345678-5", "ana@grupobios.cl", tiposSangre[0]) + ",{\"nombre";
+
+        JsonNode reporte = importar(json, "json", 1);
+
+        assertEquals(1, reporte.get("creados").asInt());
+        assertTrue(reporte.get("error").asText().startsWith("JSON de la importación mal formado en la fila 2"));
+        assertEquals(1, pacienteRepository.count());
+    }
+
+    @Test
+    @DisplayName("Debería cerrar el reporte con los totales y el error si falla la base de datos")
+    void deberiaInformarErrorDeBaseDeDatos() throws IOException {
+        Long[] tiposSangre = crearTiposSangre(2);
+        String csv = ENCABEZADO + filaCsv(1, tiposSangre[0]) + filaCsv(2, tiposSangre[1]);
+
+        // el primer lote se registra, el segundo pierde la conexión
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager) {
+            private int lotes;
+
+            @Override
+            public <T> T execute(TransactionCallback<T> accion) {
+                if (++lotes > 1) {
+                    throw new DataAccessResourceFailureException("Conexión perdida");
+                }
+                return super.execute(accion);
+            }
+        };
+
+        JsonNode reporte = importar(csv, "csv", 1, transaccion);
+
+        assertEquals(1, reporte.get("filas").size());
+        assertEquals(1, reporte.get("total").asInt());
+        assertEquals(1, reporte.get("creados").asInt());
+        assertEquals("Error al registrar los pacientes: Conexión perdida", reporte.get("error").asText());
+        assertEquals(1, pacienteRepository.count());
+    }
+
+    /*
+     * Filas por segundo de la importación contra el registro de a uno. No es parte de la suite, se ejecuta con
+     * mvn test -Dtest=ImportPacientesCommandImplTest -Dbenchmark=true
+    */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark de la importación masiva")
+    void benchmarkImportacion() throws IOException {
+        int total = 50_000;
+        Long[] tiposSangre = crearTiposSangre(total + 2_000);
+
+        StringBuilder csv = new StringBuilder(ENCABEZADO);
+        for (int i = 0; i < total; i++) {
+            csv.append(filaCsv(i, tiposSangre[i]));
+        }
+
+        com.sun.management.ThreadMXBean hilo = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytes = hilo.getCurrentThreadAllocatedBytes();
+        estadisticas.clear();
+        long inicio = System.nanoTime();
+        JsonNode reporte = importar(csv.toString(), "csv", 500);
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("Importación: " + reporte.get("creados").asInt() + " pacientes en " + ms + " ms ("
+                + total * 1000L / Math.max(ms, 1) + " filas/s), " + estadisticas.getPrepareStatementCount() + " sentencias, "
+                + (hilo.getCurrentThreadAllocatedBytes() - bytes) / (1024 * 1024) + " MB asignados");
+
+        // el mismo registro de a uno con el comando de creación, sobre 2.000 filas
+        GeneradorNroPaciente generador = new GeneradorNroPaciente(0);
+        estadisticas.clear();
+        inicio = System.nanoTime();
+        for (int i = 0; i < 2_000; i++) {
+            // números después de los de la importación, así no repiten RUT ni correo
+            new CreatePacienteCommandImpl(nuevoPaciente(total + i, tiposSangre[total + i]), pacienteRepository, generoRepository,
+                    tipoSangreRepository, indiceNombres, transaccion(), generador).execute();
+        }
+        ms = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.println("De a uno: 2000 pacientes en " + ms + " ms (" + 2_000 * 1000L / Math.max(ms, 1) + " filas/s), "
+                + estadisticas.getPrepareStatementCount() + " sentencias");
+    }
+
+    private JsonNode importar(String contenido, String formato, int tamanoLote) throws IOException {
+        return importar(contenido, formato, tamanoLote, transaccion());
+    }
+
+    private JsonNode importar(String contenido, String formato, int tamanoLote, TransactionTemplate transaccion) throws IOException {
+        ImportPacientesCommandImpl comando = new ImportPacientesCommandImpl(
+                new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)), formato,
+                new LectorImportacionPacientes(objectMapper), pacienteRepository, generoRepository, tipoSangreRepository,
+                indiceNombres, new GeneradorNroPaciente(0), transaccion, objectMapper, tamanoLote);
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        comando.execute().writeTo(salida);
+        return objectMapper.readTree(salida.toByteArray());
+    }
+
+    private String filaCsv(int numero, Long tipoSangreId) {
+        return "Paciente " + numero + ";" + rut(10_000_000 + numero) + ";paciente" + numero + "@grupobios.cl;1990-01-01;"
+                + genero.getId() + ";" + tipoSangreId + "\n";
+    }
+
+    private String fila(String nombre, String rut, String correo, Long tipoSangreId) {
+        return "{\"nombrePaciente\":\"" + nombre + "\",\"rutPaciente\":\"" + rut + "\",\"correoPaciente\":\"" + correo
+                + "\",\"fechaNacimiento\":\"1990-01-01\",\"generoId\":" + genero.getId() + ",\"tipoSangreId\":" + tipoSangreId + "}";
+    }
+}
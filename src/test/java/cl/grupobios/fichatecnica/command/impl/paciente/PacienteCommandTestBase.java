@@ -0,0 +1,116 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import cl.grupobios.fichatecnica.repositories.IGeneroRepository;
+import cl.grupobios.fichatecnica.repositories.IPacienteRepository;
+import cl.grupobios.fichatecnica.repositories.ITipoSangreRepository;
+import cl.grupobios.fichatecnica.utils.IndiceNombresPacientes;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/*
+ * Base de los tests de los comandos de pacientes sobre H2. Sin la transacción del test: los comandos abren,
+ * confirman o revierten las suyas como en producción, por eso cada test deja las tablas vacías al terminar.
+ * Sin show-sql, que con miles de inserts se lleva la mayor parte del tiempo de los benchmarks.
+ * Las estadísticas de Hibernate están activas en application.properties
+*/
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+abstract class PacienteCommandTestBase {
+
+    @Autowired
+    protected IPacienteRepository pacienteRepository;
+
+    @Autowired
+    protected IGeneroRepository generoRepository;
+
+    @Autowired
+    protected ITipoSangreRepository tipoSangreRepository;
+
+    @Autowired
+    protected PlatformTransactionManager transactionManager;
+
+    @Autowired
+    protected EntityManagerFactory entityManagerFactory;
+
+    protected IndiceNombresPacientes indiceNombres;
+    protected Statistics estadisticas;
+    protected Genero genero;
+
+    @BeforeEach
+    void prepararDatos() {
+        indiceNombres = new IndiceNombresPacientes(new SimpleMeterRegistry());
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // las regiones de Caffeine son de la JVM y cada contexto de test tiene su propia base H2 con los mismos ids
+        entityManagerFactory.getCache().evictAll();
+        genero = generoRepository.save(new Genero(null, "Femenino", "F"));
+    }
+
+    @AfterEach
+    void limpiarDatos() {
+        pacienteRepository.deleteAllInBatch();
+        tipoSangreRepository.deleteAllInBatch();
+        generoRepository.deleteAllInBatch();
+    }
+
+    protected TransactionTemplate transaccion() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    // como lo envía el cliente al registrar: solo los ids del genero y del tipo de sangre, sin número de paciente
+    protected Paciente nuevoPaciente(int numero, Long tipoSangreId) {
+        Paciente paciente = new Paciente();
+        paciente.setNombrePaciente("Paciente " + numero);
+        paciente.setRutPaciente(rut(10_000_000 + numero));
+        paciente.setCorreoPaciente("paciente" + numero + "@grupobios.cl");
+        paciente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        paciente.setGenero(new Genero(genero.getId(), null, null));
+        paciente.setTipoSangre(new TipoSangre(tipoSangreId, null));
+        return paciente;
+    }
+
+    // listo para guardar directo con el repositorio, con su propio tipo de sangre (la relación es uno a uno)
+    protected Paciente pacienteCompleto(int numero) {
+        Paciente paciente = nuevoPaciente(numero, null);
+        paciente.setNroPaciente("NRO" + numero);
+        paciente.setActivo(true);
+        paciente.setGenero(genero);
+        paciente.setTipoSangre(tipoSangreRepository.save(new TipoSangre(null, "O+")));
+        return paciente;
+    }
+
+    protected Paciente registrar(int numero) {
+        return pacienteRepository.save(pacienteCompleto(numero));
+    }
+
+    protected Long[] crearTiposSangre(int cantidad) {
+        List<TipoSangre> tipos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            tipos.add(new TipoSangre(null, "O+"));
+        }
+        return tipoSangreRepository.saveAll(tipos).stream().map(TipoSangre::getId).toArray(Long[]::new);
+    }
+
+    // RUT con su dígito verificador, sin puntos
+    protected static String rut(int cuerpo) {
+        return cuerpo + "-" + ValidadorPaciente.digitoVerificador(String.valueOf(cuerpo));
+    }
+}
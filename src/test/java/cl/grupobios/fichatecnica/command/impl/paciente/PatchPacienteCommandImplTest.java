@@ -0,0 +1,219 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.grupobios.fichatecnica.exceptions.BusinessException;
+import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
+import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.ValidadorPaciente;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("Test de PatchPacienteCommandImpl sobre H2")
+class PatchPacienteCommandImplTest extends PacienteCommandTestBase {
+
+    @TempDir
+    Path directorio;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CacheFichaTecnicaPdf cacheFichaTecnica;
+    private Genero masculino;
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheFichaTecnica = new CacheFichaTecnicaPdf(new SimpleMeterRegistry(), 1024 * 1024, 1024 * 1024, Duration.ofMinutes(10), directorio.toString());
+        masculino = generoRepository.save(new Genero(null, "Masculino", "M"));
+        paciente = registrar(1);
+        indiceNombres.agregar(paciente.getId(), paciente.getNombrePaciente());
+    }
+
+    @Test
+    @DisplayName("Con versión debería modificar con un solo UPDATE sin leer el paciente ni el genero")
+    void deberiaModificarConUnSoloUpdate() throws Exception {
+        estadisticas.clear();
+        Long version = patch("{\"version\":0,\"nombrePaciente\":\"Ana Soto\",\"genero\":{\"id\":" + masculino.getId() + "}}").execute();
+
+        assertEquals(1L, version);
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+
+        Paciente modificado = pacienteRepository.findByIdWithRelations(paciente.getId()).orElseThrow();
+        assertEquals("Ana Soto", modificado.getNombrePaciente());
+        assertEquals("Masculino", modificado.getGenero().getNombreGenero());
+        assertEquals(rut(10_000_001), modificado.getRutPaciente());
+        assertEquals(1L, modificado.getVersion());
+        assertEquals(1, indiceNombres.buscar("ana soto", 10).size());
+    }
+
+    @Test
+    @DisplayName("Con una versión antigua no debería modificar nada")
+    void deberiaRechazarVersionAntigua() throws Exception {
+        patch("{\"version\":0,\"nombrePaciente\":\"Ana Soto\"}").execute();
+
+        assertThrows(ConcurrencyException.class, () -> patch("{\"version\":0,\"nombrePaciente\":\"Otro\"}").execute());
+        assertEquals("Ana Soto", pacienteRepository.findById(paciente.getId()).orElseThrow().getNombrePaciente());
+    }
+
+    @Test
+    @DisplayName("La versión del If-Match debería reemplazar a la del documento")
+    void deberiaUsarLaVersionDelIfMatch() throws Exception {
+        assertThrows(ConcurrencyException.class, () -> new PatchPacienteCommandImpl(paciente.getId(),
+                json("{\"version\":0,\"nombrePaciente\":\"Otro\"}"), 5L, pacienteRepository, generoRepository,
+                tipoSangreRepository, cacheFichaTecnica, indiceNombres, transaccion()).execute());
+
+        Long version = new PatchPacienteCommandImpl(paciente.getId(), json("{\"nombrePaciente\":\"Ana Soto\"}"), 0L,
+                pacienteRepository, generoRepository, tipoSangreRepository, cacheFichaTecnica, indiceNombres,
+                transaccion()).execute();
+        assertEquals(1L, version);
+    }
+
+    @Test
+    @DisplayName("La actualización completa con una versión antigua no debería modificar nada")
+    void deberiaRechazarActualizacionConVersionAntigua() throws Exception {
+        patch("{\"nombrePaciente\":\"Ana Soto\"}").execute();
+
+        Paciente cambios = new Paciente();
+        cambios.setNombrePaciente("Nombre Put");
+        assertThrows(ConcurrencyException.class, () -> new UpdatePacienteCommandImpl(paciente.getId(), cambios, 0L,
+                pacienteRepository, generoRepository, tipoSangreRepository, cacheFichaTecnica, indiceNombres).execute());
+        assertEquals("Ana Soto", pacienteRepository.findById(paciente.getId()).orElseThrow().getNombrePaciente());
+
+        Paciente actualizado = new UpdatePacienteCommandImpl(paciente.getId(), cambios, 1L,
+                pacienteRepository, generoRepository, tipoSangreRepository, cacheFichaTecnica, indiceNombres).execute();
+        assertEquals(2L, actualizado.getVersion());
+    }
+
+    @Test
+    @DisplayName("Sin versión debería leer el paciente y enviar solo las columnas modificadas")
+    void deberiaModificarLeyendoSinVersion() throws Exception {
+        estadisticas.clear();
+        Long version = patch("{\"correoPaciente\":\"nuevo@grupobios.cl\"}").execute();
+
+        assertEquals(1L, version);
+        // el SELECT del paciente y el UPDATE, sin consultar genero ni tipo de sangre
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(1, estadisticas.getEntityLoadCount());
+        assertEquals("nuevo@grupobios.cl", pacienteRepository.findById(paciente.getId()).orElseThrow().getCorreoPaciente());
+    }
+
+    /*
+     * Comparación de sentencias para cambiar solo el nombre: el PUT actual lee el paciente (el genero y el tipo
+     * de sangre salen del cache de segundo nivel) y reescribe la fila completa, el PATCH con versión es un único UPDATE
+    */
+    @Test
+    @DisplayName("Debería usar menos sentencias que la actualización completa")
+    void deberiaUsarMenosSentenciasQueLaActualizacion() throws Exception {
+        Paciente cambios = new Paciente();
+        cambios.setNombrePaciente("Nombre Put");
+        cambios.setGenero(new Genero(genero.getId(), null, null));
+        cambios.setTipoSangre(new TipoSangre(paciente.getTipoSangre().getId(), null));
+
+        estadisticas.clear();
+        new UpdatePacienteCommandImpl(paciente.getId(), cambios, null, pacienteRepository, generoRepository, tipoSangreRepository,
+                cacheFichaTecnica, indiceNombres).execute();
+        long sentenciasPut = estadisticas.getPrepareStatementCount();
+
+        estadisticas.clear();
+        patch("{\"nombrePaciente\":\"Nombre Patch\"}").execute();
+        long sentenciasPatch = estadisticas.getPrepareStatementCount();
+
+        estadisticas.clear();
+        patch("{\"version\":2,\"nombrePaciente\":\"Nombre Patch Version\"}").execute();
+        long sentenciasPatchVersion = estadisticas.getPrepareStatementCount();
+
+        assertTrue(sentenciasPut > sentenciasPatch);
+        assertEquals(2, sentenciasPatch);
+        assertEquals(1, sentenciasPatchVersion);
+    }
+
+    @Test
+    @DisplayName("Debería informar el paciente, el genero o el tipo de sangre inexistente")
+    void deberiaInformarReferenciasInexistentes() {
+        assertThrows(ResourceNotFoundException.class, () -> new PatchPacienteCommandImpl(999_999L,
+                json("{\"version\":0,\"nombrePaciente\":\"X\"}"), null, pacienteRepository, generoRepository, tipoSangreRepository,
+                cacheFichaTecnica, indiceNombres, transaccion()).execute());
+
+        ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class,
+                () -> patch("{\"version\":0,\"genero\":{\"id\":999999}}").execute());
+        assertEquals("Genero no encontrado", ex.getMessage());
+
+        ex = assertThrows(ResourceNotFoundException.class, () -> patch("{\"tipoSangre\":{\"id\":999999}}").execute());
+        assertEquals("Tipo de sangre no encontrado", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Debería informar el RUT duplicado y el tipo de sangre asignado a otro paciente")
+    void deberiaInformarDuplicados() throws Exception {
+        Paciente otro = registrar(2);
+
+        // el mismo RUT con puntos se normaliza antes de compararlo con la restricción única
+        String conPuntos = "10.000.002-" + ValidadorPaciente.digitoVerificador("10000002");
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> patch("{\"version\":0,\"rutPaciente\":\"" + conPuntos + "\"}").execute());
+        assertEquals("Ya existe un paciente con el RUT: " + otro.getRutPaciente(), ex.getMessage());
+
+        ex = assertThrows(BusinessException.class,
+                () -> patch("{\"tipoSangre\":{\"id\":" + otro.getTipoSangre().getId() + "}}").execute());
+        assertEquals("El tipo de sangre ya está asignado a otro paciente", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("No debería informar como duplicado el RUT que el paciente ya tiene")
+    void noDeberiaInformarSuPropioRut() {
+        Paciente otro = registrar(2);
+
+        BusinessException ex = assertThrows(BusinessException.class, () -> patch("{\"version\":0,\"rutPaciente\":\""
+                + paciente.getRutPaciente() + "\",\"correoPaciente\":\"" + otro.getCorreoPaciente() + "\"}").execute());
+        assertEquals("Ya existe un paciente con el correo: " + otro.getCorreoPaciente(), ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Debería rechazar un correo inválido o de más de 100 caracteres antes de ir a la base de datos")
+    void deberiaValidarElCorreo() {
+        String largo = "a".repeat(95) + "@grupobios.cl";
+
+        assertThrows(ValidationException.class, () -> patch("{\"correoPaciente\":\"" + largo + "\"}").execute());
+        assertThrows(ValidationException.class, () -> patch("{\"correoPaciente\":\"sin-arroba\"}").execute());
+        assertEquals(paciente.getCorreoPaciente(), pacienteRepository.findById(paciente.getId()).orElseThrow().getCorreoPaciente());
+    }
+
+    @Test
+    @DisplayName("Debería rechazar campos no modificables, nulos o vacíos")
+    void deberiaValidarElDocumento() {
+        assertThrows(ValidationException.class, () -> patch("{\"nroPaciente\":\"X\"}").execute());
+        assertThrows(ValidationException.class, () -> patch("{\"nombrePaciente\":null}").execute());
+        assertThrows(ValidationException.class, () -> patch("{\"correoPaciente\":\" \"}").execute());
+        assertThrows(ValidationException.class, () -> patch("{\"rutPaciente\":\"12.345.678-K\"}").execute());
+        assertThrows(ValidationException.class, () -> patch("{\"fechaNacimiento\":\"01-01-1990\"}").execute());
+        assertThrows(ValidationException.class, () -> patch("{\"version\":0}").execute());
+        assertThrows(ValidationException.class, () -> patch("[]").execute());
+    }
+
+    private PatchPacienteCommandImpl patch(String documento) throws Exception {
+        return new PatchPacienteCommandImpl(paciente.getId(), json(documento), null, pacienteRepository, generoRepository,
+                tipoSangreRepository, cacheFichaTecnica, indiceNombres, transaccion());
+    }
+
+    private JsonNode json(String documento) throws Exception {
+        return objectMapper.readTree(documento);
+    }
+}
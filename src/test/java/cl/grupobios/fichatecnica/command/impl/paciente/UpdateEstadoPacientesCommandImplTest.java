@@ -0,0 +1,189 @@
+package cl.grupobios.fichatecnica.command.impl.paciente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cl.grupobios.fichatecnica.dtos.ResultadoEstadoPacientesDTO;
+import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("Test de la eliminación lógica y reactivación de pacientes sobre H2")
+class UpdateEstadoPacientesCommandImplTest extends PacienteCommandTestBase {
+
+    @TempDir
+    Path directorio;
+
+    private CacheFichaTecnicaPdf cacheFichaTecnica;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheFichaTecnica = new CacheFichaTecnicaPdf(new SimpleMeterRegistry(), 1024 * 1024, 1024 * 1024, Duration.ofMinutes(10), directorio.toString());
+    }
+
+    @Test
+    @DisplayName("Debería eliminar varios pacientes con un solo UPDATE e informar los no encontrados")
+    void deberiaEliminarConUnSoloUpdate() {
+        List<Long> ids = registrarVarios(5);
+        ids.forEach(id -> indiceNombres.agregar(id, "Paciente " + id));
+        cacheFichaTecnica.guardar(ids.get(0), 0, new byte[] { 1 });
+
+        List<Long> solicitud = new ArrayList<>(ids);
+        solicitud.add(ids.get(0));
+        solicitud.add(999_999L);
+
+        estadisticas.clear();
+        ResultadoEstadoPacientesDTO resultado = cambiarEstado(solicitud, false).execute();
+
+        assertEquals(6, resultado.getSolicitados());
+        assertEquals(5, resultado.getActualizados());
+        assertEquals(0, resultado.getSinCambios());
+        assertEquals(List.of(999_999L), resultado.getNoEncontrados());
+
+        // el UPDATE y, como no cambiaron todos, la consulta de los ids existentes
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(1, estadisticas.getTransactionCount());
+
+        assertTrue(pacienteRepository.findByActivoTrue().isEmpty());
+        assertEquals(0, indiceNombres.tamano());
+        assertTrue(cacheFichaTecnica.obtener(ids.get(0)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debería reactivar solo los inactivos y volver a agregarlos al autocompletado")
+    void deberiaReactivarSoloLosInactivos() {
+        List<Long> ids = registrarVarios(4);
+        cambiarEstado(ids.subList(0, 3), false).execute();
+
+        estadisticas.clear();
+        ResultadoEstadoPacientesDTO resultado = cambiarEstado(ids, true).execute();
+
+        assertEquals(4, resultado.getSolicitados());
+        assertEquals(3, resultado.getActualizados());
+        assertEquals(1, resultado.getSinCambios());
+        assertTrue(resultado.getNoEncontrados().isEmpty());
+
+        // el UPDATE y la proyección con los nombres, sin cargar entidades
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+
+        assertEquals(4, pacienteRepository.findByActivoTrue().size());
+        assertEquals(4, indiceNombres.buscar("paciente", 10).size());
+    }
+
+    @Test
+    @DisplayName("Debería actualizar de a 1000 ids por UPDATE")
+    void deberiaAgruparDeAMil() {
+        List<Long> ids = registrarVarios(3);
+        List<Long> solicitud = new ArrayList<>(ids);
+        for (long id = 1_000_000; solicitud.size() < 2500; id++) {
+            solicitud.add(id);
+        }
+
+        estadisticas.clear();
+        ResultadoEstadoPacientesDTO resultado = cambiarEstado(solicitud, false).execute();
+
+        assertEquals(2500, resultado.getSolicitados());
+        assertEquals(3, resultado.getActualizados());
+        assertEquals(2497, resultado.getNoEncontrados().size());
+        // tres grupos: un UPDATE y una consulta de existentes por grupo
+        assertEquals(6, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Debería rechazar una lista vacía, ids inválidos o sobre el máximo")
+    void deberiaValidarIds() {
+        assertThrows(ValidationException.class, () -> cambiarEstado(List.of(), false).execute());
+        assertThrows(ValidationException.class, () -> cambiarEstado(List.of(1L, -1L), false).execute());
+        assertThrows(ValidationException.class, () -> new UpdateEstadoPacientesCommandImpl(List.of(1L, 2L, 3L), false, 2,
+                pacienteRepository, cacheFichaTecnica, indiceNombres, transaccion()).execute());
+    }
+
+    @Test
+    @DisplayName("La eliminación individual debería usar el UPDATE y responder no encontrado solo si no existe")
+    void deberiaEliminarUnoConUpdate() {
+        Long id = registrarVarios(1).get(0);
+        indiceNombres.agregar(id, "Paciente 1");
+
+        estadisticas.clear();
+        eliminar(id).execute();
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertFalse(pacienteRepository.findById(id).orElseThrow().isActivo());
+        assertEquals(0, indiceNombres.tamano());
+
+        // eliminar de nuevo no es un error
+        eliminar(id).execute();
+
+        assertThrows(ResourceNotFoundException.class, () -> eliminar(999_999L).execute());
+    }
+
+    /*
+     * Sentencias y tiempo de la eliminación lógica cargando cada paciente (findById + save) contra un UPDATE por grupo.
+     * No es parte de la suite, se ejecuta con
+     * mvn test -Dtest=UpdateEstadoPacientesCommandImplTest -Dbenchmark=true
+    */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark de la eliminación lógica")
+    void benchmarkEliminacion() {
+        List<Long> ids = registrarVarios(5000);
+        TransactionTemplate transaccion = transaccion();
+
+        estadisticas.clear();
+        long inicio = System.nanoTime();
+        for (Long id : ids) {
+            transaccion.executeWithoutResult(estado -> {
+                Paciente paciente = pacienteRepository.findById(id).orElseThrow();
+                paciente.setActivo(false);
+                pacienteRepository.save(paciente);
+            });
+        }
+        System.out.println("Uno a uno: " + estadisticas.getPrepareStatementCount() + " sentencias, "
+                + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+
+        cambiarEstado(ids, true).execute();
+
+        estadisticas.clear();
+        inicio = System.nanoTime();
+        cambiarEstado(ids, false).execute();
+        System.out.println("Por grupo: " + estadisticas.getPrepareStatementCount() + " sentencias, "
+                + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+    }
+
+    private UpdateEstadoPacientesCommandImpl cambiarEstado(List<Long> ids, boolean activo) {
+        return new UpdateEstadoPacientesCommandImpl(ids, activo, 10_000, pacienteRepository, cacheFichaTecnica,
+                indiceNombres, transaccion());
+    }
+
+    private DeletePacienteCommandImpl eliminar(Long id) {
+        return new DeletePacienteCommandImpl(id, pacienteRepository, cacheFichaTecnica, indiceNombres);
+    }
+
+    private List<Long> registrarVarios(int cantidad) {
+        List<Paciente> pacientes = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            pacientes.add(pacienteCompleto(i));
+        }
+
+        return pacienteRepository.saveAll(pacientes).stream().map(Paciente::getId).toList();
+    }
+}
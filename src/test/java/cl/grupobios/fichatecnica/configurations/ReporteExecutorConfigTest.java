@@ -0,0 +1,49 @@
+package cl.grupobios.fichatecnica.configurations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("Test unitario para ReporteExecutorConfig")
+class ReporteExecutorConfigTest {
+
+    private final WebApplicationContextRunner contextRunner = new WebApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    PropertyPlaceholderAutoConfiguration.class,
+                    TaskExecutionAutoConfiguration.class,
+                    HttpMessageConvertersAutoConfiguration.class,
+                    WebMvcAutoConfiguration.class))
+            .withUserConfiguration(ReporteExecutorConfig.class)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withPropertyValues("app.web.async.hilos=3", "app.web.async.cola=7");
+
+    @Test
+    @DisplayName("Las respuestas asíncronas de MVC deberían usar el pool acotado applicationTaskExecutor")
+    void mvcDeberiaUsarElPoolAcotado() {
+        contextRunner.run(context -> {
+            ThreadPoolTaskExecutor executor = assertInstanceOf(ThreadPoolTaskExecutor.class,
+                    context.getBean("applicationTaskExecutor"));
+            assertEquals(3, executor.getMaxPoolSize());
+            assertEquals(7, executor.getQueueCapacity());
+            assertEquals("web-async-", executor.getThreadNamePrefix());
+
+            RequestMappingHandlerAdapter adapter = context.getBean(RequestMappingHandlerAdapter.class);
+            assertSame(executor, ReflectionTestUtils.getField(adapter, "taskExecutor"));
+        });
+    }
+}
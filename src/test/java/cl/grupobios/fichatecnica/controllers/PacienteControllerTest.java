@@ -2,30 +2,47 @@ package cl.grupobios.fichatecnica.controllers;
 
 import cl.grupobios.fichatecnica.command.Command;
 import cl.grupobios.fichatecnica.command.factory.PacienteCommandFactory;
+import cl.grupobios.fichatecnica.dtos.BusquedaPacienteDTO;
+import cl.grupobios.fichatecnica.dtos.FichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoEstadoPacientesDTO;
+import cl.grupobios.fichatecnica.dtos.ResultadoFichaTecnicaLoteDTO;
+import cl.grupobios.fichatecnica.dtos.SugerenciaPacienteDTO;
 import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
+import cl.grupobios.fichatecnica.exceptions.ReporteSaturadoException;
 import cl.grupobios.fichatecnica.exceptions.ResourceNotFoundException;
 import cl.grupobios.fichatecnica.exceptions.ValidationException;
 import cl.grupobios.fichatecnica.models.Genero;
 import cl.grupobios.fichatecnica.models.Paciente;
 import cl.grupobios.fichatecnica.models.TipoSangre;
+import cl.grupobios.fichatecnica.services.IReporteJobService;
+import cl.grupobios.fichatecnica.utils.CacheFichaTecnicaPdf;
+import cl.grupobios.fichatecnica.utils.ETagPaciente;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -44,6 +61,12 @@ class PacienteControllerTest {
     @Mock
     private PacienteCommandFactory commandFactory;
 
+    @Mock
+    private IReporteJobService reporteJobService;
+
+    @Mock
+    private CacheFichaTecnicaPdf cacheFichaTecnica;
+
     @InjectMocks
     private PacienteController pacienteController;
 
@@ -96,31 +119,175 @@ class PacienteControllerTest {
             List<Paciente> pacientes = Arrays.asList(paciente1, paciente2);
             
             // Mock del comportamiento del command
-            when(commandFactory.obtenerTodosLosPacientes()).thenReturn(() -> pacientes);
+            when(commandFactory.obtenerPaginaPacientes(null, null)).thenReturn(() -> new PaginaDTO<>(pacientes, null));
 
             // Act & Assert
             mockMvc.perform(get("/api/v1/pacientes/listar")
                     .contentType(MediaType.APPLICATION_JSON))
                     .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist("X-Next-Cursor"))
                     .andExpect(jsonPath("$", hasSize(2)))
                     .andExpect(jsonPath("$[0].nombrePaciente").value("Juan Pérez"))
                     .andExpect(jsonPath("$[1].nombrePaciente").value("María García"));
 
-            verify(commandFactory, times(1)).obtenerTodosLosPacientes();
+            verify(commandFactory, times(1)).obtenerPaginaPacientes(null, null);
+        }
+
+        @Test
+        @DisplayName("Debería retornar el cursor de la siguiente página en X-Next-Cursor")
+        void deberiaRetornarCursorSiguientePagina() throws Exception {
+            // Arrange
+            when(commandFactory.obtenerPaginaPacientes("abc", 1))
+                    .thenReturn(() -> new PaginaDTO<>(List.of(paciente1), "def"));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar")
+                    .param("cursor", "abc")
+                    .param("limite", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Next-Cursor", "def"));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request con un cursor inválido")
+        void deberiaRetornarBadRequestPorCursorInvalido() throws Exception {
+            // Arrange
+            when(commandFactory.obtenerPaginaPacientes("x", null))
+                    .thenReturn(() -> { throw new ValidationException("Cursor de paginación inválido"); });
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar").param("cursor", "x"))
+                    .andExpect(status().isBadRequest());
         }
 
         @Test
         @DisplayName("Debería retornar 204 No Content cuando hay excepción")
         void deberiaRetornarNoContentCuandoHayExcepcion() throws Exception {
             // Arrange
-            when(commandFactory.obtenerTodosLosPacientes())
+            when(commandFactory.obtenerPaginaPacientes(null, null))
                     .thenReturn(() -> { throw new RuntimeException("Error en la base de datos"); });
 
             // Act & Assert
             mockMvc.perform(get("/api/v1/pacientes/listar"))
                     .andExpect(status().isNoContent());
 
-            verify(commandFactory, times(1)).obtenerTodosLosPacientes();
+            verify(commandFactory, times(1)).obtenerPaginaPacientes(null, null);
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para GET /api/v1/pacientes/sugerencias")
+    class SugerirPacientesTests {
+
+        @Test
+        @DisplayName("Debería retornar las sugerencias del índice")
+        void deberiaRetornarSugerencias() throws Exception {
+            // Arrange
+            when(commandFactory.sugerirPacientes("juan per", 5))
+                    .thenReturn(() -> List.of(new SugerenciaPacienteDTO(1L, "Juan Pérez", 1)));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/sugerencias")
+                    .param("texto", "juan per")
+                    .param("limite", "5")
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].nombrePaciente").value("Juan Pérez"))
+                    .andExpect(jsonPath("$[0].distancia").value(1));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request con un texto vacío")
+        void deberiaRetornarBadRequestPorTextoVacio() throws Exception {
+            // Arrange
+            when(commandFactory.sugerirPacientes(" ", null))
+                    .thenReturn(() -> { throw new ValidationException("El texto a buscar es requerido"); });
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/sugerencias").param("texto", " "))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para GET /api/v1/pacientes/buscar")
+    class BuscarPacientesTests {
+
+        @Test
+        @DisplayName("Debería enlazar los filtros y retornar el cursor siguiente")
+        void deberiaEnlazarFiltros() throws Exception {
+            // Arrange
+            when(commandFactory.buscarPacientes(any(BusquedaPacienteDTO.class), eq("abc"), eq(1)))
+                    .thenReturn(() -> new PaginaDTO<>(List.of(paciente1), "def"));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/buscar")
+                    .param("nombre", "Ju")
+                    .param("generoId", "1")
+                    .param("edadMinima", "18")
+                    .param("edadMaxima", "65")
+                    .param("cursor", "abc")
+                    .param("limite", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Next-Cursor", "def"));
+
+            verify(commandFactory).buscarPacientes(argThat(filtro -> "Ju".equals(filtro.getNombre())
+                    && Long.valueOf(1L).equals(filtro.getGeneroId())
+                    && Integer.valueOf(18).equals(filtro.getEdadMinima())
+                    && Integer.valueOf(65).equals(filtro.getEdadMaxima())
+                    && Boolean.TRUE.equals(filtro.getActivo())), eq("abc"), eq(1));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request con un rango de edad inválido")
+        void deberiaRetornarBadRequestPorRangoInvalido() throws Exception {
+            // Arrange
+            when(commandFactory.buscarPacientes(any(BusquedaPacienteDTO.class), isNull(), isNull()))
+                    .thenReturn(() -> { throw new ValidationException("La edad mínima no puede ser mayor a la edad máxima"); });
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/buscar")
+                    .param("edadMinima", "50")
+                    .param("edadMaxima", "20"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para GET /api/v1/pacientes/listar/resumen")
+    class ObtenerResumenPacientesTests {
+
+        @Test
+        @DisplayName("Debería retornar el resumen de los pacientes con el cursor siguiente")
+        void deberiaRetornarResumenConCursor() throws Exception {
+            // Arrange
+            PacienteDTO resumen = new PacienteDTO(1L, "Juan Pérez", "12345678-9", "juan@example.com",
+                    LocalDate.of(1990, 1, 1), "P-1", true, "Masculino", "O+");
+            when(commandFactory.obtenerPaginaResumenPacientes(null, 1))
+                    .thenReturn(() -> new PaginaDTO<>(List.of(resumen), "def"));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar/resumen")
+                    .param("limite", "1")
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Next-Cursor", "def"))
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].generoNombre").value("Masculino"))
+                    .andExpect(jsonPath("$[0].tipoSangreNombre").value("O+"));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request con un límite inválido")
+        void deberiaRetornarBadRequestPorLimiteInvalido() throws Exception {
+            // Arrange
+            when(commandFactory.obtenerPaginaResumenPacientes(null, 0))
+                    .thenThrow(new ValidationException("El límite de la página debe ser mayor a 0"));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar/resumen").param("limite", "0"))
+                    .andExpect(status().isBadRequest());
         }
     }
 
@@ -172,6 +339,140 @@ class PacienteControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("Tests de ETag, If-None-Match e If-Match")
+    class ETagPacienteTests {
+
+        @Test
+        @DisplayName("Debería enviar el ETag del paciente con estado 200 OK")
+        void deberiaEnviarETag() throws Exception {
+            // Arrange
+            when(commandFactory.buscarPorId(1L))
+                    .thenReturn(() -> Optional.of(paciente1));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar/{id}", 1L))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", ETagPaciente.de(1L, 0)));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 304 Not Modified sin cargar al paciente cuando el ETag coincide")
+        void deberiaRetornarNotModifiedSiElETagCoincide() throws Exception {
+            // Arrange
+            when(commandFactory.versionPacienteCommand(1L))
+                    .thenReturn(() -> Optional.of(4L));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar/{id}", 1L)
+                    .header("If-None-Match", ETagPaciente.de(1L, 4)))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", ETagPaciente.de(1L, 4)))
+                    .andExpect(content().string(""));
+
+            verify(commandFactory, never()).buscarPorId(anyLong());
+        }
+
+        @Test
+        @DisplayName("Debería retornar el paciente cuando el ETag es de otra versión")
+        void deberiaRetornarPacienteSiElETagNoCoincide() throws Exception {
+            // Arrange
+            when(commandFactory.versionPacienteCommand(1L))
+                    .thenReturn(() -> Optional.of(0L));
+            when(commandFactory.buscarPorId(1L))
+                    .thenReturn(() -> Optional.of(paciente1));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar/{id}", 1L)
+                    .header("If-None-Match", ETagPaciente.de(1L, 3)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", ETagPaciente.de(1L, 0)));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 304 Not Modified sin generar la ficha PDF cuando el ETag coincide")
+        void deberiaRetornarNotModifiedSinGenerarPdf() throws Exception {
+            // Arrange
+            when(commandFactory.versionPacienteCommand(1L))
+                    .thenReturn(() -> Optional.of(2L));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/{id}/ficha-tecnia/pdf", 1L)
+                    .header("If-None-Match", "W/" + ETagPaciente.de(1L, 2)))
+                    .andExpect(status().isNotModified());
+
+            verify(commandFactory, never()).buscarPorId(anyLong());
+            verify(commandFactory, never()).generarFichaTecnicaPDFCommand(any(), anyLong());
+        }
+
+        @Test
+        @DisplayName("Debería leer la época del cache de la ficha antes de cargar al paciente")
+        void deberiaLeerEpocaAntesDeCargarPaciente() throws Exception {
+            // Arrange
+            when(cacheFichaTecnica.epoca(1L)).thenReturn(7L);
+            when(commandFactory.buscarPorId(1L))
+                    .thenReturn(() -> Optional.of(paciente1));
+            when(commandFactory.generarFichaTecnicaPDFCommand(paciente1, 7L))
+                    .thenReturn(() -> salida -> salida.write(new byte[] { 1, 2, 3 }));
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/{id}/ficha-tecnia/pdf", 1L))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", ETagPaciente.de(1L, 0)));
+
+            // si el paciente se modifica después de cargarlo, la época ya no coincide y la ficha no se cachea
+            InOrder orden = inOrder(cacheFichaTecnica, commandFactory);
+            orden.verify(cacheFichaTecnica).epoca(1L);
+            orden.verify(commandFactory).buscarPorId(1L);
+            orden.verify(commandFactory).generarFichaTecnicaPDFCommand(paciente1, 7L);
+        }
+
+        @Test
+        @DisplayName("Debería retornar 412 Precondition Failed al actualizar con un If-Match de otra versión")
+        void deberiaRetornarPreconditionFailedAlActualizar() throws Exception {
+            // Arrange
+            String pacienteJson = "{\"nombrePaciente\":\"Juan Soto\"}";
+            when(objectMapper.readValue(pacienteJson, Paciente.class)).thenReturn(paciente1);
+            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class), eq(3L)))
+                    .thenReturn(() -> { throw new ConcurrencyException("El paciente fue modificado por otra transacción"); });
+
+            // Act & Assert
+            mockMvc.perform(put("/api/v1/pacientes/update/{id}", 1L)
+                    .param("paciente", pacienteJson)
+                    .header("If-Match", ETagPaciente.de(1L, 3)))
+                    .andExpect(status().isPreconditionFailed());
+        }
+
+        @Test
+        @DisplayName("Debería pasar la versión del If-Match al merge patch y responder con el nuevo ETag")
+        void deberiaModificarConIfMatch() throws Exception {
+            // Arrange
+            when(commandFactory.patchPacienteCommand(eq(1L), any(), eq(3L)))
+                    .thenReturn(() -> 4L);
+
+            // Act & Assert
+            mockMvc.perform(patch("/api/v1/pacientes/update/{id}", 1L)
+                    .contentType("application/merge-patch+json")
+                    .header("If-Match", ETagPaciente.de(1L, 3))
+                    .content("{\"nombrePaciente\":\"Juan Soto\"}"))
+                    .andExpect(status().isNoContent())
+                    .andExpect(header().string("ETag", ETagPaciente.de(1L, 4)));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 412 Precondition Failed con un If-Match de otro paciente")
+        void deberiaRetornarPreconditionFailedConIfMatchDeOtroPaciente() throws Exception {
+            // Act & Assert
+            mockMvc.perform(patch("/api/v1/pacientes/update/{id}", 1L)
+                    .contentType("application/merge-patch+json")
+                    .header("If-Match", ETagPaciente.de(2L, 3))
+                    .content("{\"nombrePaciente\":\"Juan Soto\"}"))
+                    .andExpect(status().isPreconditionFailed());
+
+            verify(commandFactory, never()).patchPacienteCommand(anyLong(), any(), any());
+        }
+    }
+
     @Nested
     @DisplayName("Tests para POST /api/v1/pacientes/create")
     class RegistrarPacienteTests {
@@ -311,7 +612,7 @@ class PacienteControllerTest {
             );
             
             when(objectMapper.readValue(eq(pacienteJson), eq(Paciente.class))).thenReturn(pacienteActualizado);
-            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class)))
+            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class), isNull()))
                     .thenReturn(() -> pacienteActualizado);
 
             // Act & Assert
@@ -320,7 +621,7 @@ class PacienteControllerTest {
                     .andExpect(status().isOk());
 
             verify(objectMapper, times(1)).readValue(eq(pacienteJson), eq(Paciente.class));
-            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class));
+            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class), isNull());
         }
 
         @Test
@@ -331,7 +632,7 @@ class PacienteControllerTest {
             Paciente paciente = new Paciente();
             
             when(objectMapper.readValue(eq(pacienteJson), eq(Paciente.class))).thenReturn(paciente);
-            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class)))
+            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class), isNull()))
                     .thenReturn(() -> { throw new ValidationException("Datos inválidos"); });
 
             // Act & Assert
@@ -340,7 +641,7 @@ class PacienteControllerTest {
                     .andExpect(status().isBadRequest());
 
             verify(objectMapper, times(1)).readValue(eq(pacienteJson), eq(Paciente.class));
-            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class));
+            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class), isNull());
         }
 
         @Test
@@ -351,7 +652,7 @@ class PacienteControllerTest {
             Paciente paciente = new Paciente();
             
             when(objectMapper.readValue(eq(pacienteJson), eq(Paciente.class))).thenReturn(paciente);
-            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class)))
+            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class), isNull()))
                     .thenReturn(() -> { throw new ResourceNotFoundException("Paciente no encontrado"); });
 
             // Act & Assert
@@ -360,7 +661,7 @@ class PacienteControllerTest {
                     .andExpect(status().isNotFound());
 
             verify(objectMapper, times(1)).readValue(eq(pacienteJson), eq(Paciente.class));
-            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class));
+            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class), isNull());
         }
 
         @Test
@@ -371,7 +672,7 @@ class PacienteControllerTest {
             Paciente paciente = new Paciente();
             
             when(objectMapper.readValue(eq(pacienteJson), eq(Paciente.class))).thenReturn(paciente);
-            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class)))
+            when(commandFactory.updatePacienteCommand(eq(1L), any(Paciente.class), isNull()))
                     .thenReturn(() -> { throw new ConcurrencyException("Conflicto de concurrencia"); });
 
             // Act & Assert
@@ -380,7 +681,71 @@ class PacienteControllerTest {
                     .andExpect(status().isConflict());
 
             verify(objectMapper, times(1)).readValue(eq(pacienteJson), eq(Paciente.class));
-            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class));
+            verify(commandFactory, times(1)).updatePacienteCommand(eq(1L), any(Paciente.class), isNull());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para PATCH /api/v1/pacientes/update/{id}")
+    class ModificarPacienteTests {
+
+        @Test
+        @DisplayName("Debería aplicar el merge patch con estado 204 No Content")
+        void deberiaModificarPaciente() throws Exception {
+            // Arrange
+            when(commandFactory.patchPacienteCommand(eq(1L), any(), isNull()))
+                    .thenReturn(() -> 3L);
+
+            // Act & Assert
+            mockMvc.perform(patch("/api/v1/pacientes/update/{id}", 1L)
+                    .contentType("application/merge-patch+json")
+                    .content("{\"version\":2,\"nombrePaciente\":\"Juan Soto\"}"))
+                    .andExpect(status().isNoContent());
+
+            verify(commandFactory, times(1)).patchPacienteCommand(eq(1L), argThat(patch ->
+                    patch.get("nombrePaciente").asText().equals("Juan Soto") && patch.get("version").asLong() == 2), isNull());
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request por ValidationException")
+        void deberiaRetornarBadRequestPorValidationException() throws Exception {
+            // Arrange
+            when(commandFactory.patchPacienteCommand(eq(1L), any(), isNull()))
+                    .thenReturn(() -> { throw new ValidationException("El campo nroPaciente no se puede modificar"); });
+
+            // Act & Assert
+            mockMvc.perform(patch("/api/v1/pacientes/update/{id}", 1L)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"nroPaciente\":\"X\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Debería retornar 409 Conflict cuando el paciente cambió de versión")
+        void deberiaRetornarConflictPorConcurrencyException() throws Exception {
+            // Arrange
+            when(commandFactory.patchPacienteCommand(eq(1L), any(), isNull()))
+                    .thenReturn(() -> { throw new ConcurrencyException("El paciente fue modificado por otra transacción"); });
+
+            // Act & Assert
+            mockMvc.perform(patch("/api/v1/pacientes/update/{id}", 1L)
+                    .contentType("application/merge-patch+json")
+                    .content("{\"version\":0,\"nombrePaciente\":\"Juan Soto\"}"))
+                    .andExpect(status().isConflict());
+        }
+
+        @Test
+        @DisplayName("Debería retornar 404 Not Found cuando el paciente no existe")
+        void deberiaRetornarNotFoundCuandoPacienteNoExiste() throws Exception {
+            // Arrange
+            when(commandFactory.patchPacienteCommand(eq(99L), any(), isNull()))
+                    .thenReturn(() -> { throw new ResourceNotFoundException("Paciente no encontrado"); });
+
+            // Act & Assert
+            mockMvc.perform(patch("/api/v1/pacientes/update/{id}", 99L)
+                    .contentType("application/merge-patch+json")
+                    .content("{\"nombrePaciente\":\"Juan Soto\"}"))
+                    .andExpect(status().isNotFound());
         }
     }
 
@@ -430,4 +795,370 @@ class PacienteControllerTest {
             verify(commandFactory, times(1)).eliminarPacienteCommand(1L);
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Tests para la eliminación lógica y reactivación por lote")
+    class CambiarEstadoPacientesTests {
+
+        @Test
+        @DisplayName("Debería eliminar varios pacientes e informar el resultado con estado 200 OK")
+        void deberiaEliminarVariosPacientes() throws Exception {
+            // Arrange
+            ResultadoEstadoPacientesDTO resultado = new ResultadoEstadoPacientesDTO(false, 3, 2, 0, List.of(99L));
+            when(commandFactory.cambiarEstadoPacientesCommand(List.of(1L, 2L, 99L), false))
+                    .thenReturn(() -> resultado);
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/delete/lote")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .content("{\"ids\":[1,2,99]}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.actualizados").value(2))
+                    .andExpect(jsonPath("$.noEncontrados[0]").value(99));
+
+            verify(commandFactory, times(1)).cambiarEstadoPacientesCommand(List.of(1L, 2L, 99L), false);
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request por ValidationException")
+        void deberiaRetornarBadRequestPorValidationException() throws Exception {
+            // Arrange
+            when(commandFactory.cambiarEstadoPacientesCommand(any(), eq(true)))
+                    .thenReturn(() -> { throw new ValidationException("Debe indicar los ids de los pacientes"); });
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/reactivar/lote")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{}"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Debería reactivar un paciente con estado 200 OK")
+        void deberiaReactivarPaciente() throws Exception {
+            // Arrange
+            when(commandFactory.cambiarEstadoPacientesCommand(List.of(1L), true))
+                    .thenReturn(() -> new ResultadoEstadoPacientesDTO(true, 1, 1, 0, List.of()));
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/reactivar/{id}", 1L))
+                    .andExpect(status().isOk());
+
+            verify(commandFactory, times(1)).cambiarEstadoPacientesCommand(List.of(1L), true);
+        }
+
+        @Test
+        @DisplayName("Debería retornar 404 Not Found al reactivar un paciente que no existe")
+        void deberiaRetornarNotFoundAlReactivarPacienteInexistente() throws Exception {
+            // Arrange
+            when(commandFactory.cambiarEstadoPacientesCommand(List.of(99L), true))
+                    .thenReturn(() -> new ResultadoEstadoPacientesDTO(true, 1, 0, 0, List.of(99L)));
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/reactivar/{id}", 99L))
+                    .andExpect(status().isNotFound());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para POST /api/v1/pacientes/ficha-tecnica/lote")
+    class GenerarFichasTecnicasLoteTests {
+
+        @Test
+        @DisplayName("Debería retornar un ZIP con estado 200 OK")
+        void deberiaRetornarZip() throws Exception {
+            // Arrange
+            StreamingResponseBody cuerpo = salida -> salida.write(new byte[] { 'P', 'K' });
+            when(commandFactory.generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class)))
+                    .thenReturn(() -> new ResultadoFichaTecnicaLoteDTO(cuerpo, List.of()));
+
+            // Act & Assert
+            MvcResult resultado = mockMvc.perform(post("/api/v1/pacientes/ficha-tecnica/lote")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ids\":[1,2],\"formato\":\"zip\"}"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Disposition", "attachment; filename=\"Fichas_Tecnicas.zip\""))
+                    .andExpect(header().doesNotExist("X-Missing-Patient-Ids"))
+                    .andExpect(content().bytes(new byte[] { 'P', 'K' }));
+
+            verify(commandFactory, times(1)).generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class));
+        }
+
+        @Test
+        @DisplayName("Debería informar en un header los ids que no se encontraron")
+        void deberiaInformarIdsNoEncontrados() throws Exception {
+            // Arrange
+            StreamingResponseBody cuerpo = salida -> salida.write(new byte[] { '%' });
+            when(commandFactory.generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class)))
+                    .thenReturn(() -> new ResultadoFichaTecnicaLoteDTO(cuerpo, List.of(7L, 9L)));
+
+            // Act & Assert
+            MvcResult resultado = mockMvc.perform(post("/api/v1/pacientes/ficha-tecnica/lote")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ids\":[1,7,9]}"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Missing-Patient-Ids", "7,9"));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request por ValidationException")
+        void deberiaRetornarBadRequestPorValidationException() throws Exception {
+            // Arrange
+            when(commandFactory.generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class)))
+                    .thenReturn(() -> { throw new ValidationException("Lote inválido"); });
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/ficha-tecnica/lote")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{}"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Debería retornar 404 Not Found cuando no hay pacientes")
+        void deberiaRetornarNotFoundSinPacientes() throws Exception {
+            // Arrange
+            when(commandFactory.generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class)))
+                    .thenReturn(() -> { throw new ResourceNotFoundException("Sin pacientes"); });
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/ficha-tecnica/lote")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"generoId\":1}"))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @DisplayName("Debería retornar 503 con Retry-After cuando el generador está saturado")
+        void deberiaRetornarServiceUnavailableSiEstaSaturado() throws Exception {
+            // Arrange
+            when(commandFactory.generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class)))
+                    .thenReturn(() -> { throw new ReporteSaturadoException("Saturado", 5); });
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/ficha-tecnica/lote")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ids\":[1]}"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "5"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para POST /api/v1/pacientes/{id}/ficha-tecnica/jobs")
+    class EncolarFichaTecnicaTests {
+
+        @Test
+        @DisplayName("Debería retornar 503 con la cola de jobs llena sin haber empezado a llenar la ficha")
+        void deberiaRetornarServiceUnavailableSinLlenarFicha() throws Exception {
+            // Arrange
+            AtomicBoolean llenada = new AtomicBoolean();
+            StreamingResponseBody cuerpo = salida -> llenada.set(true);
+            when(commandFactory.buscarPorId(1L))
+                    .thenReturn(() -> Optional.of(paciente1));
+            when(commandFactory.generarFichaTecnicaPDFJobCommand(eq(paciente1), anyLong()))
+                    .thenReturn(() -> cuerpo);
+            when(reporteJobService.encolar(any(), eq(MediaType.APPLICATION_PDF_VALUE), eq(cuerpo)))
+                    .thenThrow(new ReporteSaturadoException("Cola llena", 5));
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/{id}/ficha-tecnica/jobs", 1L))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "5"));
+
+            // el llenado es parte del cuerpo del job, no se envió nada al pool de reportes
+            assertFalse(llenada.get());
+            verify(commandFactory, never()).generarFichaTecnicaPDFCommand(any(), anyLong());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para POST /api/v1/pacientes/ficha-tecnica/lote/jobs")
+    class EncolarFichasTecnicasLoteTests {
+
+        @Test
+        @DisplayName("Debería retornar 202 Accepted con la ubicación del job")
+        void deberiaRetornarAccepted() throws Exception {
+            // Arrange
+            StreamingResponseBody cuerpo = salida -> salida.write(new byte[] { 'P', 'K' });
+            ReporteJobDTO job = new ReporteJobDTO("job-1", ReporteJobDTO.Estado.PENDIENTE, "Fichas_Tecnicas.zip",
+                    "application/zip", null, null, null);
+            when(commandFactory.generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class)))
+                    .thenReturn(() -> new ResultadoFichaTecnicaLoteDTO(cuerpo, List.of(3L)));
+            when(reporteJobService.encolar("Fichas_Tecnicas.zip", "application/zip", cuerpo)).thenReturn(job);
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/ficha-tecnica/lote/jobs")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"ids\":[1,2,3],\"formato\":\"zip\"}"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string("Location", "/api/v1/reportes/jobs/job-1"))
+                    .andExpect(header().string("X-Missing-Patient-Ids", "3"));
+
+            verify(reporteJobService, times(1)).encolar("Fichas_Tecnicas.zip", "application/zip", cuerpo);
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request sin encolar el job")
+        void deberiaRetornarBadRequestSinEncolar() throws Exception {
+            // Arrange
+            when(commandFactory.generarFichasTecnicasLoteCommand(any(FichaTecnicaLoteDTO.class)))
+                    .thenReturn(() -> { throw new ValidationException("Lote inválido"); });
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/ficha-tecnica/lote/jobs")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{}"))
+                    .andExpect(status().isBadRequest());
+
+            verify(reporteJobService, never()).encolar(any(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para GET /api/v1/pacientes/listar/ndjson")
+    class ExportarNdjsonTests {
+
+        @Test
+        @DisplayName("Debería entregar los pacientes en NDJSON")
+        void deberiaEntregarPacientesEnNdjson() throws Exception {
+            // Arrange
+            StreamingResponseBody cuerpo = salida -> salida.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+            when(commandFactory.exportarPacientesNdjsonCommand()).thenReturn(() -> cuerpo);
+
+            // Act
+            MvcResult resultado = mockMvc.perform(get("/api/v1/pacientes/listar/ndjson"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            // Assert
+            mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson"))
+                    .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 500 cuando falla la exportación")
+        void deberiaRetornarErrorCuandoFalla() throws Exception {
+            // Arrange
+            when(commandFactory.exportarPacientesNdjsonCommand())
+                    .thenReturn(() -> { throw new RuntimeException("Error en la base de datos"); });
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar/ndjson"))
+                    .andExpect(status().isInternalServerError());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para POST /api/v1/pacientes/importar")
+    class ImportarPacientesTests {
+
+        @Test
+        @DisplayName("Debería importar un CSV y entregar el reporte por fila")
+        void deberiaImportarCsv() throws Exception {
+            // Arrange
+            StreamingResponseBody cuerpo = salida -> salida.write("{\"filas\":[],\"total\":0}".getBytes());
+            when(commandFactory.importarPacientesCommand(any(), eq("csv"))).thenReturn(() -> cuerpo);
+
+            // Act
+            MvcResult resultado = mockMvc.perform(post("/api/v1/pacientes/importar")
+                            .contentType("text/csv")
+                            .content("nombrePaciente;rutPaciente\n"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            // Assert
+            mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(content().string("{\"filas\":[],\"total\":0}"));
+        }
+
+        @Test
+        @DisplayName("Debería usar el formato JSON según el Content-Type")
+        void deberiaImportarJson() throws Exception {
+            // Arrange
+            StreamingResponseBody cuerpo = salida -> salida.write("{}".getBytes());
+            when(commandFactory.importarPacientesCommand(any(), eq("json"))).thenReturn(() -> cuerpo);
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/importar")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]"))
+                    .andExpect(request().asyncStarted());
+
+            verify(commandFactory).importarPacientesCommand(any(), eq("json"));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 cuando el archivo no tiene el encabezado esperado")
+        void deberiaRetornarBadRequest() throws Exception {
+            // Arrange
+            when(commandFactory.importarPacientesCommand(any(), eq("csv")))
+                    .thenReturn(() -> { throw new ValidationException("El encabezado del CSV debe tener las columnas"); });
+
+            // Act & Assert
+            mockMvc.perform(post("/api/v1/pacientes/importar")
+                            .contentType("text/csv")
+                            .content("nombre\n"))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @DisplayName("Debería retornar 415 para otros tipos de contenido")
+        void deberiaRetornarUnsupportedMediaType() throws Exception {
+            mockMvc.perform(post("/api/v1/pacientes/importar")
+                            .contentType(MediaType.TEXT_PLAIN)
+                            .content("hola"))
+                    .andExpect(status().isUnsupportedMediaType());
+
+            verify(commandFactory, never()).importarPacientesCommand(any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests para GET /api/v1/pacientes/listar/exportar")
+    class ExportarListadoTests {
+
+        @Test
+        @DisplayName("Debería retornar el CSV con estado 200 OK")
+        void deberiaRetornarCsv() throws Exception {
+            // Arrange
+            StreamingResponseBody cuerpo = salida -> salida.write("ID\r\n".getBytes());
+            when(commandFactory.exportarListadoPacientesCommand("csv")).thenReturn(() -> cuerpo);
+
+            // Act & Assert
+            MvcResult resultado = mockMvc.perform(get("/api/v1/pacientes/listar/exportar"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Disposition", "attachment; filename=\"Pacientes.csv\""))
+                    .andExpect(content().string("ID\r\n"));
+        }
+
+        @Test
+        @DisplayName("Debería retornar 400 Bad Request con un formato no soportado")
+        void deberiaRetornarBadRequestPorFormato() throws Exception {
+            // Arrange
+            when(commandFactory.exportarListadoPacientesCommand("pdf"))
+                    .thenReturn(() -> { throw new ValidationException("Formato no soportado"); });
+
+            // Act & Assert
+            mockMvc.perform(get("/api/v1/pacientes/listar/exportar").param("formato", "pdf"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package cl.grupobios.fichatecnica.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+
+import cl.grupobios.fichatecnica.command.impl.paciente.SearchPacienteCommandImpl;
+import cl.grupobios.fichatecnica.dtos.BusquedaPacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+import cl.grupobios.fichatecnica.dtos.PaginaDTO;
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import jakarta.persistence.EntityManager;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@DisplayName("Test de IPacienteRepository sobre H2")
+class PacienteRepositoryTest {
+
+    @Autowired
+    private IPacienteRepository pacienteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Genero genero;
+
+    @BeforeEach
+    void setUp() {
+        genero = new Genero();
+        genero.setNombreGenero("Femenino");
+        genero.setSigla("F");
+        entityManager.persist(genero);
+    }
+
+    @Test
+    @DisplayName("Debería listar el resumen con el genero y tipo de sangre sin cargar entidades")
+    void deberiaListarResumenSinCargarEntidades() {
+        Paciente primero = crearPaciente(1);
+        crearPaciente(2);
+        Paciente inactivo = crearPaciente(3);
+        inactivo.setActivo(false);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<PacienteDTO> resumen = pacienteRepository.findPaginaResumen(0L, Limit.of(10));
+
+        assertEquals(2, resumen.size());
+        PacienteDTO dto = resumen.get(0);
+        assertEquals(primero.getId(), dto.getIdPaciente());
+        assertEquals("Paciente 1", dto.getNombrePaciente());
+        assertEquals("Femenino", dto.getGeneroNombre());
+        assertEquals("O+", dto.getTipoSangreNombre());
+
+        // la proyección no debe dejar entidades administradas en el contexto de persistencia
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    @DisplayName("Debería respetar el cursor y el límite en el resumen")
+    void deberiaRespetarCursorYLimite() {
+        Paciente primero = crearPaciente(1);
+        Paciente segundo = crearPaciente(2);
+        Paciente tercero = crearPaciente(3);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<PacienteDTO> resumen = pacienteRepository.findPaginaResumen(primero.getId(), Limit.of(1));
+
+        assertEquals(1, resumen.size());
+        assertEquals(segundo.getId(), resumen.get(0).getIdPaciente());
+        assertFalse(resumen.stream().anyMatch(p -> p.getIdPaciente().equals(tercero.getId())));
+    }
+
+    @Test
+    @DisplayName("Debería recorrer todos los pacientes limpiando el contexto de persistencia por lote")
+    void deberiaRecorrerPacientesLimpiandoContexto() {
+        for (int i = 1; i <= 5; i++) {
+            crearPaciente(i);
+        }
+        Paciente inactivo = crearPaciente(6);
+        inactivo.setActivo(false);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Paciente> pacientes;
+        try (Stream<Paciente> stream = pacienteRepository.streamPacientesConRelaciones(2, 2)) {
+            pacientes = stream.toList();
+        }
+
+        // incluye a los inactivos y mantiene el orden por id
+        assertEquals(6, pacientes.size());
+        assertEquals("Paciente 1", pacientes.get(0).getNombrePaciente());
+        assertEquals(inactivo.getId(), pacientes.get(5).getId());
+
+        // los pacientes ya entregados quedan desconectados pero con sus relaciones cargadas
+        assertFalse(entityManager.contains(pacientes.get(0)));
+        assertEquals("Femenino", pacientes.get(0).getGenero().getNombreGenero());
+        assertEquals("O+", pacientes.get(0).getTipoSangre().getNombreTipoSangre());
+
+        // sin limpiar quedarían 13 entidades (6 pacientes, 6 tipos de sangre y el genero)
+        assertTrue(entityManager.unwrap(Session.class).getStatistics().getEntityCount() <= 3);
+    }
+
+    @Test
+    @DisplayName("Debería buscar combinando prefijo del nombre, rango de edad y activo")
+    void deberiaBuscarCombinandoFiltros() {
+        LocalDate hoy = LocalDate.of(2025, 6, 15);
+        Paciente ana = crearPaciente(1);
+        ana.setNombrePaciente("Ana Rojas");
+        ana.setFechaNacimiento(hoy.minusYears(30));
+        Paciente andres = crearPaciente(2);
+        andres.setNombrePaciente("Andrés Soto");
+        // cumple 41 mañana: todavía tiene 40
+        andres.setFechaNacimiento(hoy.minusYears(41).plusDays(1));
+        Paciente anibal = crearPaciente(3);
+        anibal.setNombrePaciente("Aníbal Díaz");
+        anibal.setFechaNacimiento(hoy.minusYears(41));
+        Paciente bruno = crearPaciente(4);
+        bruno.setNombrePaciente("Bruno Paz");
+        bruno.setFechaNacimiento(hoy.minusYears(35));
+        Paciente anaInactiva = crearPaciente(5);
+        anaInactiva.setNombrePaciente("Ana María Vera");
+        anaInactiva.setFechaNacimiento(hoy.minusYears(35));
+        anaInactiva.setActivo(false);
+        entityManager.flush();
+        entityManager.clear();
+
+        BusquedaPacienteDTO filtro = new BusquedaPacienteDTO();
+        filtro.setNombre("An");
+        filtro.setEdadMinima(30);
+        filtro.setEdadMaxima(40);
+
+        List<Paciente> resultado = pacienteRepository.findAll(PacienteSpecifications.busqueda(filtro, hoy, 0L), Sort.by("id"));
+
+        assertEquals(List.of(ana.getId(), andres.getId()), resultado.stream().map(Paciente::getId).toList());
+        assertEquals("Femenino", resultado.get(0).getGenero().getNombreGenero());
+
+        filtro.setActivo(false);
+        resultado = pacienteRepository.findAll(PacienteSpecifications.busqueda(filtro, hoy, 0L), Sort.by("id"));
+        assertEquals(List.of(anaInactiva.getId()), resultado.stream().map(Paciente::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Debería buscar por rut, correo, genero y tipo de sangre respetando el cursor")
+    void deberiaBuscarPorReferenciasYCursor() {
+        Paciente primero = crearPaciente(1);
+        Paciente segundo = crearPaciente(2);
+        Paciente tercero = crearPaciente(3);
+        entityManager.flush();
+        entityManager.clear();
+
+        BusquedaPacienteDTO filtro = new BusquedaPacienteDTO();
+        filtro.setRut(segundo.getRutPaciente());
+        filtro.setGeneroId(genero.getId());
+        List<Paciente> resultado = pacienteRepository.findAll(PacienteSpecifications.busqueda(filtro, LocalDate.now(), 0L));
+        assertEquals(List.of(segundo.getId()), resultado.stream().map(Paciente::getId).toList());
+        assertTrue(pacienteRepository.findAll(PacienteSpecifications.busqueda(filtro, LocalDate.now(), segundo.getId())).isEmpty());
+
+        // el comando pagina la misma búsqueda por llave
+        filtro.setRut(null);
+        PaginaDTO<Paciente> pagina = new SearchPacienteCommandImpl(filtro, null, 1, pacienteRepository).execute();
+        assertEquals(List.of(primero.getId()), pagina.getContenido().stream().map(Paciente::getId).toList());
+        pagina = new SearchPacienteCommandImpl(filtro, pagina.getSiguienteCursor(), 2, pacienteRepository).execute();
+        assertEquals(List.of(segundo.getId(), tercero.getId()), pagina.getContenido().stream().map(Paciente::getId).toList());
+        assertNull(pagina.getSiguienteCursor());
+
+        filtro = new BusquedaPacienteDTO();
+        filtro.setCorreo("paciente1@grupobios.cl");
+        filtro.setTipoSangreId(primero.getTipoSangre().getId());
+        resultado = pacienteRepository.findAll(PacienteSpecifications.busqueda(filtro, LocalDate.now(), 0L));
+        assertEquals(List.of(primero.getId()), resultado.stream().map(Paciente::getId).toList());
+
+        // los comodines del prefijo se buscan como texto
+        filtro = new BusquedaPacienteDTO();
+        filtro.setNombre("Paciente%");
+        assertTrue(pacienteRepository.findAll(PacienteSpecifications.busqueda(filtro, LocalDate.now(), 0L)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debería insertar en lotes reservando los ids de la secuencia de a bloques")
+    void deberiaInsertarEnLotes() {
+        entityManager.flush();
+        Statistics estadisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        for (int i = 1; i <= 100; i++) {
+            crearPaciente(i);
+        }
+        entityManager.flush();
+
+        // uno por paciente serían 400 (nextval e insert del tipo de sangre y del paciente);
+        // en lotes de 50 quedan 2 inserts por tabla más las pocas llamadas a cada secuencia
+        assertTrue(estadisticas.getPrepareStatementCount() <= 10, "sentencias: " + estadisticas.getPrepareStatementCount());
+        assertEquals(100, pacienteRepository.count());
+    }
+
+    /*
+     * Inserts por segundo al registrar pacientes en una sola transacción. No es parte de la suite:
+     * se ejecuta con mvn test -Dtest=PacienteRepositoryTest -Dbenchmark=true
+    */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark de inserción de pacientes")
+    void benchmarkInsercion() {
+        Statistics estadisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        int porRonda = 5_000;
+
+        for (int ronda = 0; ronda < 5; ronda++) {
+            estadisticas.clear();
+            long inicio = System.nanoTime();
+            for (int i = 1; i <= porRonda; i++) {
+                crearPaciente(ronda * porRonda + i);
+                if (i % 500 == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+            System.out.println("Ronda " + ronda + ": " + porRonda + " pacientes en " + ms + " ms ("
+                    + porRonda * 1000L / Math.max(ms, 1) + " pacientes/s), "
+                    + estadisticas.getPrepareStatementCount() + " sentencias");
+        }
+    }
+
+    /*
+     * Comparación de la carga de entidades con fetch join contra la proyección. No es parte de la suite:
+     * se ejecuta con mvn test -Dtest=PacienteRepositoryTest -Dbenchmark=true
+    */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark entidades vs proyección")
+    void benchmarkEntidadesVsProyeccion() {
+        int total = 20_000;
+        for (int i = 1; i <= total; i++) {
+            crearPaciente(i);
+            if (i % 500 == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        com.sun.management.ThreadMXBean hilo = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int ronda = 0; ronda < 5; ronda++) {
+            long bytes = hilo.getCurrentThreadAllocatedBytes();
+            long inicio = System.nanoTime();
+            int entidades = pacienteRepository.findAllWithRelations().size();
+            long msEntidades = (System.nanoTime() - inicio) / 1_000_000;
+            long bytesEntidades = hilo.getCurrentThreadAllocatedBytes() - bytes;
+            entityManager.clear();
+
+            bytes = hilo.getCurrentThreadAllocatedBytes();
+            inicio = System.nanoTime();
+            int proyectados = pacienteRepository.findPaginaResumen(0L, Limit.of(total)).size();
+            long msProyeccion = (System.nanoTime() - inicio) / 1_000_000;
+            long bytesProyeccion = hilo.getCurrentThreadAllocatedBytes() - bytes;
+            entityManager.clear();
+
+            System.out.println("Ronda " + ronda + ": entidades " + entidades + " filas, " + msEntidades + " ms, "
+                    + bytesEntidades / (1024 * 1024) + " MB | proyección " + proyectados + " filas, "
+                    + msProyeccion + " ms, " + bytesProyeccion / (1024 * 1024) + " MB");
+        }
+    }
+
+    // el tipo de sangre es @OneToOne, por lo que cada paciente necesita el suyo, y el RUT es único
+    private Paciente crearPaciente(int numero) {
+        TipoSangre tipoSangre = new TipoSangre();
+        tipoSangre.setNombreTipoSangre("O+");
+        entityManager.persist(tipoSangre);
+
+        Paciente paciente = new Paciente();
+        paciente.setNroPaciente("P-" + numero);
+        paciente.setNombrePaciente("Paciente " + numero);
+        paciente.setRutPaciente((1_000_000 + numero) + "-1");
+        paciente.setCorreoPaciente("paciente" + numero + "@grupobios.cl");
+        paciente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        paciente.setGenero(genero);
+        paciente.setTipoSangre(tipoSangre);
+        entityManager.persist(paciente);
+        return paciente;
+    }
+}
@@ -0,0 +1,108 @@
+package cl.grupobios.fichatecnica.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import jakarta.persistence.EntityManagerFactory;
+
+// sin la transacción del test: el cache de segundo nivel se actualiza recién al confirmar cada transacción
+@DataJpaTest(showSql = false)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Test del cache de segundo nivel de genero y tipo de sangre sobre H2")
+class ReferenciasCacheTest {
+
+    @Autowired
+    private IGeneroRepository generoRepository;
+
+    @Autowired
+    private ITipoSangreRepository tipoSangreRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // las regiones de Caffeine son de la JVM y cada contexto de test tiene su propia base H2 con los mismos ids
+        entityManagerFactory.getCache().evictAll();
+        generoRepository.save(new Genero(null, "Femenino", "F"));
+        generoRepository.save(new Genero(null, "Masculino", "M"));
+        tipoSangreRepository.save(new TipoSangre(null, "O+"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        generoRepository.deleteAll();
+        tipoSangreRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Debería listar los generos desde el cache de consultas después de la primera vez")
+    void deberiaListarGenerosDesdeCache() {
+        estadisticas.clear();
+        assertEquals(2, generoRepository.findAll().size());
+        assertEquals(1, estadisticas.getQueryExecutionCount());
+
+        estadisticas.clear();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(2, generoRepository.findAll().size());
+        }
+        assertEquals(0, estadisticas.getQueryExecutionCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(5, estadisticas.getQueryCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Debería volver a consultar el listado cuando cambia la tabla")
+    void deberiaInvalidarListadoAlModificar() {
+        assertEquals(2, generoRepository.findAll().size());
+
+        generoRepository.save(new Genero(null, "Otro", "O"));
+
+        estadisticas.clear();
+        assertEquals(3, generoRepository.findAll().size());
+        assertEquals(1, estadisticas.getQueryExecutionCount());
+    }
+
+    // una fila por paciente: con el cache de consultas cada id que ya salió de la región sería un SELECT aparte
+    @Test
+    @DisplayName("Debería listar los tipos de sangre con una sola consulta y sin el cache de consultas")
+    void deberiaListarTiposSangreSinCacheDeConsultas() {
+        tipoSangreRepository.findAll();
+        entityManagerFactory.getCache().evict(TipoSangre.class);
+
+        estadisticas.clear();
+        assertEquals(1, tipoSangreRepository.findAll().size());
+        assertEquals(1, estadisticas.getQueryExecutionCount());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getQueryCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Debería buscar por id sin consultar la base de datos")
+    void deberiaBuscarPorIdDesdeCache() {
+        Long id = generoRepository.findAll().get(0).getId();
+
+        estadisticas.clear();
+        for (int i = 0; i < 5; i++) {
+            generoRepository.findById(id).orElseThrow();
+        }
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertEquals(5, estadisticas.getSecondLevelCacheHitCount());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,137 @@
+package cl.grupobios.fichatecnica.services.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO;
+import cl.grupobios.fichatecnica.dtos.ReporteJobDTO.Estado;
+import cl.grupobios.fichatecnica.exceptions.ReporteSaturadoException;
+
+@DisplayName("Test unitario para ReporteJobServiceImpl")
+class ReporteJobServiceImplTest {
+
+    @TempDir
+    Path directorio;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private ReporteJobServiceImpl crearServicio(Duration retencion) throws IOException {
+        return new ReporteJobServiceImpl(executor, directorio.toString(), retencion, 5);
+    }
+
+    private ReporteJobDTO esperarTermino(ReporteJobServiceImpl servicio, String idJob) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ReporteJobDTO job = servicio.obtenerJob(idJob).orElseThrow();
+            if (job.getEstado() == Estado.TERMINADO || job.getEstado() == Estado.FALLIDO) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("El job no terminó a tiempo");
+    }
+
+    @Test
+    @DisplayName("Debería generar el archivo del job en el directorio de spool")
+    void deberiaGenerarArchivo() throws Exception {
+        ReporteJobServiceImpl servicio = crearServicio(Duration.ofHours(1));
+
+        ReporteJobDTO job = servicio.encolar("Ficha.pdf", "application/pdf", salida -> salida.write(new byte[] { 1, 2, 3 }));
+
+        assertEquals(Estado.TERMINADO, esperarTermino(servicio, job.getId()).getEstado());
+        Path archivo = servicio.obtenerArchivo(job.getId()).orElseThrow();
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(archivo));
+    }
+
+    @Test
+    @DisplayName("Debería marcar el job como fallido sin dejar archivos")
+    void deberiaMarcarJobFallido() throws Exception {
+        ReporteJobServiceImpl servicio = crearServicio(Duration.ofHours(1));
+
+        ReporteJobDTO job = servicio.encolar("Ficha.pdf", "application/pdf", salida -> {
+            salida.write(1);
+            throw new IOException("Error de prueba");
+        });
+
+        ReporteJobDTO terminado = esperarTermino(servicio, job.getId());
+        assertEquals(Estado.FALLIDO, terminado.getEstado());
+        assertEquals("Error de prueba", terminado.getError());
+        assertTrue(servicio.obtenerArchivo(job.getId()).isEmpty());
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Debería eliminar los jobs expirados y sus archivos")
+    void deberiaLimpiarJobsExpirados() throws Exception {
+        ReporteJobServiceImpl servicio = crearServicio(Duration.ZERO);
+
+        ReporteJobDTO job = servicio.encolar("Ficha.pdf", "application/pdf", salida -> salida.write(1));
+        esperarTermino(servicio, job.getId());
+        Thread.sleep(5);
+
+        servicio.limpiarJobsExpirados();
+
+        assertTrue(servicio.obtenerJob(job.getId()).isEmpty());
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Debería rechazar el job con ReporteSaturadoException cuando la cola está llena")
+    void deberiaRechazarCuandoLaColaEstaLlena() throws Exception {
+        ReporteJobServiceImpl servicio = crearServicio(Duration.ofHours(1));
+        CountDownLatch bloqueo = new CountDownLatch(1);
+
+        try {
+            // un worker ocupado y la cola llena
+            servicio.encolar("A.pdf", "application/pdf", salida -> awaitSinInterrupcion(bloqueo));
+            servicio.encolar("B.pdf", "application/pdf", salida -> salida.write(1));
+
+            assertThrows(ReporteSaturadoException.class,
+                    () -> servicio.encolar("C.pdf", "application/pdf", salida -> salida.write(1)));
+        } finally {
+            bloqueo.countDown();
+        }
+    }
+
+    private void awaitSinInterrupcion(CountDownLatch bloqueo) throws IOException {
+        try {
+            bloqueo.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("Test unitario para CacheFichaTecnicaPdf")
+class CacheFichaTecnicaPdfTest {
+
+    @TempDir
+    Path directorio;
+
+    private CacheFichaTecnicaPdf crearCache(long memoriaMaxBytes) throws Exception {
+        return new CacheFichaTecnicaPdf(new SimpleMeterRegistry(), memoriaMaxBytes, memoriaMaxBytes, Duration.ofMinutes(10), directorio.toString());
+    }
+
+    @Test
+    @DisplayName("Debería servir desde memoria un PDF guardado")
+    void deberiaServirDesdeMemoria() throws Exception {
+        CacheFichaTecnicaPdf cache = crearCache(1024);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        assertFalse(cache.transferir(1L, salida));
+
+        cache.guardar(1L, cache.epoca(1L), new byte[] { 1, 2, 3 });
+
+        assertTrue(cache.transferir(1L, salida));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, salida.toByteArray());
+        assertEquals(0.5, cache.getRatioAciertos());
+    }
+
+    @Test
+    @DisplayName("Debería servir desde disco lo que se desalojó de memoria")
+    void deberiaServirDesdeDisco() throws Exception {
+        CacheFichaTecnicaPdf cache = crearCache(4);
+
+        cache.guardar(1L, cache.epoca(1L), new byte[] { 1, 2, 3 });
+        cache.guardar(2L, cache.epoca(2L), new byte[] { 4, 5, 6 });
+
+        // el paciente 1 ya no cabe en memoria pero sigue en disco
+        assertEquals(3, cache.getBytesEnMemoria());
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        assertTrue(cache.transferir(1L, salida));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, salida.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Debería invalidar ambos niveles al modificar al paciente")
+    void deberiaInvalidar() throws Exception {
+        CacheFichaTecnicaPdf cache = crearCache(1024);
+        cache.guardar(1L, cache.epoca(1L), new byte[] { 1, 2, 3 });
+
+        cache.invalidar(1L);
+
+        assertFalse(cache.transferir(1L, new ByteArrayOutputStream()));
+        assertTrue(cache.obtener(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("No debería guardar un PDF generado antes de una invalidación")
+    void noDeberiaGuardarPdfDesactualizado() throws Exception {
+        CacheFichaTecnicaPdf cache = crearCache(1024);
+        long epoca = cache.epoca(1L);
+
+        // el paciente cambia mientras se generaba su ficha
+        cache.invalidar(1L);
+        cache.guardar(1L, epoca, new byte[] { 1, 2, 3 });
+
+        assertTrue(cache.obtener(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debería descartar las épocas de invalidaciones más antiguas que el TTL")
+    void deberiaDescartarEpocasAntiguas() throws Exception {
+        CacheFichaTecnicaPdf cache = new CacheFichaTecnicaPdf(new SimpleMeterRegistry(), 1024, 1024, Duration.ofMillis(50), directorio.toString());
+        long epocaAnterior = cache.epoca(1L);
+
+        for (long id = 1; id <= 1000; id++) {
+            cache.invalidar(id);
+        }
+        assertEquals(1000, cache.getPacientesConEpoca());
+
+        Thread.sleep(120);
+        cache.invalidar(5000L);
+        assertEquals(1, cache.getPacientesConEpoca());
+
+        // un PDF generado antes de la invalidación descartada sigue sin guardarse
+        cache.guardar(1L, epocaAnterior, new byte[] { 1, 2, 3 });
+        assertTrue(cache.obtener(1L).isEmpty());
+
+        // uno generado después sí
+        cache.guardar(1L, cache.epoca(1L), new byte[] { 4, 5, 6 });
+        assertArrayEquals(new byte[] { 4, 5, 6 }, cache.obtener(1L).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Debería eliminar del disco las fichas que superaron el TTL")
+    void deberiaEliminarArchivosVencidos() throws Exception {
+        // sin nivel de memoria, así las fichas quedan solo en disco
+        CacheFichaTecnicaPdf cache = crearCache(0);
+        cache.guardar(1L, cache.epoca(1L), new byte[] { 1, 2, 3 });
+        cache.guardar(2L, cache.epoca(2L), new byte[] { 4, 5, 6 });
+
+        FileTime vencido = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofMinutes(11).toMillis());
+        Path archivo1 = directorio.resolve("ficha-1.pdf");
+        Path archivo2 = directorio.resolve("ficha-2.pdf");
+        Files.setLastModifiedTime(archivo1, vencido);
+        Files.setLastModifiedTime(archivo2, vencido);
+
+        // al pedirla se trata como fallo y se elimina
+        assertFalse(cache.transferir(1L, new ByteArrayOutputStream()));
+        assertFalse(Files.exists(archivo1));
+
+        // la que nadie volvió a pedir la elimina la limpieza periódica
+        cache.limpiarDisco();
+        assertFalse(Files.exists(archivo2));
+    }
+
+    @Test
+    @DisplayName("Debería copiar al cache de disco lo escrito en la salida al completarse")
+    void deberiaGuardarEscrituraCompleta() throws Exception {
+        CacheFichaTecnicaPdf cache = crearCache(1024);
+        ByteArrayOutputStream respuesta = new ByteArrayOutputStream();
+
+        try (CacheFichaTecnicaPdf.Escritura escritura = cache.abrirEscritura(1L, cache.epoca(1L), respuesta)) {
+            escritura.write(new byte[] { 1, 2, 3 });
+            escritura.completar();
+        }
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        assertArrayEquals(new byte[] { 1, 2, 3 }, respuesta.toByteArray());
+        assertTrue(cache.transferir(1L, salida));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, salida.toByteArray());
+
+        // bajo el umbral por ficha también quedó en memoria
+        assertEquals(3, cache.getBytesEnMemoria());
+    }
+
+    @Test
+    @DisplayName("Debería dejar solo en disco una escritura sobre el umbral por ficha")
+    void deberiaDejarSoloEnDiscoEscrituraGrande() throws Exception {
+        CacheFichaTecnicaPdf cache = new CacheFichaTecnicaPdf(new SimpleMeterRegistry(), 1024, 4, Duration.ofMinutes(10), directorio.toString());
+
+        try (CacheFichaTecnicaPdf.Escritura escritura = cache.abrirEscritura(1L, cache.epoca(1L), new ByteArrayOutputStream())) {
+            escritura.write(new byte[] { 1, 2, 3 });
+            escritura.write(new byte[] { 4, 5 });
+            escritura.completar();
+        }
+
+        assertEquals(0, cache.getBytesEnMemoria());
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        assertTrue(cache.transferir(1L, salida));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, salida.toByteArray());
+    }
+
+    @Test
+    @DisplayName("No debería guardar una escritura que no se completó")
+    void noDeberiaGuardarEscrituraIncompleta() throws Exception {
+        CacheFichaTecnicaPdf cache = crearCache(1024);
+
+        try (CacheFichaTecnicaPdf.Escritura escritura = cache.abrirEscritura(1L, cache.epoca(1L), new ByteArrayOutputStream())) {
+            escritura.write(new byte[] { 1, 2, 3 });
+        }
+
+        assertEquals(0, cache.getBytesEnMemoria());
+        assertFalse(cache.transferir(1L, new ByteArrayOutputStream()));
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.count());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.OutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import cl.grupobios.fichatecnica.models.Paciente;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test unitario para CalentamientoReportes")
+class CalentamientoReportesTest {
+
+    @Mock
+    private ReporteUtils reporteUtils;
+
+    @Test
+    @DisplayName("Debería generar las fichas ficticias y registrar la duración")
+    void deberiaCalentarElMotorDeReportes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        new CalentamientoReportes(reporteUtils, registry, true, 3).run(null);
+
+        verify(reporteUtils, times(3)).exportarFichaTecnicaPdf(any(Paciente.class), any(OutputStream.class));
+        assertEquals(1, registry.get("reportes.calentamiento").timer().count());
+    }
+
+    @Test
+    @DisplayName("No debería calentar cuando está deshabilitado")
+    void noDeberiaCalentarDeshabilitado() {
+        new CalentamientoReportes(reporteUtils, new SimpleMeterRegistry(), false, 3).run(null);
+
+        verify(reporteUtils, never()).exportarFichaTecnicaPdf(any(Paciente.class), any(OutputStream.class));
+    }
+
+    @Test
+    @DisplayName("No debería impedir el inicio si falla el motor de reportes")
+    void noDeberiaFallarElInicio() {
+        doThrow(new RuntimeException("Error de prueba"))
+                .when(reporteUtils).exportarFichaTecnicaPdf(any(Paciente.class), any(OutputStream.class));
+
+        assertDoesNotThrow(() -> new CalentamientoReportes(reporteUtils, new SimpleMeterRegistry(), true, 3).run(null));
+    }
+}
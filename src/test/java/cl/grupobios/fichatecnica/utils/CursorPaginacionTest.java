@@ -0,0 +1,33 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+
+@DisplayName("Test unitario para CursorPaginacion")
+class CursorPaginacionTest {
+
+    @Test
+    @DisplayName("Debería recuperar el id codificado en el cursor")
+    void deberiaRecuperarId() {
+        assertEquals(250_123L, CursorPaginacion.decodificar(CursorPaginacion.codificar(250_123L)));
+    }
+
+    @Test
+    @DisplayName("Debería empezar desde el inicio sin cursor")
+    void deberiaEmpezarDesdeElInicio() {
+        assertEquals(0L, CursorPaginacion.decodificar(null));
+        assertEquals(0L, CursorPaginacion.decodificar(""));
+    }
+
+    @Test
+    @DisplayName("Debería lanzar ValidationException con un cursor inválido")
+    void deberiaRechazarCursorInvalido() {
+        assertThrows(ValidationException.class, () -> CursorPaginacion.decodificar("no-es-un-cursor"));
+        assertThrows(ValidationException.class, () -> CursorPaginacion.decodificar("aWQ6YWJj"));
+    }
+}
@@ -0,0 +1,58 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import cl.grupobios.fichatecnica.exceptions.ConcurrencyException;
+
+@DisplayName("Test unitario para ETagPaciente")
+class ETagPacienteTest {
+
+    @Test
+    @DisplayName("Debería cambiar el ETag con la versión del paciente")
+    void deberiaCambiarConLaVersion() {
+        String etag = ETagPaciente.de(1L, 3);
+
+        assertTrue(etag.startsWith("\"1-3-") && etag.endsWith("\""));
+        assertEquals(etag, ETagPaciente.de(1L, 3));
+        assertFalse(etag.equals(ETagPaciente.de(1L, 4)));
+    }
+
+    @Test
+    @DisplayName("Debería comparar el If-None-Match en forma débil y aceptar listas y *")
+    void deberiaCompararIfNoneMatch() {
+        String etag = ETagPaciente.de(1L, 3);
+
+        assertTrue(ETagPaciente.coincide(etag, etag));
+        assertTrue(ETagPaciente.coincide("W/" + etag, etag));
+        assertTrue(ETagPaciente.coincide(ETagPaciente.de(1L, 2) + ", " + etag, etag));
+        assertTrue(ETagPaciente.coincide("*", etag));
+        assertFalse(ETagPaciente.coincide(ETagPaciente.de(1L, 2), etag));
+        assertFalse(ETagPaciente.coincide(null, etag));
+    }
+
+    @Test
+    @DisplayName("Debería obtener la versión esperada del If-Match")
+    void deberiaObtenerVersionDelIfMatch() {
+        assertEquals(3L, ETagPaciente.versionEsperada(ETagPaciente.de(1L, 3), 1L));
+        // un ETag de otro día con la misma versión sigue siendo válido
+        assertEquals(3L, ETagPaciente.versionEsperada("\"1-3-20200101\"", 1L));
+        assertNull(ETagPaciente.versionEsperada(null, 1L));
+        assertNull(ETagPaciente.versionEsperada("*", 1L));
+    }
+
+    @Test
+    @DisplayName("Debería rechazar un If-Match de otro paciente o sin formato")
+    void deberiaRechazarIfMatchInvalido() {
+        assertThrows(ConcurrencyException.class, () -> ETagPaciente.versionEsperada(ETagPaciente.de(2L, 3), 1L));
+        assertThrows(ConcurrencyException.class, () -> ETagPaciente.versionEsperada("\"abc\"", 1L));
+        assertThrows(ConcurrencyException.class, () -> ETagPaciente.versionEsperada("1-3-20200101", 1L));
+        assertThrows(ConcurrencyException.class, () -> ETagPaciente.versionEsperada("\"1-x-20200101\"", 1L));
+    }
+}
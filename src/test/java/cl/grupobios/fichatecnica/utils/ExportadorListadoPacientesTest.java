@@ -0,0 +1,100 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import cl.grupobios.fichatecnica.dtos.PacienteDTO;
+
+@DisplayName("Test unitario para ExportadorListadoPacientes")
+class ExportadorListadoPacientesTest {
+
+    private final ExportadorListadoPacientes exportador = new ExportadorListadoPacientes();
+
+    // genera los pacientes a medida que se recorren, como el Stream del repositorio
+    private static Stream<PacienteDTO> pacientes(long cantidad) {
+        return LongStream.rangeClosed(1, cantidad).mapToObj(i -> new PacienteDTO(
+                i, "Paciente " + i, i + "-K", "p" + i + "@email.com", LocalDate.of(1990, 1, 1),
+                "PAC-" + i, true, "Masculino", "O+"));
+    }
+
+    @Test
+    @DisplayName("Debería escribir el CSV con encabezado y escapar los separadores")
+    void deberiaEscribirCsv() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        PacienteDTO paciente = new PacienteDTO(1L, "Pérez; \"Juan\"", "12345678-9", "juan@email.com",
+                LocalDate.of(1990, 5, 15), "PAC-001", true, "Masculino", "A+");
+
+        exportador.escribirCsv(Stream.of(paciente), salida);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).substring(1).split("\r\n");
+        assertEquals(2, lineas.length);
+        assertEquals("ID;Nro paciente;Nombre;RUT;Correo;Fecha de nacimiento;Genero;Tipo de sangre", lineas[0]);
+        assertEquals("1;PAC-001;\"Pérez; \"\"Juan\"\"\";12345678-9;juan@email.com;1990-05-15;Masculino;A+", lineas[1]);
+    }
+
+    @Test
+    @DisplayName("Debería neutralizar los campos del CSV que Excel interpretaría como fórmula")
+    void deberiaNeutralizarFormulasEnCsv() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        PacienteDTO paciente = new PacienteDTO(1L, "=HYPERLINK(\"http://x\";\"y\")", "12345678-9", "@SUM(A1)",
+                LocalDate.of(1990, 5, 15), "+PAC", true, "-Masculino", "A+");
+
+        exportador.escribirCsv(Stream.of(paciente), salida);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).substring(1).split("\r\n");
+        assertEquals("1;'+PAC;\"'=HYPERLINK(\"\"http://x\"\";\"\"y\"\")\";12345678-9;'@SUM(A1);1990-05-15;'-Masculino;A+", lineas[1]);
+    }
+
+    @Test
+    @DisplayName("Debería escribir el XLSX con una fila por paciente")
+    void deberiaEscribirXlsx() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        exportador.escribirXlsx(pacientes(1000), salida);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(salida.toByteArray()))) {
+            Sheet hoja = workbook.getSheetAt(0);
+            assertEquals(1000, hoja.getLastRowNum());
+            assertEquals("Paciente 1000", hoja.getRow(1000).getCell(2).getStringCellValue());
+        }
+    }
+
+    /*
+     * El listado se genera en otra JVM con un heap pequeño: si el XLSX se armara completo en memoria
+     * 300.000 filas no cabrían en 32 MB
+    */
+    @Test
+    @DisplayName("Debería exportar 300.000 pacientes a XLSX con un heap de 32 MB")
+    void deberiaExportarListadoGrandeConHeapPequeno() throws Exception {
+        Process proceso = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-Xmx32m",
+                "-cp", System.getProperty("java.class.path"),
+                ExportadorListadoPacientesTest.class.getName(), "300000")
+                .redirectErrorStream(true)
+                .start();
+
+        String log = new String(proceso.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(proceso.waitFor(5, TimeUnit.MINUTES), "La exportación no terminó a tiempo");
+        assertEquals(0, proceso.exitValue(), log);
+    }
+
+    // punto de entrada de la JVM con heap pequeño: args = cantidad de pacientes
+    public static void main(String[] args) throws Exception {
+        new ExportadorListadoPacientes().escribirXlsx(pacientes(Long.parseLong(args[0])), OutputStream.nullOutputStream());
+    }
+}
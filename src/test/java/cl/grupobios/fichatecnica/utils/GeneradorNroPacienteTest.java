@@ -0,0 +1,169 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test unitario para GeneradorNroPaciente")
+class GeneradorNroPacienteTest {
+
+    private static final Clock RELOJ_FIJO = Clock.fixed(Instant.parse("2026-03-15T12:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    @DisplayName("Debería generar números ASCII de largo fijo con dígito verificador")
+    void deberiaGenerarFormatoValido() {
+        GeneradorNroPaciente generador = new GeneradorNroPaciente(7);
+
+        for (int i = 0; i < 1000; i++) {
+            String numero = generador.generar();
+            assertEquals(GeneradorNroPaciente.LONGITUD, numero.length());
+            assertTrue(numero.chars().allMatch(c -> GeneradorNroPaciente.ALFABETO.indexOf(c) >= 0));
+            assertTrue(GeneradorNroPaciente.esValido(numero));
+        }
+    }
+
+    @Test
+    @DisplayName("Debería detectar un carácter cambiado o dos vecinos intercambiados")
+    void deberiaDetectarErroresDeDigitacion() {
+        String numero = new GeneradorNroPaciente(1).generar();
+
+        for (int i = 0; i < numero.length(); i++) {
+            char[] cambiado = numero.toCharArray();
+            int posicion = GeneradorNroPaciente.ALFABETO.indexOf(cambiado[i]);
+            cambiado[i] = GeneradorNroPaciente.ALFABETO.charAt((posicion + 1) % 32);
+            assertFalse(GeneradorNroPaciente.esValido(new String(cambiado)));
+        }
+
+        for (int i = 0; i < numero.length() - 1; i++) {
+            char[] intercambiado = numero.toCharArray();
+            // Luhn no distingue el intercambio de 0 y Z, ni tiene sentido intercambiar dos iguales
+            String par = "" + intercambiado[i] + intercambiado[i + 1];
+            if (intercambiado[i] == intercambiado[i + 1] || par.equals("0Z") || par.equals("Z0")) {
+                continue;
+            }
+            char aux = intercambiado[i];
+            intercambiado[i] = intercambiado[i + 1];
+            intercambiado[i + 1] = aux;
+            assertFalse(GeneradorNroPaciente.esValido(new String(intercambiado)));
+        }
+
+        assertFalse(GeneradorNroPaciente.esValido("ABC"));
+        assertFalse(GeneradorNroPaciente.esValido(numero.replace(numero.charAt(0), 'Ñ')));
+    }
+
+    @Test
+    @DisplayName("No debería repetir números con el reloj detenido ni al agotar el contador del milisegundo")
+    void noDeberiaRepetirConRelojDetenido() {
+        GeneradorNroPaciente generador = new GeneradorNroPaciente(3, RELOJ_FIJO);
+
+        // más de los 4096 números que caben en un milisegundo
+        Set<String> numeros = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(numeros.add(generador.generar()));
+        }
+    }
+
+    @Test
+    @DisplayName("No debería repetir números si el reloj retrocede")
+    void noDeberiaRepetirSiElRelojRetrocede() {
+        MutableClock reloj = new MutableClock(RELOJ_FIJO.millis());
+        GeneradorNroPaciente generador = new GeneradorNroPaciente(3, reloj);
+
+        String antes = generador.generar();
+        reloj.millis -= 60_000;
+        String despues = generador.generar();
+
+        assertNotEquals(antes, despues);
+        // siguen en orden porque se continúa desde el último número entregado
+        assertTrue(despues.substring(0, 13).compareTo(antes.substring(0, 13)) > 0);
+    }
+
+    @Test
+    @DisplayName("Dos nodos con el mismo reloj no deberían generar el mismo número")
+    void deberiaSepararNodos() {
+        GeneradorNroPaciente nodoUno = new GeneradorNroPaciente(1, RELOJ_FIJO);
+        GeneradorNroPaciente nodoDos = new GeneradorNroPaciente(2, RELOJ_FIJO);
+
+        Set<String> numeros = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(numeros.add(nodoUno.generar()));
+            assertTrue(numeros.add(nodoDos.generar()));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new GeneradorNroPaciente(GeneradorNroPaciente.NODO_MAXIMO + 1));
+    }
+
+    @Test
+    @DisplayName("No debería repetir números entre hilos concurrentes")
+    void noDeberiaRepetirEntreHilos() throws Exception {
+        GeneradorNroPaciente generador = new GeneradorNroPaciente(0);
+        Set<String> numeros = ConcurrentHashMap.newKeySet();
+        int hilos = 8;
+        int porHilo = 50_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(executor.submit(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        numeros.add(generador.generar());
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(hilos * porHilo, numeros.size());
+    }
+
+    private static class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import cl.grupobios.fichatecnica.dtos.SugerenciaPacienteDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("Test unitario para IndiceNombresPacientes")
+class IndiceNombresPacientesTest {
+
+    private IndiceNombresPacientes indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceNombresPacientes(new SimpleMeterRegistry());
+        indice.agregar(1L, "María José Núñez");
+        indice.agregar(2L, "Mario Pérez");
+        indice.agregar(3L, "José Muñoz Rojas");
+        indice.agregar(4L, "Mariana González");
+        indice.agregar(5L, "Andrés Nuñez Soto");
+    }
+
+    @Test
+    @DisplayName("Debería normalizar tildes, ñ y mayúsculas")
+    void deberiaNormalizar() {
+        assertEquals("maria jose nunez", IndiceNombresPacientes.normalizar("  María-José  NÚÑEZ "));
+    }
+
+    @Test
+    @DisplayName("Debería encontrar sin importar tildes ni mayúsculas")
+    void deberiaEncontrarSinTildes() {
+        // a igual distancia se ordenan por nombre
+        assertEquals(List.of(5L, 1L), ids(indice.buscar("NUNEZ", 10)));
+    }
+
+    @Test
+    @DisplayName("Debería completar la última palabra como prefijo")
+    void deberiaCompletarPrefijo() {
+        List<SugerenciaPacienteDTO> sugerencias = indice.buscar("mari", 10);
+
+        // María, Mario y Mariana empiezan con "mari"
+        assertEquals(3, sugerencias.size());
+        assertTrue(ids(sugerencias).containsAll(List.of(1L, 2L, 4L)));
+    }
+
+    @Test
+    @DisplayName("Debería tolerar errores de tipeo en nombres completos")
+    void deberiaTolerarErrores() {
+        List<SugerenciaPacienteDTO> sugerencias = indice.buscar("Gonzales Mariana", 10);
+
+        assertEquals(List.of(4L), ids(sugerencias));
+        assertEquals(2, sugerencias.get(0).getDistancia());
+    }
+
+    @Test
+    @DisplayName("Debería exigir que todas las palabras calcen")
+    void deberiaExigirTodasLasPalabras() {
+        assertEquals(List.of(3L), ids(indice.buscar("jose munoz", 10)));
+        assertTrue(indice.buscar("jose gonzalez", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debería reflejar actualizaciones y eliminaciones")
+    void deberiaReflejarCambios() {
+        indice.actualizar(2L, "Mario Castillo", true);
+        assertTrue(indice.buscar("perez", 10).isEmpty());
+        assertEquals(List.of(2L), ids(indice.buscar("castillo", 10)));
+
+        indice.actualizar(2L, "Mario Castillo", false);
+        assertTrue(indice.buscar("castillo", 10).isEmpty());
+
+        indice.quitar(1L);
+        assertEquals(List.of(5L), ids(indice.buscar("nunez", 10)));
+        assertEquals(3, indice.tamano());
+    }
+
+    @Test
+    @DisplayName("Debería renombrar solo a los pacientes que ya están en el índice")
+    void deberiaRenombrarSoloIndexados() {
+        indice.renombrar(2L, "Mario Castillo");
+        assertEquals(List.of(2L), ids(indice.buscar("castillo", 10)));
+
+        indice.quitar(3L);
+        indice.renombrar(3L, "José Castro");
+        assertTrue(indice.buscar("castro", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debería conservar lo que modifican los comandos durante la carga inicial")
+    void deberiaConservarModificacionesDuranteCarga() {
+        indice = new IndiceNombresPacientes(new SimpleMeterRegistry());
+        indice.iniciarCarga();
+
+        // eliminado, renombrado antes de que el cursor llegue a él y modificado, mientras el cursor entrega filas anteriores
+        indice.quitar(1L);
+        indice.renombrar(2L, "Mario Castillo");
+        indice.actualizar(3L, "José Castro", true);
+
+        indice.cargar(1L, "María José Núñez");
+        indice.cargar(2L, "Mario Pérez");
+        indice.cargar(3L, "José Muñoz Rojas");
+        indice.cargar(4L, "Mariana González");
+        indice.terminarCarga();
+
+        assertTrue(indice.buscar("nunez", 10).isEmpty());
+        assertEquals(List.of(2L), ids(indice.buscar("castillo", 10)));
+        assertTrue(indice.buscar("perez", 10).isEmpty());
+        assertEquals(List.of(3L), ids(indice.buscar("castro", 10)));
+        assertTrue(indice.buscar("munoz", 10).isEmpty());
+        assertEquals(3, indice.tamano());
+
+        // terminada la carga se vuelve a agregar lo que se entregue
+        indice.cargar(1L, "María José Núñez");
+        assertEquals(List.of(1L), ids(indice.buscar("nunez", 10)));
+    }
+
+    @Test
+    @DisplayName("Debería ignorar consultas demasiado cortas y respetar el límite")
+    void deberiaRespetarLimites() {
+        assertTrue(indice.buscar("m", 10).isEmpty());
+        assertEquals(1, indice.buscar("mari", 1).size());
+    }
+
+    /*
+     * Latencia con un millón de pacientes. No es parte de la suite, se ejecuta con
+     * mvn test -Dtest=IndiceNombresPacientesTest -Dbenchmark=true -DargLine=-Xmx2g
+    */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("Benchmark con un millón de pacientes")
+    void benchmarkUnMillonDePacientes() {
+        String[] nombres = { "María", "José", "Juan", "Ana", "Francisco", "Camila", "Benjamín", "Sofía", "Matías", "Valentina",
+            "Tomás", "Isidora", "Agustín", "Florencia", "Vicente", "Martina", "Cristóbal", "Catalina", "Joaquín", "Antonella",
+            "Sebastián", "Fernanda", "Ignacio", "Constanza", "Diego", "Javiera", "Felipe", "Trinidad", "Nicolás", "Emilia" };
+        String[] apellidos = { "González", "Muñoz", "Rojas", "Díaz", "Pérez", "Soto", "Contreras", "Silva", "Martínez", "Sepúlveda",
+            "Morales", "Rodríguez", "López", "Fuentes", "Hernández", "Torres", "Araya", "Flores", "Espinoza", "Valenzuela",
+            "Castillo", "Tapia", "Reyes", "Gutiérrez", "Castro", "Pizarro", "Álvarez", "Vásquez", "Sánchez", "Fernández" };
+        Random random = new Random(42);
+
+        IndiceNombresPacientes grande = new IndiceNombresPacientes(new SimpleMeterRegistry());
+        long inicioCarga = System.nanoTime();
+        for (long id = 1; id <= 1_000_000; id++) {
+            // variante por paciente para que el diccionario no sea trivial (apellidos compuestos con sufijo)
+            String nombre = nombres[random.nextInt(nombres.length)] + " " + apellidos[random.nextInt(apellidos.length)] + " "
+                    + apellidos[random.nextInt(apellidos.length)] + (random.nextInt(10) == 0 ? "x" + random.nextInt(50_000) : "");
+            grande.agregar(id, nombre);
+        }
+        System.out.println("Carga: " + (System.nanoTime() - inicioCarga) / 1_000_000 + " ms");
+
+        String[] consultas = { "ma", "mari", "maria gonz", "Gonzales Muños", "jose perez sot", "Valentna Sepulveda", "fernandz" };
+        for (int ronda = 0; ronda < 3; ronda++) {
+            for (String consulta : consultas) {
+                long inicio = System.nanoTime();
+                int cantidad = 0;
+                for (int i = 0; i < 100; i++) {
+                    cantidad = grande.buscar(consulta, 10).size();
+                }
+                double microsegundos = (System.nanoTime() - inicio) / 100 / 1000.0;
+                System.out.println("Ronda " + ronda + " '" + consulta + "': " + cantidad + " sugerencias, " + microsegundos + " us");
+            }
+        }
+    }
+
+    private static List<Long> ids(List<SugerenciaPacienteDTO> sugerencias) {
+        return Arrays.asList(sugerencias.stream().map(SugerenciaPacienteDTO::getIdPaciente).toArray(Long[]::new));
+    }
+}
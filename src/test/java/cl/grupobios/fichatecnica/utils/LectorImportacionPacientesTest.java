@@ -0,0 +1,112 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.grupobios.fichatecnica.dtos.FilaImportacionPacienteDTO;
+import cl.grupobios.fichatecnica.exceptions.ValidationException;
+
+@DisplayName("Test unitario para LectorImportacionPacientes")
+class LectorImportacionPacientesTest {
+
+    private final LectorImportacionPacientes lector = new LectorImportacionPacientes(new ObjectMapper());
+
+    @Test
+    @DisplayName("Debería leer un CSV con BOM, separado por ; y con campos entre comillas")
+    void deberiaLeerCsv() throws IOException {
+        String csv = "\uFEFFnombrePaciente;RUTPACIENTE;correoPaciente;fechaNacimiento;generoId;tipoSangreId\r\n"
+                + "\"Núñez; María \"\"Pepa\"\"\";12.345.678-5;maria@grupobios.cl;1990-05-10;1;2\r\n"
+                + "\r\n"
+                + "Juan Pérez;7654321-6;juan@grupobios.cl;10/05/1990;uno;3\r\n";
+
+        List<FilaImportacionPacienteDTO> filas = leer(csv, "csv");
+
+        assertEquals(2, filas.size());
+        FilaImportacionPacienteDTO maria = filas.get(0);
+        assertEquals(1, maria.getFila());
+        assertEquals("Núñez; María \"Pepa\"", maria.getNombrePaciente());
+        assertEquals("12.345.678-5", maria.getRutPaciente());
+        assertEquals(LocalDate.of(1990, 5, 10), maria.getFechaNacimiento());
+        assertEquals(1L, maria.getGeneroId());
+        assertEquals(2L, maria.getTipoSangreId());
+        assertTrue(maria.isValida());
+
+        // los valores que no se pueden convertir quedan como error de la fila, sin detener la lectura
+        FilaImportacionPacienteDTO juan = filas.get(1);
+        assertEquals(2, juan.getFila());
+        assertNull(juan.getFechaNacimiento());
+        assertNull(juan.getGeneroId());
+        assertEquals(2, juan.getErrores().size());
+    }
+
+    @Test
+    @DisplayName("Debería leer un CSV separado por coma")
+    void deberiaLeerCsvConComa() throws IOException {
+        String csv = "rutPaciente,nombrePaciente\n7654321-6,Juan\n";
+
+        List<FilaImportacionPacienteDTO> filas = leer(csv, "csv");
+
+        assertEquals(1, filas.size());
+        assertEquals("Juan", filas.get(0).getNombrePaciente());
+    }
+
+    @Test
+    @DisplayName("Debería leer un arreglo JSON con ids planos o anidados")
+    void deberiaLeerJson() throws IOException {
+        String json = "[{\"nombrePaciente\":\"María\",\"rutPaciente\":\"12345678-5\",\"generoId\":1,\"tipoSangreId\":\"2\"},"
+                + "{\"nombrePaciente\":\"Juan\",\"genero\":{\"id\":3},\"tipoSangre\":{\"id\":4},\"fechaNacimiento\":\"1990-01-01\"},"
+                + "42]";
+
+        List<FilaImportacionPacienteDTO> filas = leer(json, "json");
+
+        assertEquals(3, filas.size());
+        assertEquals(1L, filas.get(0).getGeneroId());
+        assertEquals(2L, filas.get(0).getTipoSangreId());
+        assertEquals(3L, filas.get(1).getGeneroId());
+        assertEquals(4L, filas.get(1).getTipoSangreId());
+        assertEquals(1, filas.get(2).getErrores().size());
+    }
+
+    @Test
+    @DisplayName("Debería rechazar formatos no soportados, CSV sin encabezado y JSON que no es arreglo")
+    void deberiaRechazarArchivosInvalidos() {
+        assertThrows(ValidationException.class, () -> leer("x", "xml"));
+        assertThrows(ValidationException.class, () -> leer("", "csv"));
+        assertThrows(ValidationException.class, () -> leer("nombre;correo\nJuan;juan@grupobios.cl\n", "csv"));
+        assertThrows(ValidationException.class, () -> leer("{\"nombrePaciente\":\"Juan\"}", "json"));
+    }
+
+    @Test
+    @DisplayName("Debería informar un JSON cortado a mitad de camino al recorrerlo")
+    void deberiaInformarJsonIncompleto() throws IOException {
+        Iterator<FilaImportacionPacienteDTO> filas = iterador("[{\"nombrePaciente\":\"María\"},{\"nombre", "json");
+
+        assertEquals("María", filas.next().getNombrePaciente());
+        assertThrows(ValidationException.class, filas::next);
+    }
+
+    private List<FilaImportacionPacienteDTO> leer(String contenido, String formato) throws IOException {
+        List<FilaImportacionPacienteDTO> filas = new ArrayList<>();
+        iterador(contenido, formato).forEachRemaining(filas::add);
+        return filas;
+    }
+
+    private Iterator<FilaImportacionPacienteDTO> iterador(String contenido, String formato) throws IOException {
+        return lector.leer(new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)), formato);
+    }
+}
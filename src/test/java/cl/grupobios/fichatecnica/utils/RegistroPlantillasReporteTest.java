@@ -0,0 +1,70 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.sf.jasperreports.engine.JasperReport;
+
+@DisplayName("Test unitario para RegistroPlantillasReporte")
+class RegistroPlantillasReporteTest {
+
+    private RegistroPlantillasReporte registro;
+
+    @BeforeEach
+    void setUp() {
+        registro = new RegistroPlantillasReporte(new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Debería compilar la plantilla una sola vez y reutilizarla")
+    void deberiaCompilarUnaSolaVez() {
+        JasperReport primera = registro.obtener(ReporteUtils.PLANTILLA_FICHA_TECNICA);
+        JasperReport segunda = registro.obtener(ReporteUtils.PLANTILLA_FICHA_TECNICA);
+
+        assertSame(primera, segunda);
+        assertEquals(1, registro.getFallos());
+        assertEquals(1, registro.getAciertos());
+    }
+
+    @Test
+    @DisplayName("Debería compartir la misma plantilla entre hilos concurrentes")
+    void deberiaCompartirPlantillaEntreHilos() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<JasperReport>> tareas = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                tareas.add(() -> registro.obtener(ReporteUtils.PLANTILLA_FICHA_TECNICA));
+            }
+
+            List<Future<JasperReport>> resultados = executor.invokeAll(tareas);
+            JasperReport esperada = resultados.get(0).get();
+            for (Future<JasperReport> resultado : resultados) {
+                assertSame(esperada, resultado.get());
+            }
+
+            assertEquals(1, registro.getFallos());
+            assertEquals(15, registro.getAciertos());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Debería lanzar excepción cuando la plantilla no existe")
+    void deberiaLanzarExcepcionCuandoNoExiste() {
+        assertThrows(RuntimeException.class, () -> registro.obtener("static/files/No_Existe"));
+    }
+}
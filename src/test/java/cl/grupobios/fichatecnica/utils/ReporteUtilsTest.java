@@ -0,0 +1,201 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import cl.grupobios.fichatecnica.exceptions.ReporteSaturadoException;
+import cl.grupobios.fichatecnica.models.Genero;
+import cl.grupobios.fichatecnica.models.Paciente;
+import cl.grupobios.fichatecnica.models.TipoSangre;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.sf.jasperreports.engine.JRPrintElement;
+import net.sf.jasperreports.engine.JRPrintFrame;
+import net.sf.jasperreports.engine.JRPrintImage;
+import net.sf.jasperreports.engine.JasperPrint;
+
+@DisplayName("Test unitario para ReporteUtils")
+class ReporteUtilsTest {
+
+    private ReporteUtils reporteUtils;
+    private RecursosReporte recursosReporte;
+    private ThreadPoolTaskExecutor executor;
+    private Paciente paciente;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10);
+        executor.initialize();
+
+        reporteUtils = new ReporteUtils();
+        ReflectionTestUtils.setField(reporteUtils, "registroPlantillas", new RegistroPlantillasReporte(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(reporteUtils, "reporteExecutor", executor);
+        recursosReporte = new RecursosReporte();
+        ReflectionTestUtils.setField(reporteUtils, "recursosReporte", recursosReporte);
+
+        paciente = new Paciente(
+            1L,
+            "PAC-001",
+            "Juan Pérez",
+            "12345678-9",
+            "juan@email.com",
+            LocalDate.of(1990, 5, 15),
+            33,
+            new Genero(1L, "Masculino", "M"),
+            new TipoSangre(1L, "A+")
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private List<Paciente> pacientes(int cantidad) {
+        List<Paciente> pacientes = new ArrayList<>();
+        for (long i = 1; i <= cantidad; i++) {
+            pacientes.add(new Paciente(i, "PAC-" + i, "Paciente " + i, "1111111" + i + "-1", "p" + i + "@email.com",
+                    LocalDate.of(1990, 1, 1), null, paciente.getGenero(), paciente.getTipoSangre()));
+        }
+        return pacientes;
+    }
+
+    @Test
+    @DisplayName("Debería llenar la ficha técnica desde el paciente sin usar la base de datos")
+    void deberiaLlenarFichaDesdePaciente() throws Exception {
+        JasperPrint print = reporteUtils.llenarFichaTecnica(paciente);
+
+        assertEquals(1, print.getPages().size());
+    }
+
+    @Test
+    @DisplayName("Debería usar el logo precargado en vez de leerlo desde el classpath")
+    void deberiaUsarLogoPrecargado() throws Exception {
+        JasperPrint print = reporteUtils.llenarFichaTecnica(paciente);
+
+        JRPrintImage logo = buscarImagen(print.getPages().get(0).getElements());
+        assertSame(recursosReporte.parametros().get(RecursosReporte.PARAMETRO_LOGO), logo.getRenderer());
+    }
+
+    // el logo puede quedar dentro de un frame, lo buscamos en todo el árbol de elementos
+    private JRPrintImage buscarImagen(List<JRPrintElement> elementos) {
+        for (JRPrintElement elemento : elementos) {
+            if (elemento instanceof JRPrintImage imagen) {
+                return imagen;
+            }
+            if (elemento instanceof JRPrintFrame frame) {
+                JRPrintImage imagen = buscarImagen(frame.getElements());
+                if (imagen != null) {
+                    return imagen;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Test
+    @DisplayName("Debería generar un PDF válido desde el paciente")
+    void deberiaGenerarPdf() {
+        byte[] pdf = reporteUtils.generarFichaTecnicaPaciente(paciente);
+
+        assertTrue(new String(pdf, 0, 5, StandardCharsets.US_ASCII).startsWith("%PDF-"));
+    }
+
+    @Test
+    @DisplayName("Debería escribir el PDF directamente en la salida")
+    void deberiaExportarPdfEnSalida() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        reporteUtils.exportarFichaTecnicaPdf(paciente, salida);
+
+        assertTrue(salida.toString(StandardCharsets.ISO_8859_1).startsWith("%PDF-"));
+    }
+
+    @Test
+    @DisplayName("Debería unir las fichas de varios pacientes en un solo PDF")
+    void deberiaGenerarPdfPorLote() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        reporteUtils.exportarFichasTecnicasPdf(pacientes(10), salida);
+
+        assertTrue(salida.toString(StandardCharsets.ISO_8859_1).startsWith("%PDF-"));
+    }
+
+    @Test
+    @DisplayName("Debería generar un ZIP con un PDF por paciente en el mismo orden")
+    void deberiaGenerarZipPorLote() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        reporteUtils.exportarFichasTecnicasZip(pacientes(10), salida);
+
+        List<String> nombres = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(salida.toByteArray()))) {
+            ZipEntry entrada;
+            while ((entrada = zip.getNextEntry()) != null) {
+                nombres.add(entrada.getName());
+            }
+        }
+
+        assertEquals(10, nombres.size());
+        assertEquals("Ficha_Tecnica_Paciente_1_1.pdf", nombres.get(0));
+        assertEquals("Ficha_Tecnica_Paciente_10_10.pdf", nombres.get(9));
+    }
+
+    @Test
+    @DisplayName("Debería rechazar el llenado con ReporteSaturadoException cuando la cola está llena")
+    void deberiaRechazarCuandoLaColaEstaLlena() throws Exception {
+        ThreadPoolTaskExecutor saturado = new ThreadPoolTaskExecutor();
+        saturado.setCorePoolSize(1);
+        saturado.setMaxPoolSize(1);
+        saturado.setQueueCapacity(1);
+        saturado.initialize();
+        ReflectionTestUtils.setField(reporteUtils, "reporteExecutor", saturado);
+        ReflectionTestUtils.setField(reporteUtils, "reintentarEnSegundos", 7L);
+
+        CountDownLatch bloqueo = new CountDownLatch(1);
+        try {
+            // un hilo ocupado y la cola llena
+            saturado.submit(() -> { bloqueo.await(); return null; });
+            saturado.submit(() -> null);
+
+            ReporteSaturadoException ex = assertThrows(ReporteSaturadoException.class,
+                    () -> reporteUtils.llenarFichaTecnicaEnPool(paciente));
+            assertEquals(7L, ex.getReintentarEnSegundos());
+            assertThrows(ReporteSaturadoException.class, () -> reporteUtils.verificarCapacidad());
+        } finally {
+            bloqueo.countDown();
+            saturado.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Debería exportar la ficha llenada en el pool")
+    void deberiaExportarFichaLlenadaEnPool() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        reporteUtils.exportarFichaTecnicaPdf(reporteUtils.llenarFichaTecnicaEnPool(paciente), salida);
+
+        assertTrue(salida.toString(StandardCharsets.ISO_8859_1).startsWith("%PDF-"));
+    }
+}
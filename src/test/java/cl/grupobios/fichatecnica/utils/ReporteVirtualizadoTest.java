@@ -0,0 +1,105 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRField;
+
+@DisplayName("Test de llenado virtualizado de reportes grandes")
+class ReporteVirtualizadoTest {
+
+    static final String PLANTILLA_LISTADO = "reportes/Listado_Prueba";
+    static final int FILAS = 10_000;
+
+    @TempDir
+    Path directorio;
+
+    /*
+     * El reporte se genera en otra JVM con un heap pequeño, así el test falla con OutOfMemoryError
+     * si las páginas no se bajan al archivo swap (sin virtualizar, este listado no cabe en 20 MB)
+    */
+    @Test
+    @DisplayName("Debería generar un listado de 10.000 filas con un heap de 20 MB")
+    void deberiaGenerarListadoGrandeConHeapPequeno() throws Exception {
+        Path salida = directorio.resolve("listado.pdf");
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+
+        Process proceso = new ProcessBuilder(
+                java.toString(), "-Xmx20m",
+                "-cp", System.getProperty("java.class.path"),
+                ReporteVirtualizadoTest.class.getName(),
+                salida.toString(), directorio.toString())
+                .redirectErrorStream(true)
+                .start();
+
+        String log = new String(proceso.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(proceso.waitFor(5, TimeUnit.MINUTES), "El reporte no terminó a tiempo");
+        assertEquals(0, proceso.exitValue(), log);
+
+        byte[] inicio = Files.readAllBytes(salida);
+        assertTrue(new String(inicio, 0, 5, StandardCharsets.US_ASCII).startsWith("%PDF-"));
+
+        // el archivo swap se elimina al terminar
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(List.of(salida), archivos.toList());
+        }
+    }
+
+    // punto de entrada de la JVM con heap pequeño: args = archivo de salida, directorio del swap
+    public static void main(String[] args) throws Exception {
+        ReporteUtils reporteUtils = new ReporteUtils();
+        ReflectionTestUtils.setField(reporteUtils, "registroPlantillas", new RegistroPlantillasReporte(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(reporteUtils, "recursosReporte", new RecursosReporte());
+        ReflectionTestUtils.setField(reporteUtils, "paginasEnMemoria", 10);
+        ReflectionTestUtils.setField(reporteUtils, "directorioSwap", args[1]);
+
+        try (OutputStream salida = Files.newOutputStream(Paths.get(args[0]))) {
+            reporteUtils.exportarPdfVirtualizado(PLANTILLA_LISTADO, Map.of(), new FilasGeneradas(FILAS), salida);
+        }
+    }
+
+    // genera las filas a medida que el llenado las pide, sin tenerlas todas en memoria
+    private static final class FilasGeneradas implements JRDataSource {
+        private final int total;
+        private int actual;
+
+        private FilasGeneradas(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public boolean next() {
+            return actual++ < total;
+        }
+
+        @Override
+        public Object getFieldValue(JRField campo) {
+            return switch (campo.getName()) {
+                case "RUT_PACIENTE" -> actual + "-K";
+                case "NOM_PACIENTE" -> "Paciente de prueba número " + actual;
+                case "NRO_PACIENTE" -> "PAC-" + actual;
+                case "EMAIL_PACIENTE" -> "paciente" + actual + "@email.com";
+                case "NOM_GENERO" -> actual % 2 == 0 ? "Femenino" : "Masculino";
+                case "NOM_TIPO_SANGRE" -> "O+";
+                default -> null;
+            };
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cl.grupobios.fichatecnica.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test unitario para ValidadorPaciente")
+class ValidadorPacienteTest {
+
+    @Test
+    @DisplayName("Debería aceptar RUT con y sin puntos y con K minúscula")
+    void deberiaAceptarRutValido() {
+        assertTrue(ValidadorPaciente.rutValido("12.345.678-5"));
+        assertTrue(ValidadorPaciente.rutValido("7654321-6"));
+        assertTrue(ValidadorPaciente.rutValido("10000013-k"));
+        assertTrue(ValidadorPaciente.rutValido("100000040"));
+    }
+
+    @Test
+    @DisplayName("Debería rechazar RUT con dígito verificador incorrecto o sin forma de RUT")
+    void deberiaRechazarRutInvalido() {
+        assertFalse(ValidadorPaciente.rutValido("12.345.678-K"));
+        assertFalse(ValidadorPaciente.rutValido("1111111-1"));
+        assertFalse(ValidadorPaciente.rutValido("12A45678-5"));
+        assertFalse(ValidadorPaciente.rutValido("-"));
+        assertFalse(ValidadorPaciente.rutValido(null));
+    }
+
+    @Test
+    @DisplayName("Debería normalizar el RUT sin puntos, con guion y K mayúscula")
+    void deberiaNormalizarRut() {
+        assertEquals("12345678-5", ValidadorPaciente.normalizarRut(" 12.345.678-5 "));
+        assertEquals("10000013-K", ValidadorPaciente.normalizarRut("10000013k"));
+        assertNull(ValidadorPaciente.normalizarRut("1234567890123"));
+        assertEquals('K', ValidadorPaciente.digitoVerificador("6"));
+    }
+
+    @Test
+    @DisplayName("Debería validar el formato del correo")
+    void deberiaValidarCorreo() {
+        assertTrue(ValidadorPaciente.correoValido("paciente@grupobios.cl"));
+        assertFalse(ValidadorPaciente.correoValido("paciente@grupobios"));
+        assertFalse(ValidadorPaciente.correoValido("paciente grupobios@cl.cl"));
+        assertFalse(ValidadorPaciente.correoValido("a@b@c.cl"));
+        assertFalse(ValidadorPaciente.correoValido(null));
+    }
+}